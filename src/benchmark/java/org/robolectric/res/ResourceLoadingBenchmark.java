@@ -0,0 +1,97 @@
+package org.robolectric.res;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.tester.android.util.ResName;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.robolectric.util.TestUtil.SYSTEM_PACKAGE;
+import static org.robolectric.util.TestUtil.SYSTEM_RESOURCE_PATH;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+import static org.robolectric.util.TestUtil.TEST_RESOURCE_PATH;
+
+/**
+ * Times resource loading against the SDK resources and the fixtures in src/test/resources. Run with
+ * {@code mvn -P benchmarks verify}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ResourceLoadingBenchmark {
+    private static final ResName HELLO = new ResName(TEST_PACKAGE, "string", "hello");
+    private static final ResName SYSTEM_OK = new ResName(SYSTEM_PACKAGE, "string", "ok");
+    private static final ResName MULTI_ORIENTATION = new ResName(TEST_PACKAGE, "layout", "multi_orientation");
+    private static final ResName MEDIA = new ResName(TEST_PACKAGE, "layout", "media");
+
+    @State(Scope.Benchmark)
+    public static class Loaded {
+        PackageResourceLoader resourceLoader;
+
+        @Setup(Level.Trial)
+        public void load() {
+            resourceLoader = newResourceLoader();
+            resourceLoader.getStringValue(HELLO, "");
+            resourceLoader.getLayoutViewNode(MEDIA, "");
+        }
+    }
+
+    /** Parses values and layouts from scratch, with no compiled resource tables to fall back on. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 20)
+    public Object coldLoad() {
+        PackageResourceLoader resourceLoader = newResourceLoader();
+        resourceLoader.getStringValue(HELLO, "");
+        return resourceLoader.getLayoutViewNode(MEDIA, "");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String lookupString(Loaded loaded) {
+        return loaded.resourceLoader.getStringValue(HELLO, "fr");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String lookupSystemString(Loaded loaded) {
+        return loaded.resourceLoader.getStringValue(SYSTEM_OK, "");
+    }
+
+    /**
+     * The resource side of inflating a layout: picking the qualified variant and walking its view nodes. Creating the
+     * views themselves needs the shadowed android classes, so it isn't measured here.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int inflateLayoutNodes(Loaded loaded) {
+        return countNodes(loaded.resourceLoader.getLayoutViewNode(MULTI_ORIENTATION, "land"))
+                + countNodes(loaded.resourceLoader.getLayoutViewNode(MEDIA, ""));
+    }
+
+    private static PackageResourceLoader newResourceLoader() {
+        return new PackageResourceLoader(Arrays.asList(SYSTEM_RESOURCE_PATH, TEST_RESOURCE_PATH), null, null);
+    }
+
+    private static int countNodes(ViewNode viewNode) {
+        int count = 1;
+        for (ViewNode child : viewNode.getChildren()) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+}
@@ -64,7 +64,10 @@ import org.robolectric.shadows.*;
 import org.robolectric.tester.org.apache.http.FakeHttpLayer;
 import org.robolectric.tester.org.apache.http.HttpRequestInfo;
 import org.robolectric.tester.org.apache.http.RequestMatcher;
+import org.robolectric.util.IdleResult;
+import org.robolectric.util.RobolectricBackgroundExecutorService;
 import org.robolectric.util.Scheduler;
+import org.robolectric.util.VirtualClock;
 import org.apache.http.Header;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
@@ -72,13 +75,17 @@ import org.apache.http.impl.client.DefaultRequestDirector;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 
 public class Robolectric {
     public static Application application;
+    private static VirtualClock virtualClock = new VirtualClock();
     public static final int DEFAULT_SDK_VERSION = 16;
     private static Set<String> unloadableClassNames = new HashSet<String>();
 
@@ -391,6 +398,7 @@ public class Robolectric {
                 ShadowStateListDrawable.class,
                 ShadowStatFs.class,
                 ShadowSurfaceView.class,
+                ShadowSystemClock.class,
                 ShadowTabActivity.class,
                 ShadowTabHost.class,
                 ShadowTabSpec.class,
@@ -432,12 +440,14 @@ public class Robolectric {
     public static void resetStaticState() {
         getShadowWrangler().silence();
         Robolectric.application = null;
+        virtualClock = new VirtualClock();
         ShadowBitmapFactory.reset();
         ShadowDrawable.reset();
         ShadowMediaStore.reset();
         ShadowLog.reset();
         ShadowContext.clearFilesAndCache();
         ShadowLooper.resetThreadLoopers();
+        RobolectricBackgroundExecutorService.reset();
         ShadowDialog.reset();
         ShadowContentResolver.reset();
         ShadowLocalBroadcastManager.reset();
@@ -1146,13 +1156,16 @@ public class Robolectric {
     }
 
     /**
-     * Runs any background tasks previously queued by {@link android.os.AsyncTask#execute(Object[])}.
+     * Runs any background tasks previously queued by {@link android.os.AsyncTask#execute(Object[])}, after waiting
+     * for any running on threads of a {@link RobolectricBackgroundExecutorService} to finish.
      * <p/>
      * <p/>
      * Note: calling this method does not pause or un-pause the scheduler.
      */
     public static void runBackgroundTasks() {
-        getBackgroundScheduler().advanceBy(0);
+        do {
+            RobolectricBackgroundExecutorService.awaitThreadedTasks();
+        } while (getBackgroundScheduler().advanceBy(0));
     }
 
     /**
@@ -1360,6 +1373,56 @@ public class Robolectric {
         ShadowLooper.idleMainLooper(interval);
     }
 
+    /**
+     * Runs everything queued on every looper (the main looper's, and those of any {@link android.os.HandlerThread}s)
+     * and on the background scheduler, in the order it's due, moving virtual time on as it goes, until nothing is due
+     * within {@code maxVirtualTime} milliseconds of when idling started. Tasks running on threads of a
+     * {@link RobolectricBackgroundExecutorService} are waited for along the way, and anything they queue is run too.
+     *
+     * @return how many tasks ran and how much virtual time passed
+     */
+    public static IdleResult idleUntilQuiescent(long maxVirtualTime) {
+        long startTime = virtualClock.getUptimeMillis();
+        int tasksRun = 0;
+
+        while (true) {
+            RobolectricBackgroundExecutorService.awaitThreadedTasks();
+
+            Scheduler nextScheduler = null;
+            long nextDue = 0;
+            for (Scheduler scheduler : getAllSchedulers()) {
+                synchronized (scheduler) {
+                    if (scheduler.enqueuedTaskCount() == 0) continue;
+
+                    long due = scheduler.getNextScheduledTime();
+                    if (nextScheduler == null || due < nextDue) {
+                        nextScheduler = scheduler;
+                        nextDue = due;
+                    }
+                }
+            }
+
+            if (nextScheduler == null || nextDue - startTime > maxVirtualTime) break;
+            // every scheduler reads the one virtual clock, so running a task moves time on for all of them, and a
+            // task one posts to another looper is due relative to the time it was posted
+            if (nextScheduler.runOneTask()) tasksRun++;
+        }
+
+        return new IdleResult(tasksRun, virtualClock.getUptimeMillis() - startTime);
+    }
+
+    private static List<Scheduler> getAllSchedulers() {
+        List<Scheduler> schedulers = new ArrayList<Scheduler>();
+        Set<Looper> loopers = Collections.newSetFromMap(new IdentityHashMap<Looper, Boolean>());
+        loopers.add(Looper.getMainLooper());
+        loopers.addAll(ShadowLooper.getAllLoopers());
+        for (Looper looper : loopers) {
+            schedulers.add(shadowOf(looper).getScheduler());
+        }
+        schedulers.add(getBackgroundScheduler());
+        return schedulers;
+    }
+
     public static Scheduler getUiThreadScheduler() {
         return shadowOf(Looper.getMainLooper()).getScheduler();
     }
@@ -1368,6 +1431,14 @@ public class Robolectric {
         return getShadowApplication().getBackgroundScheduler();
     }
 
+    /**
+     * @return the virtual time source shared by every {@link Scheduler}, {@link android.os.SystemClock} and the other
+     *     time-reading shadows in the current test
+     */
+    public static VirtualClock getVirtualClock() {
+        return virtualClock;
+    }
+
     public static ShadowApplication getShadowApplication() {
         return Robolectric.application == null ? null : shadowOf(Robolectric.application);
     }
@@ -10,6 +10,8 @@ import org.robolectric.bytecode.ShadowWrangler;
 import org.robolectric.internal.RobolectricTestRunnerInterface;
 import org.robolectric.res.AndroidResourcePathFinder;
 import org.robolectric.res.ResourcePath;
+import org.robolectric.util.Join;
+import org.robolectric.util.ResolvedArtifactCache;
 import org.apache.maven.artifact.ant.DependenciesTask;
 import org.apache.maven.model.Dependency;
 import org.apache.tools.ant.Project;
@@ -20,8 +22,10 @@ import java.lang.reflect.Field;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 
 import static org.robolectric.RobolectricTestRunner.isBootstrapped;
@@ -72,15 +76,16 @@ public class RobolectricContext {
     }
 
     public ClassCache createClassCache() {
+        return new ClassCache(new File(getCacheDirectory(), "cached-robolectric-classes.bin").getAbsolutePath(), AndroidTranslator.CACHE_VERSION);
+    }
+
+    public File getCacheDirectory() {
         final String classCachePath = System.getProperty("cached.robolectric.classes.path");
-        final File classCacheDirectory;
         if (null == classCachePath || "".equals(classCachePath.trim())) {
-            classCacheDirectory = new File("./tmp");
+            return new File("./tmp");
         } else {
-            classCacheDirectory = new File(classCachePath);
+            return new File(classCachePath);
         }
-
-        return new ClassCache(new File(classCacheDirectory, "cached-robolectric-classes.jar").getAbsolutePath(), AndroidTranslator.CACHE_VERSION);
     }
 
     public AndroidTranslator createAndroidTranslator(Setup setup, ClassCache classCache) {
@@ -184,6 +189,33 @@ public class RobolectricContext {
     }
 
     private URL[] artifactUrls(Dependency... dependencies) {
+        ResolvedArtifactCache resolvedArtifactCache = new ResolvedArtifactCache(new File(getCacheDirectory(), "cached-artifact-paths.properties"));
+        List<String> coordinates = new ArrayList<String>();
+        for (Dependency dependency : dependencies) {
+            coordinates.add(dependency.getManagementKey() + ":" + dependency.getVersion());
+        }
+        String cacheKey = Join.join(",", coordinates);
+
+        List<File> artifactFiles = resolvedArtifactCache.get(cacheKey);
+        if (artifactFiles == null) {
+            artifactFiles = resolveArtifacts(dependencies);
+            resolvedArtifactCache.put(cacheKey, artifactFiles);
+        }
+
+        URL[] urls = new URL[artifactFiles.size()];
+        int i = 0;
+        for (File artifactFile : artifactFiles) {
+            try {
+                urls[i++] = new URL("file://" + artifactFile.getPath());
+            } catch (MalformedURLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        return urls;
+    }
+
+    private List<File> resolveArtifacts(Dependency... dependencies) {
         DependenciesTask dependenciesTask = new DependenciesTask();
         configureMaven(dependenciesTask);
         Project project = new Project();
@@ -195,17 +227,12 @@ public class RobolectricContext {
 
         @SuppressWarnings("unchecked")
         Hashtable<String, String> artifacts = project.getProperties();
-        URL[] urls = new URL[artifacts.size()];
-        int i = 0;
+        List<File> artifactFiles = new ArrayList<File>();
         for (String path : artifacts.values()) {
-            try {
-                urls[i++] = new URL("file://" + path);
-            } catch (MalformedURLException e) {
-                throw new RuntimeException(e);
-            }
+            artifactFiles.add(new File(path));
         }
 
-        return urls;
+        return artifactFiles;
     }
 
     @SuppressWarnings("UnusedParameters")
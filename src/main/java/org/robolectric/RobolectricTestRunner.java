@@ -10,6 +10,8 @@ import org.robolectric.bytecode.RobolectricClassLoader;
 import org.robolectric.internal.RobolectricTestRunnerInterface;
 import org.robolectric.res.PackageResourceLoader;
 import org.robolectric.res.ResourceLoader;
+import org.robolectric.res.ResourceLoadingListener;
+import org.robolectric.res.ResourceLoadingStats;
 import org.robolectric.res.ResourcePath;
 import org.robolectric.res.RoutingResourceLoader;
 import org.robolectric.shadows.ShadowApplication;
@@ -19,11 +21,13 @@ import org.robolectric.util.DatabaseConfig;
 import org.robolectric.util.DatabaseConfig.DatabaseMap;
 import org.robolectric.util.DatabaseConfig.UsingDatabaseMap;
 import org.robolectric.util.SQLiteMap;
+import org.robolectric.util.SoftLruCache;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.junit.runners.model.Statement;
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
@@ -31,6 +35,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,8 +47,14 @@ import static org.robolectric.Robolectric.shadowOf;
  * provide a simulation of the Android runtime environment.
  */
 public class RobolectricTestRunner extends BlockJUnit4ClassRunner implements RobolectricTestRunnerInterface {
-    private static Map<AndroidManifest, ResourceLoader> resourceLoadersByAppManifest = new HashMap<AndroidManifest, ResourceLoader>();
-    private static Map<ResourcePath, ResourceLoader> systemResourceLoaders = new HashMap<ResourcePath, ResourceLoader>();
+    /**
+     * How many app and system resource loaders to hold on to between test classes; others are kept only until memory
+     * runs low. Set with the system property "robolectric.resourceLoaderCacheSize".
+     */
+    private static final int RESOURCE_LOADER_CACHE_SIZE = Integer.getInteger("robolectric.resourceLoaderCacheSize", 4);
+    private static SoftLruCache<AndroidManifest, ResourceLoader> resourceLoadersByAppManifest = new SoftLruCache<AndroidManifest, ResourceLoader>(RESOURCE_LOADER_CACHE_SIZE);
+    private static SoftLruCache<ResourcePath, ResourceLoader> systemResourceLoaders = new SoftLruCache<ResourcePath, ResourceLoader>(RESOURCE_LOADER_CACHE_SIZE);
+    private static ResourceLoadingStats resourceLoadingStats;
 
     // field in both the instrumented and original classes
     RobolectricContext sharedRobolectricContext;
@@ -178,6 +189,9 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner implements Rob
     public void setupApplicationState(Method testMethod) {
         boolean strictI18n = determineI18nStrictState(testMethod);
 
+        if (resourceLoadingStats == null && collectResourceLoadingStats()) {
+            resourceLoadingStats = createResourceLoadingStats();
+        }
         ResourceLoader systemResourceLoader = getSystemResourceLoader(sharedRobolectricContext.getSystemResourcePath());
         ShadowResources.setSystemResources(systemResourceLoader);
 
@@ -396,10 +410,14 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner implements Rob
         return new ApplicationResolver(sharedRobolectricContext.getAppManifest()).resolveApplication();
     }
 
+    // an evicted system resource loader can't be collected while a cached app resource loader still routes to it,
+    // so it's found again rather than loaded twice
     private ResourceLoader getSystemResourceLoader(ResourcePath systemResourcePath) {
         ResourceLoader systemResourceLoader = systemResourceLoaders.get(systemResourcePath);
         if (systemResourceLoader == null) {
-            systemResourceLoader = createResourceLoader(systemResourcePath);
+            PackageResourceLoader packageResourceLoader = createResourceLoader(systemResourcePath);
+            if (preloadSystemResources()) packageResourceLoader.preloadInBackground();
+            systemResourceLoader = packageResourceLoader;
             systemResourceLoaders.put(systemResourcePath, systemResourceLoader);
         }
         return systemResourceLoader;
@@ -410,6 +428,8 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner implements Rob
         if (resourceLoader == null) {
             resourceLoader = createAppResourceLoader(systemResourceLoader, appManifest);
             resourceLoadersByAppManifest.put(appManifest, resourceLoader);
+        } else {
+            resourceLoader.reloadChangedResources();
         }
         return resourceLoader;
     }
@@ -422,7 +442,8 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner implements Rob
         for (ResourcePath resourcePath : appManifest.getIncludedResourcePaths()) {
             resourcePaths.add(resourcePath);
         }
-        PackageResourceLoader appResourceLoader = new PackageResourceLoader(resourcePaths, appManifest.getPackageName());
+        PackageResourceLoader appResourceLoader = new PackageResourceLoader(resourcePaths, appManifest.getPackageName(), getResourceTableDirectory());
+        appResourceLoader.setWatchForChanges(reloadChangedResources());
         for (ResourcePath resourcePath : appManifest.getIncludedResourcePaths()) {
             resourceLoaders.put(resourcePath.getPackageName(), appResourceLoader);
         }
@@ -431,7 +452,53 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner implements Rob
     }
 
     protected PackageResourceLoader createResourceLoader(ResourcePath systemResourcePath) {
-        return new PackageResourceLoader(systemResourcePath);
+        return new PackageResourceLoader(Collections.singletonList(systemResourcePath), null, getResourceTableDirectory());
+    }
+
+    /**
+     * Whether to start loading every kind of system resource on a background thread as soon as the loader is created,
+     * rather than each kind when a test first needs it. Worthwhile when most tests go on to inflate views. Set the
+     * system property "robolectric.preloadResources" to true to enable it.
+     */
+    protected boolean preloadSystemResources() {
+        return Boolean.valueOf(System.getProperty("robolectric.preloadResources"));
+    }
+
+    /**
+     * Whether app resource files that change between tests are read again before the next one, so a long-lived JVM
+     * (an IDE running tests continuously, or a {@link org.robolectric.daemon.RobolectricDaemon}) picks up edits under
+     * res/ without restarting. Set the system property "robolectric.reloadResources" to true to enable it.
+     */
+    protected boolean reloadChangedResources() {
+        return Boolean.valueOf(System.getProperty("robolectric.reloadResources"));
+    }
+
+    /**
+     * Whether to count where resource loading spends its time, see {@link ResourceLoadingStats}. Set the system
+     * property "robolectric.resourceStats" to true to enable it; the stats are printed when the JVM exits and can be
+     * watched over JMX meanwhile.
+     */
+    protected boolean collectResourceLoadingStats() {
+        return Boolean.valueOf(System.getProperty("robolectric.resourceStats"));
+    }
+
+    private static ResourceLoadingStats createResourceLoadingStats() {
+        final ResourceLoadingStats stats = new ResourceLoadingStats();
+        ResourceLoadingListener.add(stats);
+        stats.register();
+        Runtime.getRuntime().addShutdownHook(new Thread("print resource loading stats") {
+            @Override public void run() {
+                System.out.println("Robolectric resource loading: " + stats);
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * Where compiled resource tables are kept between runs; return null to parse resources every time.
+     */
+    protected File getResourceTableDirectory() {
+        return new File(sharedRobolectricContext.getCacheDirectory(), "resource-tables");
     }
 
     /*
@@ -0,0 +1,157 @@
+package org.robolectric.bytecode;
+
+import javassist.ClassPool;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Instruments every class in a set of jars up front, using the same {@link AndroidTranslator} and {@link Setup}
+ * as {@link RobolectricClassLoader}, and writes the results into a {@link ClassCache} file. Point
+ * {@code cached.robolectric.classes.path} at the output directory and tests load those classes straight from the
+ * cache without running javassist.
+ *
+ * <pre>
+ *   java org.robolectric.bytecode.AheadOfTimeInstrumenter [--setup=com.example.MySetup] outputDir jar...
+ * </pre>
+ *
+ * The jars should be the ones tests load Android classes from: the real android-base, android-kxml2 and
+ * android-luni jars, plus maps and support jars if used. See the {@code preinstrument} profile in the pom.
+ */
+public class AheadOfTimeInstrumenter {
+    private final Setup setup;
+    private final List<String> jarPaths;
+    private final int threadCount;
+
+    public AheadOfTimeInstrumenter(Setup setup, List<String> jarPaths, int threadCount) {
+        this.setup = setup;
+        this.jarPaths = jarPaths;
+        this.threadCount = threadCount;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Setup setup = new Setup();
+        List<String> remainingArgs = new ArrayList<String>();
+        for (String arg : args) {
+            if (arg.startsWith("--setup=")) {
+                setup = (Setup) Class.forName(arg.substring("--setup=".length())).newInstance();
+            } else {
+                remainingArgs.add(arg);
+            }
+        }
+
+        if (remainingArgs.size() < 2) {
+            System.err.println("usage: " + AheadOfTimeInstrumenter.class.getName() + " [--setup=<Setup subclass>] outputDir jar...");
+            System.exit(1);
+        }
+
+        File outputFile = new File(remainingArgs.get(0), "cached-robolectric-classes.bin");
+        List<String> jarPaths = remainingArgs.subList(1, remainingArgs.size());
+        int classCount = new AheadOfTimeInstrumenter(setup, jarPaths, Runtime.getRuntime().availableProcessors())
+                .instrumentInto(outputFile);
+        System.out.println("Instrumented " + classCount + " classes into " + outputFile);
+    }
+
+    /**
+     * @return the number of classes instrumented
+     */
+    public int instrumentInto(File outputFile) throws IOException, InterruptedException, ExecutionException {
+        final ClassCache classCache = new ClassCache(outputFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        final AndroidTranslator androidTranslator = new AndroidTranslator(classCache, setup);
+
+        List<List<String>> batches = new ArrayList<List<String>>();
+        for (int i = 0; i < threadCount; i++) {
+            batches.add(new ArrayList<String>());
+        }
+        int i = 0;
+        for (String className : listClasses()) {
+            batches.get(i++ % threadCount).add(className);
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (final List<String> batch : batches) {
+                results.add(executorService.submit(new Callable<Integer>() {
+                    @Override public Integer call() throws Exception {
+                        return instrument(batch, androidTranslator, classCache);
+                    }
+                }));
+            }
+
+            int classCount = 0;
+            for (Future<Integer> result : results) {
+                classCount += result.get();
+            }
+
+            classCache.saveAllClassesToCache(outputFile);
+            return classCount;
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private int instrument(List<String> classNames, AndroidTranslator androidTranslator, ClassCache classCache) throws NotFoundException {
+        // javassist ClassPools aren't thread-safe, so each batch gets its own
+        ClassPool classPool = new ClassPool();
+        for (String jarPath : jarPaths) {
+            classPool.appendClassPath(jarPath);
+        }
+        classPool.appendClassPath(new LoaderClassPath(AheadOfTimeInstrumenter.class.getClassLoader()));
+
+        int classCount = 0;
+        for (String className : classNames) {
+            if (!setup.shouldAcquire(className)) continue;
+
+            String cacheKey = androidTranslator.getCacheKey(classPool, className);
+            if (cacheKey == null || classCache.getClassBytesFor(className, cacheKey) != null) {
+                continue; // already instrumented, probably as some other class's superclass
+            }
+
+            try {
+                androidTranslator.onLoad(classPool, className);
+            } catch (IgnorableClassNotFoundException e) {
+                continue;
+            } catch (Exception e) {
+                System.err.println("Skipping " + className + ": " + e);
+                continue;
+            }
+
+            if (classCache.getClassBytesFor(className, cacheKey) != null) {
+                classCount++;
+            }
+        }
+        return classCount;
+    }
+
+    private List<String> listClasses() throws IOException {
+        List<String> classNames = new ArrayList<String>();
+        for (String jarPath : jarPaths) {
+            JarFile jarFile = new JarFile(jarPath);
+            try {
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (name.endsWith(".class")) {
+                        classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                    }
+                }
+            } finally {
+                jarFile.close();
+            }
+        }
+        return classNames;
+    }
+}
@@ -3,10 +3,25 @@ package org.robolectric.bytecode;
 import android.net.Uri;
 import javassist.*;
 import javassist.Modifier;
+import javassist.bytecode.ClassFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressWarnings({"UnusedDeclaration"})
 public class AndroidTranslator implements Translator {
@@ -14,7 +29,7 @@ public class AndroidTranslator implements Translator {
      * IMPORTANT -- increment this number when the bytecode generated for modified classes changes
      * so the cache file can be invalidated.
      */
-    public static final int CACHE_VERSION = 23;
+    public static final int CACHE_VERSION = 25;
 //    public static final int CACHE_VERSION = -1;
 
     public static final String CLASS_HANDLER_DATA_FIELD_NAME = "__shadow__"; // todo: rename
@@ -22,6 +37,10 @@ public class AndroidTranslator implements Translator {
 
     private final ClassCache classCache;
     private final Setup setup;
+    private final byte[] setupFingerprint;
+    // jars don't change under a test run, so each is looked at once
+    private static final Map<String, byte[]> JAR_IDENTITIES = new ConcurrentHashMap<String, byte[]>();
+    private final Map<String, byte[]> classOrigins = new ConcurrentHashMap<String, byte[]>();
 
     private static boolean debug = false;
 
@@ -43,6 +62,139 @@ public class AndroidTranslator implements Translator {
     public AndroidTranslator(ClassCache classCache, Setup setup) {
         this.classCache = classCache;
         this.setup = setup;
+        this.setupFingerprint = fingerprint(setup);
+    }
+
+    /**
+     * Returns the key under which the instrumented form of a class is cached: a digest of its name, of where it came
+     * from, and of everything in the {@link Setup} that influences instrumentation. Returns null if the class can't be
+     * found.
+     *
+     * A class from a jar is identified by the jar's path, size and modification time, looked up once per jar, so a
+     * cache hit doesn't read the class at all; any change to the jar, including to the class's superclasses there,
+     * changes the key. Any other class is identified by its bytes and those of its superclasses.
+     */
+    public String getCacheKey(ClassPool classPool, String className) {
+        try {
+            byte[] origin = originOf(classPool, setup.translateClassName(className));
+            if (origin == null) return null;
+
+            MessageDigest digest = newDigest();
+            digest.update(setupFingerprint);
+            digest.update(className.getBytes("UTF-8"));
+            digest.update(origin);
+            return toHex(digest.digest());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] originOf(ClassPool classPool, String className) throws IOException {
+        byte[] origin = classOrigins.get(className);
+        if (origin != null) return origin;
+
+        URL classFile = classPool.find(className);
+        if (classFile == null) return null;
+        if (classFile.getProtocol().equals("jar")) return jarIdentity(classFile);
+
+        byte[] classBytes = read(classFile);
+        MessageDigest digest = newDigest();
+        digest.update(classBytes);
+        String superclassName = new ClassFile(new DataInputStream(new ByteArrayInputStream(classBytes))).getSuperclass();
+        // the JDK's classes don't change under a test run, and aren't always in a form javassist can read
+        if (superclassName != null && !superclassName.startsWith("java.")) {
+            byte[] superclassOrigin = originOf(classPool, superclassName);
+            if (superclassOrigin != null) digest.update(superclassOrigin);
+        }
+        origin = digest.digest();
+        classOrigins.put(className, origin);
+        return origin;
+    }
+
+    private static byte[] jarIdentity(URL classFile) throws IOException {
+        URL jarFileUrl = ((JarURLConnection) classFile.openConnection()).getJarFileURL();
+        String jarPath = jarFileUrl.toExternalForm();
+        byte[] identity = JAR_IDENTITIES.get(jarPath);
+        if (identity == null) {
+            // canonical, since class paths may spell the same jar differently
+            File jarFile = new File(URLDecoder.decode(jarFileUrl.getPath(), "UTF-8")).getCanonicalFile();
+            MessageDigest digest = newDigest();
+            digest.update((jarFile.getPath() + File.pathSeparator + jarFile.length() + File.pathSeparator + jarFile.lastModified()).getBytes("UTF-8"));
+            identity = digest.digest();
+            JAR_IDENTITIES.put(jarPath, identity);
+        }
+        return identity;
+    }
+
+    private static byte[] read(URL url) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InputStream inputStream = url.openStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, count);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] fingerprint(Setup setup) {
+        MessageDigest digest = newDigest();
+        try {
+            for (Class<?> clazz = setup.getClass(); clazz != Object.class; clazz = clazz.getSuperclass()) {
+                InputStream inputStream = clazz.getResourceAsStream("/" + clazz.getName().replace('.', '/') + ".class");
+                if (inputStream == null) {
+                    digest.update(clazz.getName().getBytes("UTF-8"));
+                    continue;
+                }
+                try {
+                    update(digest, inputStream);
+                } finally {
+                    inputStream.close();
+                }
+            }
+
+            TreeSet<String> methodsToIntercept = new TreeSet<String>();
+            for (Setup.MethodRef methodRef : setup.methodsToIntercept()) {
+                methodsToIntercept.add(methodRef.toString());
+            }
+            Map<String, String> directCallBindings = new TreeMap<String, String>(setup.getShadowClassesForDirectCalls());
+
+            digest.update(methodsToIntercept.toString().getBytes("UTF-8"));
+            digest.update(directCallBindings.toString().getBytes("UTF-8"));
+            digest.update(setup.getInstrumentationFingerprint().getBytes("UTF-8"));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, count);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder buf = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            buf.append(Character.forDigit((b >> 4) & 0xf, 16));
+            buf.append(Character.forDigit(b & 0xf, 16));
+        }
+        return buf.toString();
     }
 
     @Override
@@ -99,12 +251,17 @@ public class AndroidTranslator implements Translator {
             }
 
             MethodGenerator methodGenerator = new MethodGenerator(ctClass, setup);
+            methodGenerator.interceptCalls();
             methodGenerator.fixConstructors();
             methodGenerator.fixMethods();
             methodGenerator.deferClassInitialization();
 
             try {
-                classCache.addClass(className, ctClass.toBytecode());
+                String cacheKey = getCacheKey(classPool, className);
+                byte[] classBytes = ctClass.toBytecode();
+                if (cacheKey != null) {
+                    classCache.addClass(className, cacheKey, classBytes);
+                }
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1,64 +1,124 @@
 package org.robolectric.bytecode;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Enumeration;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.jar.Attributes;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
-import java.util.jar.Manifest;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
 
+/**
+ * Instrumented class bytes, kept across JVMs in a single append-only file:
+ *
+ * <pre>
+ *   int magic, int cacheVersion,
+ *   { int nameLength, byte[nameLength] className@contentKey (UTF-8), int classLength, int checksum,
+ *     byte[classLength] classBytes }*
+ * </pre>
+ *
+ * The checksum is a CRC32 of the name and class bytes. It's checked the first time a record is sliced out, so a
+ * damaged record reads as missing and its class is instrumented and saved again. Records are indexed up to the first
+ * one that's incomplete, e.g. because a write was interrupted.
+ *
+ * Each class is stored under a content key (see {@link AndroidTranslator#getCacheKey}) derived from its original
+ * bytes and the instrumentation policy, so several versions of a class, or the same class instrumented under
+ * different {@link Setup}s, can live side by side in one cache.
+ *
+ * The file is memory-mapped, and only its record headers are read when it's first indexed; class bytes are sliced
+ * out of the mapping when they're actually defined. Classes instrumented during this run are saved on shutdown,
+ * under an exclusive lock on a separate lock file, skipping any that this or another JVM has already written. New
+ * records are only ever appended. A file with an incomplete record at its end, or from another cache version, is
+ * rewritten to a temporary file that then replaces it, so no JVM's mapping of the old file ever shrinks under it.
+ */
 public class ClassCache {
-    private static final Attributes.Name VERSION_ATTRIBUTE = new Attributes.Name("version");
+    // changes whenever the record layout does
+    private static final int MAGIC = 0x526f6232;
+    private static final int HEADER_LENGTH = 8;
+    private static final int RECORD_HEADER_LENGTH = 12;
 
-    private Map<String, byte[]> cachedClasses = new HashMap<String, byte[]>();
+    private static final List<SaveOnShutdown> CACHES_TO_SAVE = new ArrayList<SaveOnShutdown>();
+    // FileLocks are held per JVM, so saves from this one take turns before locking the file
+    private static final Object SAVE_LOCK = new Object();
+
+    private final int expectedCacheVersion;
+    private final ByteBuffer mappedCache;
+    private final Object indexLock = new Object();
+    private volatile Index index;
+    private final Map<String, byte[]> addedClasses = new ConcurrentHashMap<String, byte[]>();
+    private final Set<String> addedClassNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> damagedEntries = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     private boolean startedWriting = false;
 
     public ClassCache(String classCachePath, final int expectedCacheVersion) {
-        final File cacheJarFile = new File(classCachePath);
-        JarFile cacheFile;
-        try {
-            cacheFile = new JarFile(cacheJarFile);
-            int cacheVersion = 0;
-            Manifest manifest = cacheFile.getManifest();
-            if (manifest != null) {
-                Attributes attributes = manifest.getEntries().get("robolectric");
-                if (attributes != null) {
-                    String cacheVersionStr = (String) attributes.get(VERSION_ATTRIBUTE);
-                    if (cacheVersionStr != null) {
-                        cacheVersion = Integer.parseInt(cacheVersionStr);
+        final File cacheFile = new File(classCachePath);
+        this.expectedCacheVersion = expectedCacheVersion;
+        this.mappedCache = mapCacheFile(cacheFile);
+        saveOnShutdown(this, cacheFile);
+    }
+
+    private static void saveOnShutdown(ClassCache classCache, File cacheFile) {
+        synchronized (CACHES_TO_SAVE) {
+            if (CACHES_TO_SAVE.isEmpty()) {
+                Runtime.getRuntime().addShutdownHook(new Thread("save class caches") {
+                    @Override public void run() {
+                        List<SaveOnShutdown> cachesToSave;
+                        synchronized (CACHES_TO_SAVE) {
+                            cachesToSave = new ArrayList<SaveOnShutdown>(CACHES_TO_SAVE);
+                        }
+                        for (SaveOnShutdown saveOnShutdown : cachesToSave) {
+                            saveOnShutdown.classCache.saveAllClassesToCache(saveOnShutdown.cacheFile);
+                        }
                     }
-                }
+                });
             }
-            if (cacheVersion != expectedCacheVersion || expectedCacheVersion == -1) {
-                cacheJarFile.delete();
-            } else {
-                readEntries(cacheFile);
-            }
-        } catch (IOException e) {
-            // no problem
+            CACHES_TO_SAVE.add(new SaveOnShutdown(classCache, cacheFile));
         }
+    }
 
-        Runtime.getRuntime().addShutdownHook(new Thread() {
-            @Override public void run() {
-                Manifest manifest = new Manifest();
-                Attributes attributes = new Attributes();
-                attributes.put(VERSION_ATTRIBUTE, String.valueOf(expectedCacheVersion));
-                manifest.getEntries().put("robolectric", attributes);
+    /**
+     * Cheap check, which doesn't need a content key, for whether any version of a class might be cached.
+     */
+    public boolean mayContain(String className) {
+        return addedClassNames.contains(className) || getIndex().classNames.contains(className);
+    }
 
-                saveAllClassesToCache(cacheJarFile, manifest);
-            }
-        });
+    public byte[] getClassBytesFor(String className, String contentKey) {
+        String name = entryName(className, contentKey);
+        byte[] classBytes = addedClasses.get(name);
+        if (classBytes != null) return classBytes;
+
+        ByteBuffer buffer = getCachedClassBuffer(name);
+        if (buffer == null) return null;
+        classBytes = new byte[buffer.remaining()];
+        buffer.get(classBytes);
+        return classBytes;
     }
 
-    public byte[] getClassBytesFor(String name) {
-        return cachedClasses.get(name);
+    /**
+     * Like {@link #getClassBytesFor(String, String)}, but for classes read from the cache file returns a read-only
+     * view of the mapped file rather than a copy.
+     */
+    public ByteBuffer getClassBufferFor(String className, String contentKey) {
+        String name = entryName(className, contentKey);
+        byte[] classBytes = addedClasses.get(name);
+        if (classBytes != null) return ByteBuffer.wrap(classBytes);
+        return getCachedClassBuffer(name);
     }
 
     public boolean isWriting() {
@@ -67,74 +127,320 @@ public class ClassCache {
         }
     }
 
-    public void addClass(String className, byte[] classBytes) {
-        cachedClasses.put(className, classBytes);
+    public void addClass(String className, String contentKey, byte[] classBytes) {
+        addedClasses.put(entryName(className, contentKey), classBytes);
+        addedClassNames.add(className);
+    }
+
+    private static String entryName(String className, String contentKey) {
+        return className + "@" + contentKey;
+    }
+
+    private ByteBuffer getCachedClassBuffer(String name) {
+        CachedClass cachedClass = getIndex().entries.get(name);
+        if (cachedClass == null) return null;
+
+        ByteBuffer buffer = mappedCache.duplicate();
+        buffer.limit(cachedClass.offset + cachedClass.length);
+        buffer.position(cachedClass.offset);
+        ByteBuffer classBuffer = buffer.slice();
+
+        if (!cachedClass.verified) {
+            if (checksum(name, classBuffer.duplicate()) != cachedClass.checksum) {
+                damagedEntries.add(name);
+                return null;
+            }
+            cachedClass.verified = true;
+        }
+        return classBuffer;
     }
 
-    private void readEntries(JarFile cacheFile) {
-        Enumeration<JarEntry> entries = cacheFile.entries();
+    private static int checksum(String name, ByteBuffer classBytes) {
+        CRC32 checksum = new CRC32();
         try {
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String className = entry.getName();
-                if (className.endsWith(".class")) {
-                    int classSize = (int) entry.getSize();
-                    InputStream inputStream = cacheFile.getInputStream(entry);
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream(classSize);
-                    int c;
-                    while ((c = inputStream.read()) != -1) {
-                        baos.write(c);
-                    }
-                    className = className.substring(0, className.indexOf(".class")).replace('/', '.');
-                    addClass(className, baos.toByteArray());
+            checksum.update(name.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        byte[] chunk = new byte[Math.min(classBytes.remaining(), 8192)];
+        while (classBytes.hasRemaining()) {
+            int length = Math.min(classBytes.remaining(), chunk.length);
+            classBytes.get(chunk, 0, length);
+            checksum.update(chunk, 0, length);
+        }
+        return (int) checksum.getValue();
+    }
+
+    private Index getIndex() {
+        Index index = this.index;
+        if (index == null) {
+            synchronized (indexLock) {
+                index = this.index;
+                if (index == null) {
+                    index = readIndex();
+                    this.index = index;
                 }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the mapped records by reading just their headers, stopping at the first that's incomplete.
+     */
+    private Index readIndex() {
+        Index index = new Index();
+        if (mappedCache == null) return index;
+
+        ByteBuffer buffer = mappedCache.duplicate();
+        int position = HEADER_LENGTH;
+        try {
+            while (buffer.limit() - position >= RECORD_HEADER_LENGTH) {
+                int nameLength = buffer.getInt(position);
+                if (nameLength <= 0 || nameLength > buffer.limit() - position - RECORD_HEADER_LENGTH) break;
+                byte[] nameBytes = new byte[nameLength];
+                buffer.position(position + 4);
+                buffer.get(nameBytes);
+                int classLength = buffer.getInt();
+                int checksum = buffer.getInt();
+                int offset = buffer.position();
+                if (classLength < 0 || classLength > buffer.limit() - offset) break;
+
+                String name = new String(nameBytes, "UTF-8");
+                if (name.indexOf('@') < 0) break;
+                index.add(name, new CachedClass(offset, classLength, checksum));
+                position = offset + classLength;
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        return index;
+    }
 
+    /**
+     * Reads the names of the records in the file as it is now, including any another JVM has appended since this one
+     * mapped it. Only record headers are read. Call with the lock file locked.
+     */
+    private static RecordsOnDisk readRecordsOnDisk(FileChannel channel, int expectedCacheVersion) throws IOException {
+        RecordsOnDisk recordsOnDisk = new RecordsOnDisk();
+        long length = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        if (length < HEADER_LENGTH || !readFully(channel, header, 0)
+                || header.getInt(0) != MAGIC || header.getInt(4) != expectedCacheVersion) {
+            return recordsOnDisk;
+        }
+
+        long position = HEADER_LENGTH;
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        while (length - position >= RECORD_HEADER_LENGTH) {
+            lengthBuffer.clear();
+            if (!readFully(channel, lengthBuffer, position)) break;
+            int nameLength = lengthBuffer.getInt(0);
+            if (nameLength <= 0 || nameLength > length - position - RECORD_HEADER_LENGTH) break;
+
+            ByteBuffer nameAndLengths = ByteBuffer.allocate(nameLength + 8);
+            if (!readFully(channel, nameAndLengths, position + 4)) break;
+            int classLength = nameAndLengths.getInt(nameLength);
+            long end = position + RECORD_HEADER_LENGTH + nameLength + classLength;
+            if (classLength < 0 || end > length) break;
+
+            String name = new String(nameAndLengths.array(), 0, nameLength, "UTF-8");
+            if (name.indexOf('@') < 0) break;
+            recordsOnDisk.names.add(name);
+            position = end;
+        }
+        recordsOnDisk.validLength = position;
+        return recordsOnDisk;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+            if (count < 0) return false;
+        }
+        return true;
+    }
+
+    private ByteBuffer mapCacheFile(File cacheFile) {
+        // a file from another version is replaced when this JVM saves, with the lock file locked
+        if (!hasExpectedHeader(cacheFile)) return null;
+
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(cacheFile, "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer();
+            } finally {
+                randomAccessFile.close();
             }
         } catch (IOException e) {
-            // no problem, we didn't want those bytes that much anyway
+            return null;
         }
     }
 
-    protected void saveAllClassesToCache(File file, Manifest manifest) {
+    private boolean hasExpectedHeader(File cacheFile) {
+        if (expectedCacheVersion == -1 || !cacheFile.exists()) return false;
+
+        try {
+            DataInputStream inputStream = new DataInputStream(new FileInputStream(cacheFile));
+            try {
+                return inputStream.readInt() == MAGIC && inputStream.readInt() == expectedCacheVersion;
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    protected void saveAllClassesToCache(File file) {
         synchronized (this) {
             startedWriting = true;
-    
-            if (cachedClasses.size() > 0) {
-                JarOutputStream jarOutputStream = null;
+
+            if (addedClasses.size() > 0) {
                 try {
-                    File cacheJarDir = file.getParentFile();
-                    if (!cacheJarDir.exists()) {
-                        cacheJarDir.mkdirs();
+                    File cacheDir = file.getAbsoluteFile().getParentFile();
+                    if (!cacheDir.exists()) {
+                        cacheDir.mkdirs();
                     }
-    
-                    jarOutputStream = new JarOutputStream(new FileOutputStream(file), manifest);
-                    for (Map.Entry<String, byte[]> entry : cachedClasses.entrySet()) {
-                        String key = entry.getKey();
-                        writeToFile(file, entry, key);
-                        jarOutputStream.putNextEntry(new JarEntry(key.replace('.', '/') + ".class"));
-                        jarOutputStream.write(entry.getValue());
-                        jarOutputStream.closeEntry();
+
+                    synchronized (SAVE_LOCK) {
+                        saveToCacheFile(file);
                     }
                 } catch (IOException e) {
                     throw new RuntimeException(e);
-                } finally {
-                    if (jarOutputStream != null) {
-                        try {
-                            jarOutputStream.close();
-                        } catch (IOException ignore) {
-                        }
-                    }
                 }
             }
             startedWriting = false;
         }
     }
 
-    private void writeToFile(File file, Map.Entry<String, byte[]> entry, String key) throws IOException {
-        File classFile = new File(new File(file.getParentFile(), "classes"), key.replaceAll("\\.", "/") + ".class");
-        classFile.getParentFile().mkdirs();
-        FileOutputStream fileOutputStream = new FileOutputStream(classFile);
-        fileOutputStream.write(entry.getValue());
-        fileOutputStream.close();
+    private void saveToCacheFile(File file) throws IOException {
+        // other JVMs, possibly with other Setups, may be saving to the same cache; nothing is read or written until
+        // they're done. The lock is on a file of its own, since the cache file itself may be replaced.
+        RandomAccessFile lockFile = new RandomAccessFile(new File(file.getPath() + ".lock"), "rw");
+        try {
+            FileLock lock = lockFile.getChannel().lock();
+            try {
+                RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                try {
+                    FileChannel channel = randomAccessFile.getChannel();
+                    RecordsOnDisk onDisk = readRecordsOnDisk(channel, expectedCacheVersion);
+                    byte[] records = takeRecordsToSave(onDisk.names);
+
+                    if (onDisk.validLength > 0 && onDisk.validLength == channel.size()) {
+                        randomAccessFile.seek(onDisk.validLength);
+                        randomAccessFile.write(records);
+                    } else {
+                        replaceCacheFile(file, channel, onDisk.validLength, records);
+                    }
+                } finally {
+                    randomAccessFile.close();
+                }
+            } finally {
+                lock.release();
+            }
+        } finally {
+            lockFile.close();
+        }
+    }
+
+    /**
+     * Writes the header, the valid records from the current file and the new records to a temporary file, then
+     * renames that over the cache file. Where the rename isn't allowed, e.g. on Windows while the file is mapped,
+     * the new records aren't saved.
+     */
+    private void replaceCacheFile(File file, FileChannel channel, long validLength, byte[] records) throws IOException {
+        File tempFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        FileOutputStream outputStream = new FileOutputStream(tempFile);
+        try {
+            DataOutputStream out = new DataOutputStream(outputStream);
+            if (validLength == 0) {
+                out.writeInt(MAGIC);
+                out.writeInt(expectedCacheVersion);
+            } else {
+                outputStream.getChannel().transferFrom(channel, 0, validLength);
+                outputStream.getChannel().position(validLength);
+            }
+            out.write(records);
+            out.flush();
+        } finally {
+            outputStream.close();
+        }
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * @return records for the classes added since the last save that aren't in the file yet, or whose record there
+     *     turned out to be damaged
+     */
+    private byte[] takeRecordsToSave(Set<String> namesOnDisk) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream outputStream = new DataOutputStream(records);
+        Iterator<Map.Entry<String, byte[]>> entries = addedClasses.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, byte[]> entry = entries.next();
+            if (!namesOnDisk.contains(entry.getKey()) || damagedEntries.contains(entry.getKey())) {
+                writeRecord(outputStream, entry.getKey(), entry.getValue());
+            }
+            // so that a later save (e.g. the shutdown hook after an explicit save) won't append it again
+            entries.remove();
+        }
+        outputStream.flush();
+        return records.toByteArray();
+    }
+
+    private static void writeRecord(DataOutputStream outputStream, String name, byte[] classBytes) throws IOException {
+        byte[] nameBytes = name.getBytes("UTF-8");
+        CRC32 checksum = new CRC32();
+        checksum.update(nameBytes);
+        checksum.update(classBytes);
+        outputStream.writeInt(nameBytes.length);
+        outputStream.write(nameBytes);
+        outputStream.writeInt(classBytes.length);
+        outputStream.writeInt((int) checksum.getValue());
+        outputStream.write(classBytes);
+    }
+
+    private static class Index {
+        private final Map<String, CachedClass> entries = new HashMap<String, CachedClass>();
+        private final Set<String> classNames = new HashSet<String>();
+
+        void add(String name, CachedClass cachedClass) {
+            // a later record for the same name replaces an earlier, damaged one
+            entries.put(name, cachedClass);
+            classNames.add(name.substring(0, name.lastIndexOf('@')));
+        }
+    }
+
+    private static class RecordsOnDisk {
+        private final Set<String> names = new HashSet<String>();
+        private long validLength;
+    }
+
+    private static class CachedClass {
+        private final int offset;
+        private final int length;
+        private final int checksum;
+        private volatile boolean verified;
+
+        CachedClass(int offset, int length, int checksum) {
+            this.offset = offset;
+            this.length = length;
+            this.checksum = checksum;
+        }
+    }
+
+    private static class SaveOnShutdown {
+        private final ClassCache classCache;
+        private final File cacheFile;
+
+        SaveOnShutdown(ClassCache classCache, File cacheFile) {
+            this.classCache = classCache;
+            this.cacheFile = cacheFile;
+        }
     }
 }
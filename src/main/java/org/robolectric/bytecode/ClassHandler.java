@@ -7,6 +7,13 @@ public interface ClassHandler {
 
     Object methodInvoked(Class clazz, String methodName, Object instance, String[] paramTypes, Object[] params) throws Throwable;
 
+    /**
+     * Returns the shadow of instance if it may be called directly in place of {@link #methodInvoked}, or null.
+     */
+    Object shadowForDirectCall(Class clazz, Object instance, Class<?> shadowClass);
+
+    boolean canCallShadowDirectly(Class clazz, Class<?> shadowClass);
+
     Object intercept(Class clazz, String methodName, Object instance, Object[] paramTypes, Object[] params) throws Throwable;
 
     // todo: definitely shouldn't live here
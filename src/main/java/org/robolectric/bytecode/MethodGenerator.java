@@ -4,6 +4,7 @@ import javassist.*;
 import javassist.expr.ConstructorCall;
 import javassist.expr.ExprEditor;
 import javassist.expr.MethodCall;
+import org.robolectric.internal.Implements;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -15,6 +16,7 @@ public class MethodGenerator {
 
     private final CtClass ctClass;
     private final Set<Setup.MethodRef> methodsToIntercept;
+    private final String directShadowClassName;
 
     private CtClass objectCtClass;
     private Set<String> instrumentedMethods = new HashSet<String>();
@@ -22,6 +24,7 @@ public class MethodGenerator {
     public MethodGenerator(CtClass ctClass, Setup setup) {
         this.ctClass = ctClass;
         this.methodsToIntercept = setup.methodsToIntercept();
+        this.directShadowClassName = setup.getShadowClassesForDirectCalls().get(ctClass.getName());
 
         try {
             objectCtClass = ctClass.getClassPool().get(Object.class.getName());
@@ -292,6 +295,7 @@ public class MethodGenerator {
             METHOD BODY TEMPLATE:
 
             if (!RobolectricInternals.shouldCallDirectly(isStatic ? class : this)) {
+                <optional direct call to the shadow method known at instrumentation time>
                 Object x = RobolectricInternals.methodInvoked(
                     <className>.class, "<methodName>", isStatic ? null : this,
                     <paramTypes>,
@@ -311,6 +315,10 @@ public class MethodGenerator {
         generateCallToShouldCallDirectory(isStatic, className, buf);
         buf.append(") {\n");
 
+        if (!shouldGenerateCallToSuper) {
+            generateDirectCallToShadow(ctMethod, isStatic, className, returnsVoid, buf);
+        }
+
         if (!returnsVoid) {
             buf.append("Object x = ");
         }
@@ -346,6 +354,69 @@ public class MethodGenerator {
         buf.append(")");
     }
 
+    /**
+     * Calls the shadow method itself rather than going through {@link ShadowWrangler#methodInvoked}. Exceptions thrown
+     * by the shadow reach the caller as they are: there are no reflection frames for the wrangler to strip, and an
+     * Error isn't wrapped in a RuntimeException as it is on the reflective path. The wrangler's call depth only
+     * counts calls through to real methods, which never happen here.
+     */
+    public void generateDirectCallToShadow(CtMethod ctMethod, boolean isStatic, String className, boolean returnsVoid, StringBuilder buf) throws NotFoundException {
+        CtMethod shadowMethod = findDirectShadowMethod(ctMethod, isStatic);
+        if (shadowMethod == null) {
+            return;
+        }
+
+        String call = shadowMethod.getName() + "(" + makeParameterList(ctMethod.getParameterTypes().length) + ")";
+        if (isStatic) {
+            buf.append("if (");
+            buf.append(RobolectricInternals.class.getName());
+            buf.append(".canCallShadowDirectly(");
+            buf.append(className);
+            buf.append(".class, ");
+            buf.append(directShadowClassName);
+            buf.append(".class)) ");
+            call = directShadowClassName + "." + call;
+        } else {
+            buf.append("Object directShadow = ");
+            buf.append(RobolectricInternals.class.getName());
+            buf.append(".shadowForDirectCall(");
+            buf.append(className);
+            buf.append(".class, this, ");
+            buf.append(directShadowClassName);
+            buf.append(".class);\n");
+            buf.append("if (directShadow != null) ");
+            call = "((" + directShadowClassName + ") directShadow)." + call;
+        }
+
+        if (returnsVoid) {
+            buf.append("{\n").append(call).append(";\nreturn;\n}\n");
+        } else {
+            buf.append("return ").append(call).append(";\n");
+        }
+    }
+
+    private CtMethod findDirectShadowMethod(CtMethod ctMethod, boolean isStatic) {
+        if (directShadowClassName == null || !ctMethod.getDeclaringClass().equals(ctClass)) {
+            return null;
+        }
+
+        try {
+            CtClass shadowCtClass = ctClass.getClassPool().get(directShadowClassName);
+            CtMethod shadowMethod = shadowCtClass.getMethod(ctMethod.getName(), ctMethod.getSignature());
+            CtClass declaringShadowClass = shadowMethod.getDeclaringClass();
+            int modifiers = shadowMethod.getModifiers();
+            if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers) != isStatic
+                    || !Modifier.isPublic(shadowCtClass.getModifiers())
+                    || !Modifier.isPublic(declaringShadowClass.getModifiers())
+                    || !declaringShadowClass.hasAnnotation(Implements.class)) {
+                return null;
+            }
+            return shadowMethod;
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
     public void generateCallToMethodInvoked(CtMethod ctMethod, boolean isStatic, String className, StringBuilder buf) throws NotFoundException {
         buf.append(RobolectricInternals.class.getName());
         buf.append(".methodInvoked(\n  ");
@@ -402,6 +473,53 @@ public class MethodGenerator {
         }
     }
 
+    /**
+     * Routes calls to {@link Setup#methodsToIntercept()} from the class's own code (its constructors, methods and
+     * static initializer) to {@link RobolectricInternals#intercept}. Call before the constructors and methods are
+     * fixed, so that only the original code is rewritten.
+     */
+    public void interceptCalls() throws CannotCompileException {
+        if (methodsToIntercept.isEmpty()) return;
+
+        ExprEditor interceptor = new ExprEditor() {
+            @Override
+            public void edit(MethodCall m) throws CannotCompileException {
+                String methodName = m.getMethodName();
+                Setup.MethodRef methodRef = new Setup.MethodRef(m.getClassName(), methodName);
+                if (methodsToIntercept.contains(methodRef)) {
+                    try {
+                        CtMethod method = m.getMethod();
+                        StringBuilder buf = new StringBuilder();
+                        buf.append("$_ = ($r) ");
+                        buf.append(RobolectricInternals.class.getName());
+                        buf.append(".intercept($class, \"");
+                        buf.append(methodName);
+                        buf.append("\", (Object) $0, $args, ");
+                        appendParamArray(buf, method);
+                        buf.append(");");
+                        m.replace(buf.toString(), this);
+                    } catch (NotFoundException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+        };
+
+        for (CtConstructor ctConstructor : ctClass.getDeclaredConstructors()) {
+            ctConstructor.instrument(interceptor);
+        }
+        for (CtMethod ctMethod : ctClass.getDeclaredMethods()) {
+            int modifiers = ctMethod.getModifiers();
+            if (!Modifier.isAbstract(modifiers) && !Modifier.isNative(modifiers)) {
+                ctMethod.instrument(interceptor);
+            }
+        }
+        CtConstructor classInitializer = ctClass.getClassInitializer();
+        if (classInitializer != null) {
+            classInitializer.instrument(interceptor);
+        }
+    }
+
     public void deferClassInitialization() throws CannotCompileException {
         CtConstructor classInitializer = ctClass.getClassInitializer();
         CtMethod staticInitializerMethod;
@@ -412,32 +530,6 @@ public class MethodGenerator {
         }
         staticInitializerMethod.setModifiers(Modifier.STATIC | Modifier.PUBLIC);
 
-        if (!methodsToIntercept.isEmpty()) {
-            staticInitializerMethod.instrument(new ExprEditor() {
-                @Override
-                public void edit(MethodCall m) throws CannotCompileException {
-                    String methodName = m.getMethodName();
-                    Setup.MethodRef methodRef = new Setup.MethodRef(m.getClassName(), methodName);
-                    if (methodsToIntercept.contains(methodRef)) {
-                        try {
-                            CtMethod method = m.getMethod();
-                            StringBuilder buf = new StringBuilder();
-                            buf.append("$_ = ");
-                            buf.append(RobolectricInternals.class.getName());
-                            buf.append(".intercept($class, \"");
-                            buf.append(methodName);
-                            buf.append("\", (Object) $0, $args, ");
-                            appendParamArray(buf, method);
-                            buf.append(");");
-                            m.replace(buf.toString(), this);
-                        } catch (NotFoundException e) {
-                            throw new RuntimeException(e);
-                        }
-                    }
-                }
-            });
-        }
-
         ctClass.addMethod(staticInitializerMethod);
 
         ctClass.makeClassInitializer().setBody("{\n" +
@@ -1,6 +1,5 @@
 package org.robolectric.bytecode;
 
-import javassist.CannotCompileException;
 import javassist.ClassPool;
 import javassist.LoaderClassPath;
 import javassist.NotFoundException;
@@ -8,38 +7,51 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Method;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.security.ProtectionDomain;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the classes {@link Setup#shouldAcquire(String) it should} itself, instrumenting them as it goes, and leaves
+ * everything else to its parent. It's parallel-capable: loading is serialized per class name rather than on the
+ * loader, so test classes can be loaded from several threads at once.
+ */
+public class RobolectricClassLoader extends ClassLoader {
+    private static final String[] ALWAYS_DELEGATED_PACKAGES = {"java.", "javax.", "sun.", "com.sun.", "org.w3c.", "org.xml."};
+
+    static {
+        tryToRegisterAsParallelCapable();
+    }
 
-public class RobolectricClassLoader extends javassist.Loader {
-    private final Map<String, Class> classes = new HashMap<String, Class>();
+    private final ConcurrentHashMap<String, Object> classLoadingLocks = new ConcurrentHashMap<String, Object>();
+    private final Set<String> delegatedClassNames = new HashSet<String>();
+    private final Map<String, Class> classes = new ConcurrentHashMap<String, Class>();
+    private final Set<String> classesNotFound = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     private final ClassCache classCache;
+    private final AndroidTranslator androidTranslator;
     private final Setup setup;
+    private final ClassPool classPool;
 
     public RobolectricClassLoader(ClassLoader classLoader, ClassCache classCache, AndroidTranslator androidTranslator, Setup setup) {
-        super(classLoader, null);
+        super(classLoader);
         this.setup = setup;
 
         List<Class<?>> classesToDelegate = setup.getClassesToDelegateFromRcl();
         for (Class<?> aClass : classesToDelegate) {
-            delegateLoadingOf(aClass.getName());
+            delegatedClassNames.add(aClass.getName());
         }
 
 
         this.classCache = classCache;
-        try {
-            ClassPool classPool = new ClassPool();
-            classPool.appendClassPath(new LoaderClassPath(classLoader));
-
-            if (classLoader != RobolectricClassLoader.class.getClassLoader()) {
-                classPool.appendClassPath(new LoaderClassPath(RobolectricClassLoader.class.getClassLoader()));
-            }
+        this.androidTranslator = androidTranslator;
+        this.classPool = new ClassPool();
+        classPool.appendClassPath(new LoaderClassPath(classLoader));
 
-            addTranslator(classPool, androidTranslator);
-        } catch (NotFoundException e) {
-            throw new RuntimeException(e);
-        } catch (CannotCompileException e) {
-            throw new RuntimeException(e);
+        if (classLoader != RobolectricClassLoader.class.getClassLoader()) {
+            classPool.appendClassPath(new LoaderClassPath(RobolectricClassLoader.class.getClassLoader()));
         }
     }
 
@@ -67,30 +79,125 @@ public class RobolectricClassLoader extends javassist.Loader {
         }
     }
 
+    /**
+     * A name's lock is dropped once its class is loaded: anyone still waiting on it, or taking a new one, then finds
+     * the class already loaded. Locks for classes that failed to load are kept, so retries stay serialized.
+     */
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        Object lock = getLockFor(name);
+        synchronized (lock) {
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null && isDelegated(name)) clazz = getParent().loadClass(name);
+            if (clazz == null) clazz = findClass(name);
+            if (clazz == null) clazz = getParent().loadClass(name);
+            if (resolve) resolveClass(clazz);
+            classLoadingLocks.remove(name, lock);
+            return clazz;
+        }
+    }
+
+    private Object getLockFor(String className) {
+        Object lock = new Object();
+        Object existingLock = classLoadingLocks.putIfAbsent(className, lock);
+        return existingLock == null ? lock : existingLock;
+    }
+
+    private boolean isDelegated(String className) {
+        if (delegatedClassNames.contains(className)) return true;
+        for (String packagePrefix : ALWAYS_DELEGATED_PACKAGES) {
+            if (className.startsWith(packagePrefix)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@link #loadClass(String, boolean)} already serializes loading of each class name, so this only takes a lock
+     * to use the ClassPool, which isn't thread-safe. Classes are defined outside that lock, since defining one may
+     * load its superclass on this thread while another thread translating that superclass holds its name lock and
+     * waits for ours.
+     *
+     * @return null if the class isn't found here, so that it's left to the parent
+     */
     @Override
-    synchronized protected Class findClass(String name) throws ClassNotFoundException {
+    protected Class findClass(String name) throws ClassNotFoundException {
         Class<?> clazz = classes.get(name);
+        if (clazz != null) return clazz;
+        if (classesNotFound.contains(name)) throw new ClassNotFoundException(name);
+
+        try {
+            ByteBuffer cachedClassBytes = null;
+            if (classCache.mayContain(name)) {
+                String cacheKey;
+                synchronized (classPool) {
+                    cacheKey = androidTranslator.getCacheKey(classPool, name);
+                }
+                if (cacheKey != null) {
+                    cachedClassBytes = classCache.getClassBufferFor(name, cacheKey);
+                }
+            }
 
-        if (clazz == null) {
-            if (classes.containsKey(name)) throw new ClassNotFoundException(name);
+            if (cachedClassBytes != null) {
+                definePackageFor(name);
+                clazz = defineClass(name, cachedClassBytes, (ProtectionDomain) null);
+            } else {
+                byte[] classBytes = translate(name);
+                if (classBytes == null) return null;
+                definePackageFor(name);
+                clazz = defineClass(name, classBytes, 0, classBytes.length);
+            }
 
-            byte[] classBytes = classCache.getClassBytesFor(name);
+            classes.put(name, clazz);
+            return clazz;
+        } catch (ClassNotFoundException e) {
+            classesNotFound.add(name);
+            throw e;
+        }
+    }
 
+    private byte[] translate(String name) throws ClassNotFoundException {
+        synchronized (classPool) {
             try {
-                if (classBytes != null) {
-                    clazz = defineClass(name, classBytes, 0, classBytes.length);
-                } else {
-                    clazz = super.findClass(name);
+                androidTranslator.onLoad(classPool, name);
+                try {
+                    return classPool.get(name).toBytecode();
+                } catch (NotFoundException e) {
+                    return null;
                 }
+            } catch (Exception e) {
+                throw new ClassNotFoundException("caught an exception while obtaining a class file for " + name, e);
+            }
+        }
+    }
+
+    private void definePackageFor(String className) {
+        int lastDot = className.lastIndexOf('.');
+        if (lastDot == -1) return;
 
-                classes.put(name, clazz);
-            } catch (ClassNotFoundException e) {
-                classes.put(name, null);
-                throw e;
+        String packageName = className.substring(0, lastDot);
+        if (getPackage(packageName) == null) {
+            try {
+                definePackage(packageName, null, null, null, null, null, null, null);
+            } catch (IllegalArgumentException e) {
+                // another thread defined it first
             }
         }
+    }
 
-        return clazz;
+    /**
+     * ClassLoader.registerAsParallelCapable() only exists from Java 7, so it's called reflectively. Where it's missing
+     * or fails the VM keeps serializing class loading on this loader, which is still correct, just slower, so that's
+     * left unreported.
+     */
+    private static void tryToRegisterAsParallelCapable() {
+        try {
+            Method register = ClassLoader.class.getDeclaredMethod("registerAsParallelCapable");
+            register.invoke(null);
+        } catch (NoSuchMethodException e) {
+            // before Java 7
+        } catch (Exception e) {
+            // loaded one at a time, as before Java 7
+        }
     }
 
     @Nullable
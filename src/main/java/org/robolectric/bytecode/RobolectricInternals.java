@@ -1,5 +1,7 @@
 package org.robolectric.bytecode;
 
+import org.robolectric.Robolectric;
+
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -115,8 +117,24 @@ public class RobolectricInternals {
         }
     }
 
+    @SuppressWarnings({"UnusedDeclaration"})
+    public static Object shadowForDirectCall(Class clazz, Object instance, Class<?> shadowClass) {
+        return classHandler.shadowForDirectCall(clazz, instance, shadowClass);
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public static boolean canCallShadowDirectly(Class clazz, Class<?> shadowClass) {
+        return classHandler.canCallShadowDirectly(clazz, shadowClass);
+    }
+
     @SuppressWarnings({"UnusedDeclaration"})
     public static Object intercept(Class clazz, String methodName, Object instance, Object[] paramTypes, Object[] params) throws Throwable {
+        // answered here rather than by the class handler, which is shared between tests and can't see their clocks
+        if (clazz == System.class) {
+            if (methodName.equals("currentTimeMillis")) return Robolectric.getVirtualClock().currentTimeMillis();
+            if (methodName.equals("nanoTime")) return Robolectric.getVirtualClock().nanoTime();
+        }
+
         try {
             return classHandler.intercept(clazz, methodName, instance, paramTypes, params);
         } catch(java.lang.LinkageError e) {
@@ -8,6 +8,7 @@ import org.robolectric.annotation.DisableStrictI18n;
 import org.robolectric.annotation.EnableStrictI18n;
 import org.robolectric.annotation.Values;
 import org.robolectric.internal.DoNotInstrument;
+import org.robolectric.internal.Implements;
 import org.robolectric.internal.Instrument;
 import org.robolectric.internal.RealObject;
 import org.robolectric.internal.RobolectricTestRunnerInterface;
@@ -16,8 +17,10 @@ import org.robolectric.util.DatabaseConfig;
 import org.robolectric.util.I18nException;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static java.util.Arrays.asList;
@@ -101,12 +104,55 @@ public class Setup {
         );
     }
 
+    /**
+     * Calls to these methods from instrumented classes go to {@link RobolectricInternals#intercept} instead. Calls to
+     * {@code System.currentTimeMillis()} and {@code System.nanoTime()}, if added here, are answered from
+     * {@link org.robolectric.Robolectric#getVirtualClock()}; for app classes to see virtual time that way, they need to
+     * be instrumented too (see {@link #shouldInstrument(ClassInfo)}).
+     */
     public Set<MethodRef> methodsToIntercept() {
         return Collections.unmodifiableSet(new HashSet<MethodRef>(asList(
                 new MethodRef(System.class, "loadLibrary")
         )));
     }
 
+    /**
+     * Shadow classes known at instrumentation time, keyed by the name of the class they shadow. Instrumented methods
+     * with a matching public shadow method call it directly, falling back to
+     * {@link ClassHandler#methodInvoked} only when a different shadow has been bound at runtime.
+     *
+     * Empty by default. This is called for every instrumented class, so overrides should compute the map once, e.g.
+     * from {@link #directCallBindingsFor(java.util.List)} and {@link org.robolectric.Robolectric#getDefaultShadowClasses()}.
+     */
+    public Map<String, String> getShadowClassesForDirectCalls() {
+        return Collections.emptyMap();
+    }
+
+    public static Map<String, String> directCallBindingsFor(List<Class<?>> shadowClasses) {
+        Map<String, String> bindings = new HashMap<String, String>();
+        for (Class<?> shadowClass : shadowClasses) {
+            Implements realClass = shadowClass.getAnnotation(Implements.class);
+            if (realClass == null) {
+                throw new IllegalArgumentException(shadowClass + " is not annotated with @Implements");
+            }
+            try {
+                bindings.put(realClass.value().getName(), shadowClass.getName());
+            } catch (TypeNotPresentException ignored) {
+                // e.g. the maps shadows when the Google APIs jar isn't around; they'll go through the ClassHandler
+            }
+        }
+        return Collections.unmodifiableMap(bindings);
+    }
+
+    /**
+     * Instrumented classes are cached per fingerprint of the Setup's class hierarchy bytecode, its direct-call
+     * bindings and intercepted methods. Override this to add any other configuration that changes which classes
+     * get instrumented or how, so that changing it re-instruments rather than reusing stale cached classes.
+     */
+    public String getInstrumentationFingerprint() {
+        return "";
+    }
+
     public static class FakeSubclass {}
 
     /**
@@ -156,5 +202,10 @@ public class Setup {
             result = 31 * result + methodName.hashCode();
             return result;
         }
+
+        @Override
+        public String toString() {
+            return className + "." + methodName;
+        }
     }
 }
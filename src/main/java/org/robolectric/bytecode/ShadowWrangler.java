@@ -7,6 +7,7 @@ import org.robolectric.util.Join;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Arrays.asList;
 
@@ -20,7 +21,12 @@ public class ShadowWrangler implements ClassHandler {
     private boolean strictI18n = false;
     
     private final Map<Class, MetaShadow> metaShadowMap = new HashMap<Class, MetaShadow>();
-    private Map<String, String> shadowClassMap = new HashMap<String, String>();
+    private final Map<InvocationKey, InvocationProfile> invocationProfiles = new HashMap<InvocationKey, InvocationProfile>();
+    private final Map<Method, Boolean> i18nSafeMethods = new HashMap<Method, Boolean>();
+    // concurrent so the direct-call checks can read it without taking the invocationProfiles lock
+    private final Map<String, String> shadowClassMap = new ConcurrentHashMap<String, String>();
+    private Map<String, String> profiledShadowClassMap = new HashMap<String, String>();
+    private boolean shadowClassMapChanged = false; // guarded by invocationProfiles, as are changes to shadowClassMap
     private boolean logMissingShadowMethods = false;
     private static int callDepth = 0;
 
@@ -35,7 +41,10 @@ public class ShadowWrangler implements ClassHandler {
 
     @Override
     public void reset() {
-        shadowClassMap.clear();
+        synchronized (invocationProfiles) {
+            shadowClassMap.clear();
+            shadowClassMapChanged = true;
+        }
     }
 
     @Override
@@ -72,7 +81,10 @@ public class ShadowWrangler implements ClassHandler {
     }
 
     public void bindShadowClass(String realClassName, String shadowClassName) {
-        shadowClassMap.put(realClassName, shadowClassName);
+        synchronized (invocationProfiles) {
+            String previousShadowClassName = shadowClassMap.put(realClassName, shadowClassName);
+            if (!shadowClassName.equals(previousShadowClassName)) shadowClassMapChanged = true;
+        }
         if (debug) System.out.println("shadow " + realClassName + " with " + shadowClassName);
     }
 
@@ -84,7 +96,7 @@ public class ShadowWrangler implements ClassHandler {
 
     @Override
     public Object methodInvoked(Class clazz, String methodName, Object instance, String[] paramTypes, Object[] params) throws Exception {
-        InvocationPlan invocationPlan = new InvocationPlan(clazz, methodName, instance, paramTypes);
+        InvocationPlan invocationPlan = new InvocationPlan(getInvocationProfile(clazz, methodName, paramTypes), instance);
         try {
             boolean hasShadowImplementation = invocationPlan.prepare();
             if (debug) {
@@ -129,6 +141,45 @@ public class ShadowWrangler implements ClassHandler {
         }
     }
 
+    /**
+     * Returns the memoized dispatch information for a method, resolving it on first use. Profiles are
+     * discarded only when the set of bound shadow classes actually differs from the one they were resolved
+     * against, so re-binding the same shadows before each test keeps the table warm.
+     */
+    private InvocationProfile getInvocationProfile(Class clazz, String methodName, String[] paramTypes) {
+        InvocationKey key = new InvocationKey(clazz, methodName, paramTypes);
+        synchronized (invocationProfiles) {
+            if (shadowClassMapChanged) {
+                if (!shadowClassMap.equals(profiledShadowClassMap)) {
+                    invocationProfiles.clear();
+                    i18nSafeMethods.clear();
+                    profiledShadowClassMap = new HashMap<String, String>(shadowClassMap);
+                }
+                shadowClassMapChanged = false;
+            }
+
+            InvocationProfile invocationProfile = invocationProfiles.get(key);
+            if (invocationProfile == null) {
+                invocationProfile = new InvocationProfile(clazz, methodName, paramTypes);
+                invocationProfiles.put(key, invocationProfile);
+            }
+            return invocationProfile;
+        }
+    }
+
+    @Override
+    public Object shadowForDirectCall(Class clazz, Object instance, Class<?> shadowClass) {
+        if (!canCallShadowDirectly(clazz, shadowClass)) return null;
+        Object shadow = shadowOf(instance);
+        return shadowClass.isInstance(shadow) ? shadow : null;
+    }
+
+    @Override
+    public boolean canCallShadowDirectly(Class clazz, Class<?> shadowClass) {
+        // strict i18n checks and debug tracing only happen on the reflective path
+        return !strictI18n && !debug && shadowClass.getName().equals(shadowClassMap.get(clazz.getName()));
+    }
+
     @Override
     public Object intercept(Class clazz, String methodName, Object instance, Object[] paramTypes, Object[] params) throws Throwable {
         if (debug) System.out.println("DEBUG: intercepted call to " + clazz.getName() + "." + methodName + "(" + Join.join(", ", params) + ")");
@@ -314,95 +365,127 @@ public class ShadowWrangler implements ClassHandler {
         logMissingShadowMethods = false;
     }
 
-    private class InvocationPlan {
-        private Class clazz;
-        private ClassLoader classLoader;
-        private String methodName;
-        private Object instance;
-        private String[] paramTypes;
-        private Class<?>[] paramClasses;
-        private Class<?> declaredShadowClass;
-        private Method method;
-        private Object shadow;
+    private static class InvocationKey {
+        private final Class clazz;
+        private final String methodName;
+        private final String[] paramTypes;
+        private final int hashCode;
 
-        public InvocationPlan(Class clazz, String methodName, Object instance, String... paramTypes) {
+        InvocationKey(Class clazz, String methodName, String[] paramTypes) {
             this.clazz = clazz;
-            this.classLoader = clazz.getClassLoader();
             this.methodName = methodName;
-            this.instance = instance;
             this.paramTypes = paramTypes;
-        }
 
-        public Class<?> getDeclaredShadowClass() {
-            return declaredShadowClass;
+            int result = clazz.hashCode();
+            result = 31 * result + methodName.hashCode();
+            result = 31 * result + Arrays.hashCode(paramTypes);
+            this.hashCode = result;
         }
 
-        public Method getMethod() {
-            return method;
-        }
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
 
-        public Object getShadow() {
-            return shadow;
+            InvocationKey that = (InvocationKey) o;
+
+            if (hashCode != that.hashCode) return false;
+            if (clazz != that.clazz) return false;
+            if (!methodName.equals(that.methodName)) return false;
+            if (!Arrays.equals(paramTypes, that.paramTypes)) return false;
+
+            return true;
         }
-        
-        public boolean isI18nSafe() {
-        	// method is loaded by another class loader. So do everything reflectively.
-        	Annotation[] annos = method.getAnnotations();
-        	for (int i = 0; i < annos.length; i++) {
-        		String name = annos[i].annotationType().getName();
-        		if (name.equals("org.robolectric.internal.Implementation")) {
-					try {
-						Method m = (annos[i]).getClass().getMethod("i18nSafe");
-	        			return (Boolean) m.invoke(annos[i]);
-					} catch (Exception e) {
-						return true;	// should probably throw some other exception
-					}
-        		}
-        	}
-        	
-        	return true;	
+
+        @Override
+        public int hashCode() {
+            return hashCode;
         }
+    }
 
-        public boolean prepare() {
-            paramClasses = getParamClasses();
+    /**
+     * Everything about an intercepted method that doesn't depend on the receiving instance: parameter classes,
+     * the shadow class declaring it, and the shadow method resolved for each concrete shadow class seen so far.
+     */
+    private class InvocationProfile {
+        private final Class clazz;
+        private final ClassLoader classLoader;
+        private final String methodName;
+        private final String shadowMethodName;
+        private final Class<?>[] paramClasses;
+        private final Class<?> declaredShadowClass;
+        private final Map<Class<?>, Method> shadowMethods = new HashMap<Class<?>, Method>();
+        private Method staticShadowMethod;
+        private boolean staticShadowMethodResolved;
+        private Method originalMethod;
+        private Boolean delegateToReal;
+
+        public InvocationProfile(Class clazz, String methodName, String[] paramTypes) {
+            this.clazz = clazz;
+            this.classLoader = clazz.getClassLoader();
+            this.methodName = methodName;
+            this.shadowMethodName = methodName.equals("<init>") ? "__constructor__" : methodName;
+            this.paramClasses = getParamClasses(paramTypes);
 
             Class<?> originalClass = loadClass(clazz.getName(), classLoader);
+            this.declaredShadowClass = findDeclaredShadowClassForMethod(originalClass);
+        }
 
-            declaredShadowClass = findDeclaredShadowClassForMethod(originalClass, methodName, paramClasses);
-            if (declaredShadowClass == null) {
-                return false;
+        public Method getShadowMethod(Class<?> shadowClass) {
+            synchronized (shadowMethods) {
+                if (shadowMethods.containsKey(shadowClass)) {
+                    return shadowMethods.get(shadowClass);
+                }
+                Method method = resolveShadowMethod(shadowClass, false);
+                shadowMethods.put(shadowClass, method);
+                return method;
             }
+        }
 
-            if (methodName.equals("<init>")) {
-                methodName = "__constructor__";
+        public synchronized Method getStaticShadowMethod() {
+            if (!staticShadowMethodResolved) {
+                staticShadowMethod = resolveShadowMethod(findShadowClass(clazz), true);
+                staticShadowMethodResolved = true;
             }
+            return staticShadowMethod;
+        }
 
-            if (instance != null) {
-                shadow = shadowFor(instance);
-                method = getMethod(shadow.getClass(), methodName, paramClasses);
-            } else {
-                shadow = null;
-                method = getMethod(findShadowClass(clazz), methodName, paramClasses);
+        public synchronized Method getOriginalMethod() throws NoSuchMethodException {
+            if (originalMethod == null) {
+                Method method = clazz.getDeclaredMethod(shadowMethodName, paramClasses);
+                method.setAccessible(true);
+                originalMethod = method;
             }
+            return originalMethod;
+        }
 
-            if (method == null) {
+        public synchronized boolean shouldDelegateToRealMethodWhenMethodShadowIsMissing() {
+            if (delegateToReal == null) {
+                delegateToReal = setup.invokeApiMethodBodiesWhenShadowMethodIsMissing(clazz, shadowMethodName, paramClasses);
                 if (debug) {
-                    System.out.println("No method found for " + clazz + "." + methodName + "(" + asList(paramClasses) + ") on " + declaredShadowClass.getName());
+                    System.out.println("DEBUG: Shall we invoke real method on " + clazz + "." + shadowMethodName + "("
+                            + Join.join(", ", paramClasses) + ")? " + (delegateToReal ? "yup!" : "nope!"));
                 }
-                return false;
             }
+            return delegateToReal;
+        }
 
-            if ((instance == null) != Modifier.isStatic(method.getModifiers())) {
-                throw new RuntimeException("method staticness of " + clazz.getName() + "." + methodName + " and " + declaredShadowClass.getName() + "." + method.getName() + " don't match");
+        private Method resolveShadowMethod(Class<?> shadowClass, boolean isStatic) {
+            Method method = getMethod(shadowClass, shadowMethodName, paramClasses);
+            if (method == null) {
+                return null;
             }
 
-            method.setAccessible(true);
+            if (isStatic != Modifier.isStatic(method.getModifiers())) {
+                throw new RuntimeException("method staticness of " + clazz.getName() + "." + shadowMethodName + " and " + declaredShadowClass.getName() + "." + method.getName() + " don't match");
+            }
 
-            return true;
+            method.setAccessible(true);
+            return method;
         }
 
-        private Class<?> findDeclaredShadowClassForMethod(Class<?> originalClass, String methodName, Class<?>[] paramClasses) {
-            Class<?> declaringClass = findDeclaringClassForMethod(methodName, paramClasses, originalClass);
+        private Class<?> findDeclaredShadowClassForMethod(Class<?> originalClass) {
+            Class<?> declaringClass = findDeclaringClassForMethod(originalClass);
             return findShadowClass(declaringClass);
         }
 
@@ -414,9 +497,9 @@ public class ShadowWrangler implements ClassHandler {
             return loadClass(declaredShadowClassName, classLoader);
         }
 
-        private Class<?> findDeclaringClassForMethod(String methodName, Class<?>[] paramClasses, Class<?> originalClass) {
+        private Class<?> findDeclaringClassForMethod(Class<?> originalClass) {
             Class<?> declaringClass;
-            if (this.methodName.equals("<init>")) {
+            if (methodName.equals("<init>")) {
                 declaringClass = originalClass;
             } else {
                 Method originalMethod;
@@ -430,7 +513,7 @@ public class ShadowWrangler implements ClassHandler {
             return declaringClass;
         }
 
-        private Class<?>[] getParamClasses() {
+        private Class<?>[] getParamClasses(String[] paramTypes) {
             Class<?>[] paramClasses = new Class<?>[paramTypes.length];
 
             for (int i = 0; i < paramTypes.length; i++) {
@@ -469,18 +552,93 @@ public class ShadowWrangler implements ClassHandler {
             }
             return false;
         }
+    }
+
+    private class InvocationPlan {
+        private final InvocationProfile profile;
+        private final Object instance;
+        private Method method;
+        private Object shadow;
+
+        public InvocationPlan(InvocationProfile profile, Object instance) {
+            this.profile = profile;
+            this.instance = instance;
+        }
+
+        public Class<?> getDeclaredShadowClass() {
+            return profile.declaredShadowClass;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public Object getShadow() {
+            return shadow;
+        }
+
+        public boolean isI18nSafe() {
+            synchronized (invocationProfiles) {
+                Boolean i18nSafe = i18nSafeMethods.get(method);
+                if (i18nSafe == null) {
+                    i18nSafe = isI18nSafe(method);
+                    i18nSafeMethods.put(method, i18nSafe);
+                }
+                return i18nSafe;
+            }
+        }
+
+        private boolean isI18nSafe(Method method) {
+        	// method is loaded by another class loader. So do everything reflectively.
+        	Annotation[] annos = method.getAnnotations();
+        	for (int i = 0; i < annos.length; i++) {
+        		String name = annos[i].annotationType().getName();
+        		if (name.equals("org.robolectric.internal.Implementation")) {
+					try {
+						Method m = (annos[i]).getClass().getMethod("i18nSafe");
+	        			return (Boolean) m.invoke(annos[i]);
+					} catch (Exception e) {
+						return true;	// should probably throw some other exception
+					}
+        		}
+        	}
+
+        	return true;
+        }
+
+        public boolean prepare() {
+            if (profile.declaredShadowClass == null) {
+                return false;
+            }
+
+            if (instance != null) {
+                shadow = shadowFor(instance);
+                method = profile.getShadowMethod(shadow.getClass());
+            } else {
+                shadow = null;
+                method = profile.getStaticShadowMethod();
+            }
+
+            if (method == null) {
+                if (debug) {
+                    System.out.println("No method found for " + profile.clazz + "." + profile.shadowMethodName + "(" + asList(profile.paramClasses) + ") on " + profile.declaredShadowClass.getName());
+                }
+                return false;
+            }
+
+            return true;
+        }
 
         @Override
         public String toString() {
-            return "delegating to " + declaredShadowClass.getName() + "." + method.getName()
+            return "delegating to " + profile.declaredShadowClass.getName() + "." + method.getName()
                     + "(" + Arrays.toString(method.getParameterTypes()) + ")";
         }
 
         public Object callOriginal(Object[] params) throws InvocationTargetException, IllegalAccessException {
             try {
-                Method method = clazz.getDeclaredMethod(methodName, paramClasses);
-                method.setAccessible(true);
-                RobolectricInternals.directlyOn(instance == null ? clazz : instance);
+                Method method = profile.getOriginalMethod();
+                RobolectricInternals.directlyOn(instance == null ? profile.clazz : instance);
                 return method.invoke(instance, params);
             } catch (NoSuchMethodException e) {
                 throw new RuntimeException(e);
@@ -488,12 +646,7 @@ public class ShadowWrangler implements ClassHandler {
         }
 
         public boolean shouldDelegateToRealMethodWhenMethodShadowIsMissing() {
-            boolean delegateToReal = setup.invokeApiMethodBodiesWhenShadowMethodIsMissing(clazz, methodName, paramClasses);
-            if (debug) {
-                System.out.println("DEBUG: Shall we invoke real method on " + clazz + "." + methodName + "("
-                          + Join.join(", ", paramClasses) + ")? " + (delegateToReal ? "yup!" : "nope!"));
-            }
-            return delegateToReal;
+            return profile.shouldDelegateToRealMethodWhenMethodShadowIsMissing();
         }
     }
 
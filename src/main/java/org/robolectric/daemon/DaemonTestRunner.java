@@ -0,0 +1,264 @@
+package org.robolectric.daemon;
+
+import org.junit.runner.Description;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.Filterable;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.manipulation.Sortable;
+import org.junit.runner.manipulation.Sorter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.InitializationError;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a test class in a {@link RobolectricDaemon} when the {@code robolectric.daemon.port} system property is
+ * set and the daemon accepts it, and locally otherwise:
+ *
+ * <pre>
+ *   &#064;RunWith(DaemonTestRunner.class)
+ *   public class MyActivityTest { ... }
+ * </pre>
+ *
+ * Either way the test class is run by {@link #getRunnerClass()}, {@link RobolectricTestRunner} unless overridden.
+ * Filtering and sorting, e.g. to run a single test method from an IDE, are passed on to the daemon as the names of
+ * the tests to run, in order.
+ */
+public class DaemonTestRunner extends Runner implements Filterable, Sortable {
+    private final Class<?> testClass;
+    private final Integer port;
+    private Description remoteDescription;
+    private final Runner localRunner;
+    private List<String> selectedTests; // null to run them all, in the daemon's order
+
+    public DaemonTestRunner(Class<?> testClass) throws InitializationError {
+        this.testClass = testClass;
+        this.port = Integer.getInteger(RobolectricDaemon.PORT_PROPERTY);
+        this.remoteDescription = port == null ? null : describeRemotely();
+        this.localRunner = remoteDescription == null ? createLocalRunner() : null;
+    }
+
+    protected Class<? extends Runner> getRunnerClass() {
+        return RobolectricTestRunner.class;
+    }
+
+    @Override public Description getDescription() {
+        return localRunner != null ? localRunner.getDescription() : remoteDescription;
+    }
+
+    @Override public void filter(Filter filter) throws NoTestsRemainException {
+        if (localRunner != null) {
+            filter.apply(localRunner);
+            return;
+        }
+
+        Description filtered = filter(remoteDescription, filter);
+        if (filtered == null) throw new NoTestsRemainException();
+        remoteDescription = filtered;
+        selectedTests = testNames(remoteDescription, new ArrayList<String>());
+    }
+
+    @Override public void sort(Sorter sorter) {
+        if (localRunner != null) {
+            sorter.apply(localRunner);
+            return;
+        }
+
+        remoteDescription = sort(remoteDescription, sorter);
+        selectedTests = testNames(remoteDescription, new ArrayList<String>());
+    }
+
+    private static Description filter(Description description, Filter filter) {
+        if (description.isTest()) return filter.shouldRun(description) ? description : null;
+
+        Description filtered = Description.createSuiteDescription(description.getDisplayName());
+        for (Description child : description.getChildren()) {
+            Description filteredChild = filter(child, filter);
+            if (filteredChild != null) filtered.addChild(filteredChild);
+        }
+        return filtered.getChildren().isEmpty() ? null : filtered;
+    }
+
+    private static Description sort(Description description, Sorter sorter) {
+        if (description.isTest()) return description;
+
+        List<Description> children = new ArrayList<Description>(description.getChildren());
+        Collections.sort(children, sorter);
+        Description sorted = Description.createSuiteDescription(description.getDisplayName());
+        for (Description child : children) {
+            sorted.addChild(sort(child, sorter));
+        }
+        return sorted;
+    }
+
+    private static List<String> testNames(Description description, List<String> names) {
+        if (description.isTest()) {
+            names.add(description.getDisplayName());
+        } else {
+            for (Description child : description.getChildren()) {
+                testNames(child, names);
+            }
+        }
+        return names;
+    }
+
+    @Override public void run(RunNotifier notifier) {
+        if (localRunner != null) {
+            localRunner.run(notifier);
+            return;
+        }
+
+        try {
+            Connection connection = connect(RobolectricDaemon.RUN);
+            try {
+                if (!connection.in.readBoolean()) {
+                    throw new IOException(connection.in.readUTF());
+                }
+                Map<String, Description> descriptions = new HashMap<String, Description>();
+                index(remoteDescription, descriptions);
+                String event;
+                while (!(event = connection.in.readUTF()).equals(RobolectricDaemon.DONE)) {
+                    String displayName = connection.in.readUTF();
+                    Description description = descriptions.get(displayName);
+                    if (description == null) description = Description.createSuiteDescription(displayName);
+                    fire(notifier, event, description, readException(connection.in));
+                }
+            } finally {
+                connection.close();
+            }
+        } catch (Exception e) {
+            notifier.fireTestFailure(new Failure(remoteDescription, new RuntimeException("lost the robolectric daemon", e)));
+        }
+    }
+
+    private static void index(Description description, Map<String, Description> descriptions) {
+        descriptions.put(description.getDisplayName(), description);
+        for (Description child : description.getChildren()) {
+            index(child, descriptions);
+        }
+    }
+
+    private void fire(RunNotifier notifier, String event, Description description, Throwable exception) {
+        if (event.equals(RobolectricDaemon.TEST_STARTED)) {
+            notifier.fireTestStarted(description);
+        } else if (event.equals(RobolectricDaemon.TEST_FINISHED)) {
+            notifier.fireTestFinished(description);
+        } else if (event.equals(RobolectricDaemon.TEST_FAILURE)) {
+            notifier.fireTestFailure(new Failure(description, exception));
+        } else if (event.equals(RobolectricDaemon.TEST_ASSUMPTION_FAILURE)) {
+            notifier.fireTestAssumptionFailed(new Failure(description, exception));
+        } else if (event.equals(RobolectricDaemon.TEST_IGNORED)) {
+            notifier.fireTestIgnored(description);
+        }
+    }
+
+    /**
+     * Deserializes an exception sent by the daemon against the test class's class loader, or, if that can't be done,
+     * stands in an {@link AssertionError} with its description and stack.
+     */
+    private Throwable readException(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        if (!in.readBoolean()) return null;
+        String text = (String) in.readObject();
+        StackTraceElement[] stackTrace = (StackTraceElement[]) in.readObject();
+        byte[] serialized = (byte[]) in.readObject();
+
+        if (serialized != null) {
+            try {
+                return (Throwable) new TestClassObjectInputStream(new ByteArrayInputStream(serialized)).readObject();
+            } catch (Exception e) {
+                // fall back to the description
+            }
+        }
+        AssertionError error = new AssertionError(text);
+        error.setStackTrace(stackTrace);
+        return error;
+    }
+
+    private Description describeRemotely() {
+        try {
+            Connection connection = connect(RobolectricDaemon.DESCRIBE);
+            try {
+                if (connection.in.readBoolean()) {
+                    return RobolectricDaemon.readDescription(connection.in);
+                }
+                System.err.println("Robolectric daemon refused " + testClass.getName() + " (" + connection.in.readUTF() + "); running locally");
+                return null;
+            } finally {
+                connection.close();
+            }
+        } catch (Exception e) {
+            System.err.println("Couldn't reach robolectric daemon on port " + port + " (" + e + "); running locally");
+            return null;
+        }
+    }
+
+    private Connection connect(String command) throws IOException {
+        Connection connection = new Connection(new Socket(InetAddress.getByName(null), port));
+        connection.out.writeUTF(command);
+        connection.out.writeUTF(RobolectricDaemon.environment());
+        connection.out.writeUTF(testClass.getName());
+        connection.out.writeUTF(getRunnerClass().getName());
+        RobolectricDaemon.writeSelectedTests(connection.out, selectedTests);
+        connection.out.flush();
+        connection.in = new ObjectInputStream(new BufferedInputStream(connection.socket.getInputStream()));
+        return connection;
+    }
+
+    private Runner createLocalRunner() throws InitializationError {
+        try {
+            return getRunnerClass().getConstructor(Class.class).newInstance(testClass);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof InitializationError) throw (InitializationError) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private class TestClassObjectInputStream extends ObjectInputStream {
+        TestClassObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, testClass.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+
+    private static class Connection {
+        private final Socket socket;
+        private final ObjectOutputStream out;
+        private ObjectInputStream in;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package org.robolectric.daemon;
+
+import org.junit.runner.Description;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.Filterable;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.manipulation.Sortable;
+import org.junit.runner.manipulation.Sorter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A long-lived test JVM. Since {@link org.robolectric.RobolectricContext}s, instrumented classes and resource
+ * loaders are cached statically, test classes run here after the first one skip all of that setup; forked test
+ * JVMs hand their test classes to it through {@link DaemonTestRunner}.
+ *
+ * <pre>
+ *   java -cp &lt;test classpath&gt; org.robolectric.daemon.RobolectricDaemon [port]
+ *   java -cp &lt;test classpath&gt; org.robolectric.daemon.RobolectricDaemon stop [port]
+ * </pre>
+ *
+ * Start it from the module directory with the same classpath the tests use; clients with a different classpath or
+ * working directory are turned away and run their tests locally. Classes are loaded once, so restart the daemon
+ * after recompiling; with {@code -Drobolectric.reloadResources=true}, edited resource files are picked up without a
+ * restart. Test classes are run one at a time.
+ */
+public class RobolectricDaemon {
+    public static final String PORT_PROPERTY = "robolectric.daemon.port";
+    public static final int DEFAULT_PORT = 7291;
+
+    static final String DESCRIBE = "describe";
+    static final String RUN = "run";
+    static final String SHUTDOWN = "shutdown";
+
+    static final String TEST_STARTED = "testStarted";
+    static final String TEST_FINISHED = "testFinished";
+    static final String TEST_FAILURE = "testFailure";
+    static final String TEST_ASSUMPTION_FAILURE = "testAssumptionFailure";
+    static final String TEST_IGNORED = "testIgnored";
+    static final String DONE = "done";
+
+    private final ServerSocket serverSocket;
+    private final String environment = environment();
+
+    public RobolectricDaemon(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("stop")) {
+            stop(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+            return;
+        }
+
+        RobolectricDaemon daemon = new RobolectricDaemon(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+        System.out.println("Robolectric daemon listening on port " + daemon.getPort());
+        daemon.serve();
+    }
+
+    public static void stop(int port) throws IOException {
+        Socket socket = new Socket(InetAddress.getByName(null), port);
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+            out.writeUTF(SHUTDOWN);
+            out.flush();
+            socket.getInputStream().read(); // wait for the daemon to hang up
+        } finally {
+            socket.close();
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Handles requests until a client asks the daemon to shut down.
+     */
+    public void serve() throws IOException {
+        try {
+            boolean keepServing = true;
+            while (keepServing) {
+                Socket socket = serverSocket.accept();
+                try {
+                    keepServing = handle(socket);
+                } catch (Exception e) {
+                    System.err.println("Robolectric daemon: request failed: " + e);
+                } finally {
+                    socket.close();
+                }
+            }
+        } finally {
+            serverSocket.close();
+        }
+    }
+
+    static String environment() {
+        return System.getProperty("user.dir") + File.pathSeparator + System.getProperty("java.class.path");
+    }
+
+    private boolean handle(Socket socket) throws IOException {
+        final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.flush();
+        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+
+        String command = in.readUTF();
+        if (command.equals(SHUTDOWN)) return false;
+
+        String clientEnvironment = in.readUTF();
+        String testClassName = in.readUTF();
+        String runnerClassName = in.readUTF();
+        List<String> selectedTests = readSelectedTests(in);
+
+        Runner runner = null;
+        String refusal = null;
+        if (!environment.equals(clientEnvironment)) {
+            refusal = "daemon was started with a different classpath or working directory";
+        } else {
+            try {
+                runner = createRunner(testClassName, runnerClassName);
+                if (selectedTests != null) select(runner, selectedTests);
+            } catch (NoTestsRemainException e) {
+                runner = null;
+                refusal = "none of the selected tests are in " + testClassName;
+            } catch (Exception e) {
+                runner = null;
+                refusal = "couldn't create " + runnerClassName + " for " + testClassName + ": " + e;
+            }
+        }
+
+        out.writeBoolean(runner != null);
+        if (runner == null) {
+            out.writeUTF(refusal);
+            out.flush();
+            return true;
+        }
+
+        if (command.equals(DESCRIBE)) {
+            writeDescription(out, runner.getDescription());
+        } else if (command.equals(RUN)) {
+            out.flush();
+            RunNotifier notifier = new RunNotifier();
+            notifier.addListener(new ForwardingListener(out));
+            runner.run(notifier);
+            out.writeUTF(DONE);
+        }
+        out.flush();
+        return true;
+    }
+
+    /**
+     * Descriptions aren't serializable, and are matched by display name anyway.
+     */
+    private static void writeDescription(ObjectOutputStream out, Description description) throws IOException {
+        out.writeUTF(description.getDisplayName());
+        out.writeInt(description.getChildren().size());
+        for (Description child : description.getChildren()) {
+            writeDescription(out, child);
+        }
+    }
+
+    static Description readDescription(ObjectInputStream in) throws IOException {
+        Description description = Description.createSuiteDescription(in.readUTF());
+        int childCount = in.readInt();
+        for (int i = 0; i < childCount; i++) {
+            description.addChild(readDescription(in));
+        }
+        return description;
+    }
+
+    /**
+     * @param selectedTests display names of tests to run, or null to run them all
+     */
+    static void writeSelectedTests(ObjectOutputStream out, List<String> selectedTests) throws IOException {
+        out.writeInt(selectedTests == null ? -1 : selectedTests.size());
+        if (selectedTests == null) return;
+        for (String selectedTest : selectedTests) {
+            out.writeUTF(selectedTest);
+        }
+    }
+
+    private static List<String> readSelectedTests(ObjectInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) return null;
+        List<String> selectedTests = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            selectedTests.add(in.readUTF());
+        }
+        return selectedTests;
+    }
+
+    /**
+     * Filters and sorts {@code runner} down to the tests the client selected, in the client's order.
+     */
+    private static void select(Runner runner, List<String> selectedTests) throws NoTestsRemainException {
+        final Map<String, Integer> positions = new HashMap<String, Integer>();
+        for (int i = 0; i < selectedTests.size(); i++) {
+            positions.put(selectedTests.get(i), i);
+        }
+
+        if (runner instanceof Filterable) {
+            ((Filterable) runner).filter(new Filter() {
+                @Override public boolean shouldRun(Description description) {
+                    return position(description, positions) != Integer.MAX_VALUE;
+                }
+
+                @Override public String describe() {
+                    return "tests selected by the client";
+                }
+            });
+        }
+        if (runner instanceof Sortable) {
+            ((Sortable) runner).sort(new Sorter(new Comparator<Description>() {
+                @Override public int compare(Description a, Description b) {
+                    int positionA = position(a, positions);
+                    int positionB = position(b, positions);
+                    return positionA < positionB ? -1 : positionA == positionB ? 0 : 1;
+                }
+            }));
+        }
+    }
+
+    /**
+     * @return where the first selected test in {@code description} is, or {@link Integer#MAX_VALUE} if there's none
+     */
+    private static int position(Description description, Map<String, Integer> positions) {
+        if (description.isTest()) {
+            Integer position = positions.get(description.getDisplayName());
+            return position == null ? Integer.MAX_VALUE : position;
+        }
+
+        int first = Integer.MAX_VALUE;
+        for (Description child : description.getChildren()) {
+            first = Math.min(first, position(child, positions));
+        }
+        return first;
+    }
+
+    private Runner createRunner(String testClassName, String runnerClassName) throws Exception {
+        ClassLoader classLoader = RobolectricDaemon.class.getClassLoader();
+        Class<?> testClass = classLoader.loadClass(testClassName);
+        Class<?> runnerClass = classLoader.loadClass(runnerClassName);
+        try {
+            return (Runner) runnerClass.getConstructor(Class.class).newInstance(testClass);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static class ForwardingListener extends RunListener {
+        private final ObjectOutputStream out;
+
+        ForwardingListener(ObjectOutputStream out) {
+            this.out = out;
+        }
+
+        @Override public void testStarted(Description description) throws Exception {
+            send(TEST_STARTED, description);
+        }
+
+        @Override public void testFinished(Description description) throws Exception {
+            send(TEST_FINISHED, description);
+        }
+
+        @Override public void testFailure(Failure failure) throws Exception {
+            send(TEST_FAILURE, failure.getDescription(), failure.getException());
+        }
+
+        @Override public void testAssumptionFailure(Failure failure) {
+            try {
+                send(TEST_ASSUMPTION_FAILURE, failure.getDescription(), failure.getException());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override public void testIgnored(Description description) throws Exception {
+            send(TEST_IGNORED, description);
+        }
+
+        private void send(String event, Description description) throws IOException {
+            send(event, description, null);
+        }
+
+        /**
+         * Exceptions are sent as their description and stack, and serialized separately, so the client can fall back
+         * to the description if it can't deserialize them.
+         */
+        private void send(String event, Description description, Throwable exception) throws IOException {
+            out.writeUTF(event);
+            out.writeUTF(description.getDisplayName());
+            out.writeBoolean(exception != null);
+            if (exception != null) {
+                out.writeObject(exception.toString());
+                out.writeObject(exception.getStackTrace());
+                out.writeObject(serialize(exception));
+            }
+            out.flush();
+        }
+
+        /**
+         * @return null if {@code exception} drags along something that can't be serialized
+         */
+        private static byte[] serialize(Throwable exception) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream objectOutputStream = new ObjectOutputStream(bytes);
+                objectOutputStream.writeObject(exception);
+                objectOutputStream.close();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -1,21 +1,13 @@
 package org.robolectric.res;
 
 import android.view.View;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-import java.io.File;
+
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-public class AttrResourceLoader extends XmlLoader {
+public class AttrResourceLoader extends StaxLoader {
     Map<String, EnumDef> enums = new HashMap<String, EnumDef>();
     Map<String, EnumRef> enumRefs = new HashMap<String, EnumRef>();
     boolean resolved = false;
@@ -40,52 +32,78 @@ public class AttrResourceLoader extends XmlLoader {
         }
     }
 
-    @Override protected void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
+    private String attrName;            // of the <attr> being read
+    private boolean attrHasChildren;
 
-        // Pick up inline enum definitions
-        {
-            NodeList nodeList = findNodes(document, "/resources/declare-styleable/attr/enum|/resources/declare-styleable/attr/flag");
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                Node node = nodeList.item(i);
-                String viewName = node.getParentNode().getParentNode().getAttributes().getNamedItem("name").getNodeValue();
-                String enumName = enumName(node.getParentNode().getAttributes().getNamedItem("name").getNodeValue(), xmlContext.packageName);
-                String name = node.getAttributes().getNamedItem("name").getNodeValue();
-                String value = node.getAttributes().getNamedItem("value").getNodeValue();
+    @Override protected void startElement(XmlElement element, XmlContext xmlContext) {
+        if (element.isAt("attr", "resources", "declare-styleable") || element.isAt("attr", "resources")) {
+            attrName = element.getAttributeValue("name");
+            attrHasChildren = false;
+            return;
+        }
 
-                classEnumToValue.put(key(viewName, enumName, name), value);
-                knownClassEnums.add(key(viewName, enumName));
-            }
+        if (element.depth == 4 && element.parent.isAt("attr", "resources", "declare-styleable")) {
+            attrHasChildren = true;
         }
 
-        // Look for any global enum definitions.
-        {
-            NodeList nodeList = findNodes(document, "/resources/attr/enum|/resources/attr/flag");
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                Node node = nodeList.item(i);
-
-                String enumName = enumName(node.getParentNode().getAttributes().getNamedItem("name").getNodeValue(), xmlContext.packageName);
-                EnumDef enumDef = enums.get(enumName);
-                if (enumDef == null) {
-                    enumDef = new EnumDef(enumName);
-                    enums.put(enumName, enumDef);
-                }
-                enumDef.values.put(node.getAttributes().getNamedItem("name").getNodeValue(),
-                        node.getAttributes().getNamedItem("value").getNodeValue());
+        if (element.isAt("enum", "resources", "declare-styleable", "attr") || element.isAt("flag", "resources", "declare-styleable", "attr")) {
+            // Pick up inline enum definitions
+            String viewName = element.parent.parent.getAttributeValue("name");
+            String enumName = enumName(attrName, xmlContext.packageName);
+            String name = element.getAttributeValue("name");
+            String value = element.getAttributeValue("value");
+
+            classEnumToValue.put(key(viewName, enumName, name), value);
+            knownClassEnums.add(key(viewName, enumName));
+        } else if (element.isAt("enum", "resources", "attr") || element.isAt("flag", "resources", "attr")) {
+            // Look for any global enum definitions.
+            String enumName = enumName(attrName, xmlContext.packageName);
+            EnumDef enumDef = enums.get(enumName);
+            if (enumDef == null) {
+                enumDef = new EnumDef(enumName);
+                enums.put(enumName, enumDef);
             }
+            enumDef.values.put(element.getAttributeValue("name"), element.getAttributeValue("value"));
         }
+    }
 
-        // Note uses of system enums and top level local enums by childless attr nodes
-        {
-            NodeList nodeList = findNodes(document, "/resources/declare-styleable/attr[not(node())]");
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                Node node = nodeList.item(i);
+    @Override protected void characters(String text, boolean cdata, XmlContext xmlContext) {
+        attrHasChildren = true;
+    }
 
-                String viewName = node.getParentNode().getAttributes().getNamedItem("name").getNodeValue();
-                String enumName = enumName(node.getAttributes().getNamedItem("name").getNodeValue(), xmlContext.packageName);
+    @Override protected void endElement(XmlElement element, XmlContext xmlContext) {
+        // Note uses of system enums and top level local enums by childless attr nodes
+        if (!attrHasChildren && element.isAt("attr", "resources", "declare-styleable")) {
+            String viewName = element.parent.getAttributeValue("name");
+            String enumName = enumName(attrName, xmlContext.packageName);
+            enumRefs.put(key(viewName, enumName), new EnumRef(viewName, enumName));
+        }
+    }
 
-                enumRefs.put(key(viewName, enumName), new EnumRef(viewName, enumName));
+    /**
+     * Adds the definitions loaded by {@code other}, which must not have been queried yet.
+     */
+    void mergeFrom(AttrResourceLoader other) {
+        for (EnumDef otherEnumDef : other.enums.values()) {
+            EnumDef enumDef = enums.get(otherEnumDef.name);
+            if (enumDef == null) {
+                enumDef = new EnumDef(otherEnumDef.name);
+                enums.put(enumDef.name, enumDef);
             }
+            enumDef.values.putAll(otherEnumDef.values);
         }
+        enumRefs.putAll(other.enumRefs);
+        classEnumToValue.putAll(other.classEnumToValue);
+        knownClassEnums.addAll(other.knownClassEnums);
+        resolved = false;
+    }
+
+    void clear() {
+        enums.clear();
+        enumRefs.clear();
+        classEnumToValue.clear();
+        knownClassEnums.clear();
+        resolved = false;
     }
 
     public String convertValueToEnum(Class<? extends View> viewClass, String namespace, String attrName, String attrValue) {
@@ -109,11 +127,6 @@ public class AttrResourceLoader extends XmlLoader {
         return packageName + ":" + name;
     }
 
-    private NodeList findNodes(Document document, String path) throws XPathExpressionException {
-        XPathExpression nestedEnumsXPath = XPathFactory.newInstance().newXPath().compile(path);
-        return (NodeList) nestedEnumsXPath.evaluate(document, XPathConstants.NODESET);
-    }
-
     private void resolveReferences() {
         if (!resolved) {
             for (EnumRef enumRef : enumRefs.values()) {
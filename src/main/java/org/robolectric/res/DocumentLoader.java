@@ -4,8 +4,16 @@ import org.w3c.dom.Document;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DocumentLoader {
     private static final FileFilter ENDS_WITH_XML = new FileFilter() {
@@ -14,16 +22,21 @@ public class DocumentLoader {
         }
     };
 
-    private final XmlLoader[] xmlLoaders;
-    private final DocumentBuilderFactory documentBuilderFactory;
+    private static final String REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event";
 
-    public DocumentLoader(XmlLoader... xmlLoaders) {
-        this.xmlLoaders = xmlLoaders;
+    private final List<StaxLoader> staxLoaders = new ArrayList<StaxLoader>();
+    private final List<XmlLoader> domLoaders = new ArrayList<XmlLoader>();
+    private DocumentBuilder documentBuilder;
+    private XMLInputFactory xmlInputFactory;
 
-        documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        documentBuilderFactory.setNamespaceAware(true);
-        documentBuilderFactory.setIgnoringComments(true);
-        documentBuilderFactory.setIgnoringElementContentWhitespace(true);
+    public DocumentLoader(XmlLoader... xmlLoaders) {
+        for (XmlLoader xmlLoader : xmlLoaders) {
+            if (xmlLoader instanceof StaxLoader) {
+                staxLoaders.add((StaxLoader) xmlLoader);
+            } else {
+                domLoaders.add(xmlLoader);
+            }
+        }
     }
 
     public void loadResourceXmlSubDirs(ResourcePath resourcePath, final String folderBaseName) throws Exception {
@@ -36,7 +49,7 @@ public class DocumentLoader {
         loadResourceXmlDir(resourcePath, new File(resourcePath.resourceBase, dirName));
     }
 
-    private void loadResourceXmlDir(ResourcePath resourcePath, File dir) throws Exception {
+    void loadResourceXmlDir(ResourcePath resourcePath, File dir) throws Exception {
         if (!dir.exists()) {
             throw new RuntimeException("no such directory " + dir);
         }
@@ -46,16 +59,95 @@ public class DocumentLoader {
         }
     }
 
-    private void loadResourceXmlFile(File file, String packageName) throws Exception {
-        Document document = parse(file);
-        for (XmlLoader xmlLoader : xmlLoaders) {
-            xmlLoader.processResourceXml(file, document, packageName);
+    void loadResourceXmlFile(File file, String packageName) throws Exception {
+        long startNanos = System.nanoTime();
+        if (!staxLoaders.isEmpty()) {
+            stream(file, new XmlLoader.XmlContext(packageName, file));
+        }
+
+        if (!domLoaders.isEmpty()) {
+            Document document = parse(file);
+            for (XmlLoader xmlLoader : domLoaders) {
+                xmlLoader.processResourceXml(file, document, packageName);
+            }
+        }
+
+        if (ResourceLoadingListener.isListening()) {
+            ResourceLoadingListener.notifyFileParsed(file, System.nanoTime() - startNanos);
         }
     }
 
+    private void stream(File xmlFile, XmlLoader.XmlContext xmlContext) throws Exception {
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(xmlFile));
+        try {
+            XMLStreamReader reader = getXmlInputFactory().createXMLStreamReader(xmlFile.toURI().toString(), inputStream);
+            try {
+                for (StaxLoader staxLoader : staxLoaders) {
+                    staxLoader.startDocument(xmlContext);
+                }
+
+                XmlElement element = null;
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            element = new XmlElement(reader, element);
+                            for (StaxLoader staxLoader : staxLoaders) {
+                                staxLoader.startElement(element, xmlContext);
+                            }
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.SPACE:
+                        case XMLStreamConstants.CDATA:
+                            if (element == null) break; // whitespace around the root element
+                            String text = reader.getText();
+                            boolean cdata = reader.getEventType() == XMLStreamConstants.CDATA;
+                            for (StaxLoader staxLoader : staxLoaders) {
+                                staxLoader.characters(text, cdata, xmlContext);
+                            }
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            for (StaxLoader staxLoader : staxLoaders) {
+                                staxLoader.endElement(element, xmlContext);
+                            }
+                            element = element.parent;
+                            break;
+                    }
+                }
+
+                for (StaxLoader staxLoader : staxLoaders) {
+                    staxLoader.endDocument(xmlContext);
+                }
+            } finally {
+                reader.close();
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private XMLInputFactory getXmlInputFactory() {
+        // not thread-safe, but neither is a DocumentLoader
+        if (xmlInputFactory == null) {
+            xmlInputFactory = XMLInputFactory.newInstance();
+            xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+            xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+            // the JDK's parser passes CDATA sections off as plain text unless asked not to
+            if (xmlInputFactory.isPropertySupported(REPORT_CDATA_EVENT)) {
+                xmlInputFactory.setProperty(REPORT_CDATA_EVENT, true);
+            }
+        }
+        return xmlInputFactory;
+    }
+
     private Document parse(File xmlFile) throws Exception {
-        DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+        // not thread-safe, but neither is a DocumentLoader
+        if (documentBuilder == null) {
+            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+            documentBuilderFactory.setNamespaceAware(true);
+            documentBuilderFactory.setIgnoringComments(true);
+            documentBuilderFactory.setIgnoringElementContentWhitespace(true);
+            documentBuilder = documentBuilderFactory.newDocumentBuilder();
+        }
         return documentBuilder.parse(xmlFile);
     }
-
 }
@@ -14,15 +14,9 @@ import org.robolectric.Robolectric;
 import org.robolectric.shadows.ShadowStateListDrawable;
 import org.robolectric.tester.android.util.ResName;
 import org.jetbrains.annotations.NotNull;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.robolectric.Robolectric.shadowOf;
@@ -48,34 +42,28 @@ public class DrawableBuilder {
     }
 
     private Drawable getXmlDrawable(Resources resources, DrawableNode.Xml drawableNode, ResName resName) {
-        Document xmlDoc = drawableNode.document;
-        NodeList nodes = xmlDoc.getElementsByTagName("selector");
-        if (nodes != null && nodes.getLength() > 0) {
+        XmlBuffer xmlBuffer = drawableNode.xmlBuffer;
+        if (!xmlBuffer.getElementsByTagName("selector").isEmpty()) {
             return buildStateListDrawable(drawableNode);
         }
 
-        nodes = xmlDoc.getElementsByTagName("layer-list");
-        if (nodes != null && nodes.getLength() > 0) {
-            NodeList itemNodes = findNodes("/layer-list/item", xmlDoc);
-            Drawable[] layers = new Drawable[itemNodes.getLength()];
-            for (int i = 0; i < itemNodes.getLength(); i++) {
-                Node node = itemNodes.item(i);
-                layers[i] = getDrawableForNode(node, resName, resources);
+        if (!xmlBuffer.getElementsByTagName("layer-list").isEmpty()) {
+            List<XmlElement> items = xmlBuffer.getElementsAt("item", "layer-list");
+            Drawable[] layers = new Drawable[items.size()];
+            for (int i = 0; i < items.size(); i++) {
+                layers[i] = getDrawableForElement(items.get(i), resName, resources);
             }
             LayerDrawable layerDrawable = new LayerDrawable(layers);
             shadowOf(layerDrawable).setLoadedFromResourceId(resourceExtractor.getResourceId(resName));
             return layerDrawable;
         }
 
-        nodes = xmlDoc.getElementsByTagName("animation-list");
-        if (nodes != null && nodes.getLength() > 0) {
+        if (!xmlBuffer.getElementsByTagName("animation-list").isEmpty()) {
             AnimationDrawable animationDrawable = new AnimationDrawable();
 
-            NodeList itemNodes = findNodes("/animation-list/item", xmlDoc);
-            for (int i = 0; i < itemNodes.getLength(); i++) {
-                Node node = itemNodes.item(i);
-                Drawable frameDrawable = getDrawableForNode(node, resName, resources);
-                String duration = node.getAttributes().getNamedItemNS(ResourceLoader.ANDROID_NS, "duration").getNodeValue();
+            for (XmlElement item : xmlBuffer.getElementsAt("item", "animation-list")) {
+                Drawable frameDrawable = getDrawableForElement(item, resName, resources);
+                String duration = item.getAttributeValueNS(ResourceLoader.ANDROID_NS, "duration");
                 animationDrawable.addFrame(frameDrawable, Integer.parseInt(duration));
             }
             return animationDrawable;
@@ -84,41 +72,29 @@ public class DrawableBuilder {
         return null;
     }
 
-    private Drawable getDrawableForNode(Node node, ResName resName, Resources resources) {
-        String drawableName = node.getAttributes().getNamedItemNS(ResourceLoader.ANDROID_NS, "drawable").getNodeValue();
+    private Drawable getDrawableForElement(XmlElement element, ResName resName, Resources resources) {
+        String drawableName = element.getAttributeValueNS(ResourceLoader.ANDROID_NS, "drawable");
         ResName otherDrawableResName = resName.qualify(drawableName);
         return resources.getDrawable(resourceExtractor.getResourceId(otherDrawableResName));
     }
 
-    private NodeList findNodes(String xpathExpression, Document xmlDoc) {
-        try {
-            return (NodeList) XPathFactory.newInstance().newXPath().compile(xpathExpression).evaluate(xmlDoc, XPathConstants.NODESET);
-        } catch (XPathExpressionException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     private StateListDrawable buildStateListDrawable(DrawableNode.Xml drawableNode) {
         StateListDrawable drawable = new StateListDrawable();
         ShadowStateListDrawable shDrawable = Robolectric.shadowOf(drawable);
-        NodeList items = drawableNode.document.getElementsByTagName("item");
-        for (int i = 0; i < items.getLength(); i++) {
-            Node node = items.item(i);
-            Node drawableName = node.getAttributes().getNamedItemNS(ResourceLoader.ANDROID_NS, "drawable");
+        for (XmlElement item : drawableNode.xmlBuffer.getElementsByTagName("item")) {
+            String drawableName = item.getAttributeValueNS(ResourceLoader.ANDROID_NS, "drawable");
             if (drawableName != null) {
-                int resId = resourceExtractor.getResourceId(drawableName.getNodeValue(), drawableNode.xmlContext.packageName);
-                int stateId = getStateId(node);
+                int resId = resourceExtractor.getResourceId(drawableName, drawableNode.xmlContext.packageName);
+                int stateId = getStateId(item);
                 shDrawable.addState(stateId, resId);
             }
         }
         return drawable;
     }
 
-    private int getStateId(Node node) {
-        NamedNodeMap attrs = node.getAttributes();
+    private int getStateId(XmlElement element) {
         for (String state : STATE_MAP.keySet()) {
-            Node attr = attrs.getNamedItem(state);
-            if (attr != null) {
+            if (element.indexOfAttribute(state) != -1) {
                 return STATE_MAP.get(state);
             }
         }
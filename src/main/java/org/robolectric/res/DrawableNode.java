@@ -1,15 +1,14 @@
 package org.robolectric.res;
 
 import org.jetbrains.annotations.NotNull;
-import org.w3c.dom.Document;
 
 public abstract class DrawableNode {
     static class Xml extends DrawableNode {
-        final @NotNull Document document;
+        final @NotNull XmlBuffer xmlBuffer;
         final @NotNull XmlLoader.XmlContext xmlContext;
 
-        Xml(@NotNull Document document, @NotNull XmlLoader.XmlContext xmlContext) {
-            this.document = document;
+        Xml(@NotNull XmlBuffer xmlBuffer, @NotNull XmlLoader.XmlContext xmlContext) {
+            this.xmlBuffer = xmlBuffer;
             this.xmlContext = xmlContext;
         }
     }
@@ -1,34 +1,41 @@
 package org.robolectric.res;
 
-import org.w3c.dom.Document;
-
 import java.io.File;
 
 /**
  * DrawableResourceLoader
  */
-public class DrawableResourceLoader extends XmlLoader {
+public class DrawableResourceLoader extends StaxLoader {
     private final ResBundle<DrawableNode> drawableNodes;
+    private XmlBuffer.Builder xmlBufferBuilder;
 
     public DrawableResourceLoader(ResBundle<DrawableNode> drawableNodes) {
         this.drawableNodes = drawableNodes;
     }
 
+    @Override
+    protected void startDocument(XmlContext xmlContext) {
+        xmlBufferBuilder = new XmlBuffer.Builder();
+    }
+
+    @Override
+    protected void startElement(XmlElement element, XmlContext xmlContext) {
+        xmlBufferBuilder.startElement(element);
+    }
+
+    @Override
+    protected void endElement(XmlElement element, XmlContext xmlContext) {
+        xmlBufferBuilder.endElement();
+    }
+
     /**
-     * Store document locally keyed by resource name.
-     *
-     *
-     *
-     * @param xmlFile  Xml file
-     * @param document Document
-     * @param xmlContext System resource
-     * @throws Exception
-     * @see XmlLoader#processResourceXml(java.io.File, org.w3c.dom.Document, XmlContext)
+     * Store the file's elements locally keyed by resource name.
      */
     @Override
-    protected void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
-        String name = toResourceName(xmlFile);
-        drawableNodes.put("drawable", name, new DrawableNode.Xml(document, xmlContext), xmlContext);
+    protected void endDocument(XmlContext xmlContext) {
+        String name = toResourceName(xmlContext.getXmlFile());
+        drawableNodes.put("drawable", name, new DrawableNode.Xml(xmlBufferBuilder.build(), xmlContext), xmlContext);
+        xmlBufferBuilder = null;
     }
 
     /**
@@ -59,15 +66,19 @@ public class DrawableResourceLoader extends XmlLoader {
                 if (f.isDirectory() && drawableFilter.accept(f)) {
                     listNinePatchResources(resourcePath, f);
                 } else {
-                    String name = f.getName();
-                    if (name.endsWith(".9.png")) {
-                        String[] tokens = name.split("\\.9\\.png$");
-                        String shortName = tokens[0];
-                        XmlContext fakeXmlContext = new XmlContext(resourcePath.getPackageName(), f);
-                        drawableNodes.put("drawable", shortName, new DrawableNode.ImageFile(true), fakeXmlContext);
-                    }
+                    findNinePatchResource(resourcePath, f);
                 }
             }
         }
     }
+
+    void findNinePatchResource(ResourcePath resourcePath, File file) {
+        String name = file.getName();
+        if (name.endsWith(".9.png")) {
+            String[] tokens = name.split("\\.9\\.png$");
+            String shortName = tokens[0];
+            XmlContext fakeXmlContext = new XmlContext(resourcePath.getPackageName(), file);
+            drawableNodes.put("drawable", shortName, new DrawableNode.ImageFile(true), fakeXmlContext);
+        }
+    }
 }
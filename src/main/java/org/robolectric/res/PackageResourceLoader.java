@@ -8,31 +8,58 @@ import org.robolectric.tester.android.util.ResName;
 import org.robolectric.util.I18nException;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Arrays.asList;
 
 public class PackageResourceLoader implements ResourceLoader {
+    private static final FileFilter RELOADABLE_FILES = new FileFilter() {
+        @Override public boolean accept(File file) {
+            return file.getName().endsWith(".xml") || file.getName().endsWith(".9.png");
+        }
+    };
 
     private List<ResourcePath> resourcePaths;
     private final ResourceExtractor resourceExtractor;
+    private final File resourceTableDir;
 
     private final PreferenceLoader preferenceLoader;
     private final XmlFileLoader xmlFileLoader;
     private final AttrResourceLoader attrResourceLoader;
     private final List<RawResourceLoader> rawResourceLoaders = new ArrayList<RawResourceLoader>();
 
-    private boolean isInitialized = false;
+    private enum ResourceKind {
+        OTHER(null), VALUES("values"), LAYOUTS("layout"), MENUS("menu"), DRAWABLES("drawable"), XML("xml"), RAW(null);
+
+        /** where this kind is loaded from, or null if it isn't reloaded when files change */
+        final String dirName;
+
+        ResourceKind(String dirName) {
+            this.dirName = dirName;
+        }
+    }
 
-    private final Resolver<Boolean> booleanResolver = new BooleanResolver();
-    private final Resolver<Integer> colorResolver = new ColorResolver();
-    private final Resolver<Float> dimenResolver = new DimenResolver();
-    private final Resolver<Integer> integerResolver = new IntegerResolver();
+    private final Map<ResourceKind, Object> loadLocks = new EnumMap<ResourceKind, Object>(ResourceKind.class);
+    private final Set<ResourceKind> loadedKinds = Collections.newSetFromMap(new ConcurrentHashMap<ResourceKind, Boolean>());
+
+    private volatile boolean watchForChanges;
+    private final Map<ResourceKind, Map<ResourcePath, LoadedResources>> loadedResources = new EnumMap<ResourceKind, Map<ResourcePath, LoadedResources>>(ResourceKind.class);
+
+    private final BooleanResolver booleanResolver;
+    private final ColorResolver colorResolver;
+    private final DimenResolver dimenResolver;
+    private final IntegerResolver integerResolver;
     private final PluralsResolver pluralsResolver = new PluralsResolver();
-    private final Resolver<String> stringResolver = new StringResolver();
+    private final StringResolver stringResolver;
     private final ResBundle<ViewNode> viewNodes = new ResBundle<ViewNode>();
     private final ResBundle<MenuNode> menuNodes = new ResBundle<MenuNode>();
     private final ResBundle<DrawableNode> drawableNodes = new ResBundle<DrawableNode>();
@@ -46,13 +73,32 @@ public class PackageResourceLoader implements ResourceLoader {
     }
 
     public PackageResourceLoader(List<ResourcePath> resourcePaths, String overrideNamespace) {
+        this(resourcePaths, overrideNamespace, null);
+    }
+
+    /**
+     * @param resourceTableDir where to keep compiled resource tables between runs, or null to parse every time
+     */
+    public PackageResourceLoader(List<ResourcePath> resourcePaths, String overrideNamespace, File resourceTableDir) {
         this.resourceExtractor = new ResourceExtractor(resourcePaths);
         this.resourcePaths = Collections.unmodifiableList(resourcePaths);
+        this.resourceTableDir = resourceTableDir;
+
+        booleanResolver = new BooleanResolver(resourceExtractor);
+        colorResolver = new ColorResolver(resourceExtractor);
+        dimenResolver = new DimenResolver(resourceExtractor);
+        integerResolver = new IntegerResolver(resourceExtractor);
+        stringResolver = new StringResolver(resourceExtractor);
 
         attrResourceLoader = new AttrResourceLoader();
         preferenceLoader = new PreferenceLoader(resourceExtractor);
         xmlFileLoader = new XmlFileLoader(resourceExtractor);
 
+        for (ResourceKind kind : ResourceKind.values()) {
+            loadLocks.put(kind, new Object());
+            loadedResources.put(kind, new HashMap<ResourcePath, LoadedResources>());
+        }
+
         if (overrideNamespace != null) {
             for (ResBundle resBundle : asList(booleanResolver, colorResolver, dimenResolver, integerResolver,
                     pluralsResolver, stringResolver, viewNodes, menuNodes, drawableNodes)) {
@@ -61,46 +107,288 @@ public class PackageResourceLoader implements ResourceLoader {
         }
     }
 
-    private void init() {
-        if (isInitialized) return;
+    /**
+     * Keeps what's loaded from each resource path, and when, so {@link #reloadChangedResources()} can patch in the
+     * files that change afterwards. Must be called before any resources are loaded.
+     */
+    public void setWatchForChanges(boolean watchForChanges) {
+        if (!loadedKinds.isEmpty()) throw new IllegalStateException("resources have already been loaded");
+        this.watchForChanges = watchForChanges;
+    }
+
+    /**
+     * Starts loading every kind of resource on a background thread. Getters still only wait for the kind they need.
+     */
+    public void preloadInBackground() {
+        Thread thread = new Thread("preload resources") {
+            @Override public void run() {
+                try {
+                    for (ResourceKind kind : ResourceKind.values()) {
+                        init(kind);
+                    }
+                } catch (RuntimeException e) {
+                    // nothing from the failed kind was merged; the getter that needs it will try again, and report
+                    // the failure
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Each kind of resource is loaded the first time something asks for it, under its own lock.
+     */
+    private void init(ResourceKind kind) {
+        if (loadedKinds.contains(kind)) return;
+        if (kind != ResourceKind.OTHER) init(ResourceKind.OTHER);
 
-        try {
-            loadEverything();
-        } catch (I18nException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        synchronized (loadLocks.get(kind)) {
+            if (loadedKinds.contains(kind)) return;
+
+            // every path is read before anything is merged, so a failure leaves nothing half-merged to be merged again
+            // by the next try
+            List<LoadedResources> loadedByPath = new ArrayList<LoadedResources>();
+            try {
+                for (ResourcePath resourcePath : resourcePaths) {
+                    long startNanos = System.nanoTime();
+                    loadedByPath.add(load(kind, resourcePath));
+                    if (ResourceLoadingListener.isListening()) {
+                        ResourceLoadingListener.notifyResourcesLoaded(resourcePath, kind.toString().toLowerCase(), System.nanoTime() - startNanos);
+                    }
+                }
+            } catch (I18nException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+
+            for (int i = 0; i < resourcePaths.size(); i++) {
+                LoadedResources loaded = loadedByPath.get(i);
+                merge(kind, loaded);
+                if (loaded.snapshot != null) loadedResources.get(kind).put(resourcePaths.get(i), loaded);
+            }
+            if (kind == ResourceKind.VALUES) forgetResolvedValues();
+            loadedKinds.add(kind);
+            if (ResourceLoadingListener.isListening()) notifyBundlesLoaded(kind);
+        }
+    }
+
+    private void notifyBundlesLoaded(ResourceKind kind) {
+        switch (kind) {
+            case VALUES:
+                ResourceLoadingListener.notifyBundleLoaded("bool", booleanResolver.size());
+                ResourceLoadingListener.notifyBundleLoaded("color", colorResolver.size());
+                ResourceLoadingListener.notifyBundleLoaded("dimen", dimenResolver.size());
+                ResourceLoadingListener.notifyBundleLoaded("integer", integerResolver.size());
+                ResourceLoadingListener.notifyBundleLoaded("plurals", pluralsResolver.size());
+                ResourceLoadingListener.notifyBundleLoaded("string", stringResolver.size());
+                break;
+            case LAYOUTS:
+                ResourceLoadingListener.notifyBundleLoaded("layout", viewNodes.size());
+                break;
+            case MENUS:
+                ResourceLoadingListener.notifyBundleLoaded("menu", menuNodes.size());
+                break;
+            case DRAWABLES:
+                ResourceLoadingListener.notifyBundleLoaded("drawable", drawableNodes.size());
+                break;
+        }
+    }
+
+    private LoadedResources load(ResourceKind kind, ResourcePath resourcePath) throws Exception {
+        // before reading any files, so changes made while loading are picked up by the next reload
+        LoadedResources loaded = new LoadedResources(watchForChanges && kind.dirName != null
+                ? new ResourceDirSnapshot(resourcePath, kind.dirName, RELOADABLE_FILES) : null);
+
+        switch (kind) {
+            case OTHER:
+                loadOtherResources(resourcePath);
+                break;
+            case VALUES:
+                loaded.table = ResourceTable.load(resourcePath, resourceExtractor, resourceTableDir, "values");
+                break;
+            case LAYOUTS:
+                loaded.table = ResourceTable.load(resourcePath, resourceExtractor, resourceTableDir, "layout");
+                break;
+            case MENUS:
+                loaded.table = ResourceTable.load(resourcePath, resourceExtractor, resourceTableDir, "menu");
+                break;
+            case DRAWABLES:
+                loaded.drawables = new ResBundle<DrawableNode>();
+                DrawableResourceLoader drawableResourceLoader = new DrawableResourceLoader(loaded.drawables);
+                drawableResourceLoader.findNinePatchResources(resourcePath);
+                new DocumentLoader(drawableResourceLoader).loadResourceXmlSubDirs(resourcePath, "drawable");
+                break;
+            case XML:
+                // keyed by resource name, so reading a file again just replaces what it left the first time
+                new DocumentLoader(preferenceLoader, xmlFileLoader).loadResourceXmlSubDirs(resourcePath, "xml");
+                break;
+            case RAW:
+                loaded.rawResourceLoader = new RawResourceLoader(resourceExtractor, resourcePath.resourceBase);
+                break;
+        }
+        return loaded;
+    }
+
+    private void merge(ResourceKind kind, LoadedResources loaded) {
+        switch (kind) {
+            case VALUES:
+                mergeValues(loaded.table);
+                break;
+            case LAYOUTS:
+                viewNodes.mergeFrom(loaded.table.layouts);
+                break;
+            case MENUS:
+                menuNodes.mergeFrom(loaded.table.menus);
+                break;
+            case DRAWABLES:
+                drawableNodes.mergeFrom(loaded.drawables);
+                break;
+            case RAW:
+                rawResourceLoaders.add(loaded.rawResourceLoader);
+                break;
+        }
+    }
+
+    private void mergeValues(ResourceTable values) {
+        booleanResolver.mergeFrom(values.booleans);
+        colorResolver.mergeFrom(values.colors);
+        dimenResolver.mergeFrom(values.dimens);
+        integerResolver.mergeFrom(values.integers);
+        pluralsResolver.mergeFrom(values.plurals);
+        stringResolver.mergeFrom(values.strings);
+        attrResourceLoader.mergeFrom(values.attrs);
+    }
+
+    /**
+     * Called once all the values being loaded have been merged, not on every put.
+     */
+    private void forgetResolvedValues() {
+        booleanResolver.forgetResolvedValues();
+        colorResolver.forgetResolvedValues();
+        dimenResolver.forgetResolvedValues();
+        integerResolver.forgetResolvedValues();
+        stringResolver.forgetResolvedValues();
+    }
+
+    /**
+     * Reads again any resource files that have been added, changed or removed since they were loaded, if
+     * {@link #setWatchForChanges(boolean) watching for changes}. Only the changed files are parsed; then each affected
+     * kind of resource is merged again from every resource path, so earlier paths still take precedence.
+     *
+     * Resource ids come from the R classes, which can't change without a new class loader, so the
+     * {@link ResourceExtractor} is left alone.
+     *
+     * @return whether anything was reloaded
+     */
+    @Override
+    public boolean reloadChangedResources() {
+        if (!watchForChanges) return false;
+
+        boolean reloaded = false;
+        for (ResourceKind kind : ResourceKind.values()) {
+            if (kind.dirName == null || !loadedKinds.contains(kind)) continue;
+
+            synchronized (loadLocks.get(kind)) {
+                try {
+                    if (reload(kind)) reloaded = true;
+                } catch (I18nException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
         }
+        return reloaded;
     }
 
-    private void loadEverything() throws Exception {
+    private boolean reload(ResourceKind kind) throws Exception {
+        boolean reloaded = false;
         for (ResourcePath resourcePath : resourcePaths) {
-            System.out.println("DEBUG: Loading resources for " + resourcePath.getPackageName() + " from " + resourcePath.resourceBase + "...");
+            LoadedResources loaded = loadedResources.get(kind).get(resourcePath);
+            ResourceDirSnapshot snapshot = new ResourceDirSnapshot(resourcePath, kind.dirName, RELOADABLE_FILES);
+            List<File> changedFiles = snapshot.changedSince(loaded.snapshot);
+            if (changedFiles.isEmpty()) continue;
 
-            new DocumentLoader(
-                    new ValueResourceLoader(booleanResolver, "bool", false),
-                    new ValueResourceLoader(colorResolver, "color", false),
-                    new ValueResourceLoader(dimenResolver, "dimen", false),
-                    new ValueResourceLoader(integerResolver, "integer", true),
-                    new PluralResourceLoader(resourceExtractor, pluralsResolver),
-                    new ValueResourceLoader(stringResolver, "string", true),
-                    attrResourceLoader
-            ).loadResourceXmlSubDirs(resourcePath, "values");
+            if (ResourceLoadingListener.isListening()) {
+                ResourceLoadingListener.notifyResourcesReloading(resourcePath, kind.toString().toLowerCase(), changedFiles);
+            }
+            loaded.snapshot = snapshot;
+            for (File file : changedFiles) {
+                reloadFile(kind, resourcePath, loaded, file);
+            }
 
-            new DocumentLoader(new ViewLoader(viewNodes)).loadResourceXmlSubDirs(resourcePath, "layout");
-            new DocumentLoader(new MenuLoader(menuNodes)).loadResourceXmlSubDirs(resourcePath, "menu");
-            DrawableResourceLoader drawableResourceLoader = new DrawableResourceLoader(drawableNodes);
-            drawableResourceLoader.findNinePatchResources(resourcePath);
-            new DocumentLoader(drawableResourceLoader).loadResourceXmlSubDirs(resourcePath, "drawable");
-            new DocumentLoader(preferenceLoader).loadResourceXmlSubDirs(resourcePath, "xml");
-            new DocumentLoader(xmlFileLoader).loadResourceXmlSubDirs(resourcePath, "xml");
+            if (kind == ResourceKind.VALUES) {
+                // attrs aren't kept by file, so read them all again
+                loaded.table.attrs.clear();
+                new DocumentLoader(loaded.table.attrs).loadResourceXmlSubDirs(resourcePath, "values");
+            }
+            reloaded = true;
+        }
 
-            loadOtherResources(resourcePath);
+        if (reloaded) mergeAgain(kind);
+        return reloaded;
+    }
 
-            rawResourceLoaders.add(new RawResourceLoader(resourceExtractor, resourcePath.resourceBase));
+    private void reloadFile(ResourceKind kind, ResourcePath resourcePath, LoadedResources loaded, File file) throws Exception {
+        String packageName = resourcePath.getPackageName();
+        switch (kind) {
+            case VALUES:
+            case LAYOUTS:
+            case MENUS:
+                loaded.table.removeFrom(file);
+                if (file.exists()) {
+                    loaded.table.documentLoaderFor(kind.dirName, resourceExtractor).loadResourceXmlFile(file, packageName);
+                }
+                break;
+            case DRAWABLES:
+                loaded.drawables.removeFrom(file);
+                if (file.exists()) {
+                    DrawableResourceLoader drawableResourceLoader = new DrawableResourceLoader(loaded.drawables);
+                    if (file.getName().endsWith(".xml")) {
+                        new DocumentLoader(drawableResourceLoader).loadResourceXmlFile(file, packageName);
+                    } else {
+                        drawableResourceLoader.findNinePatchResource(resourcePath, file);
+                    }
+                }
+                break;
+            case XML:
+                // keyed by name alone, so these are patched in place
+                XmlLoader.XmlContext xmlContext = new XmlLoader.XmlContext(packageName, file);
+                preferenceLoader.removeResourceXml(xmlContext);
+                xmlFileLoader.removeResourceXml(xmlContext);
+                if (file.exists()) {
+                    new DocumentLoader(preferenceLoader, xmlFileLoader).loadResourceXmlFile(file, packageName);
+                }
+                break;
         }
+    }
 
-        isInitialized = true;
+    private void mergeAgain(ResourceKind kind) {
+        switch (kind) {
+            case VALUES:
+                for (ResBundle resBundle : asList(booleanResolver, colorResolver, dimenResolver, integerResolver,
+                        pluralsResolver, stringResolver)) {
+                    resBundle.clear();
+                }
+                attrResourceLoader.clear();
+                break;
+            case LAYOUTS:
+                viewNodes.clear();
+                break;
+            case MENUS:
+                menuNodes.clear();
+                break;
+            case DRAWABLES:
+                drawableNodes.clear();
+                break;
+        }
+        Map<ResourcePath, LoadedResources> loadedByPath = loadedResources.get(kind);
+        for (ResourcePath resourcePath : resourcePaths) {
+            merge(kind, loadedByPath.get(resourcePath));
+        }
+        if (kind == ResourceKind.VALUES) forgetResolvedValues();
     }
 
     protected void loadOtherResources(ResourcePath resourcePath) {
@@ -112,26 +400,24 @@ public class PackageResourceLoader implements ResourceLoader {
 
     @Override
     public String getNameForId(int id) {
-        init();
         return resourceExtractor.getResourceName(id);
     }
 
     @Override
     public int getColorValue(ResName resName, String qualifiers) {
-        init();
-        Integer value = colorResolver.resolve(resName, qualifiers);
-        return value == null ? -1 : value;
+        init(ResourceKind.VALUES);
+        return colorResolver.resolveInt(resName, qualifiers, -1);
     }
 
     @Override
     public String getStringValue(ResName resName, String qualifiers) {
-        init();
+        init(ResourceKind.VALUES);
         return stringResolver.resolve(resName, qualifiers);
     }
 
     @Override
     public String getPluralStringValue(ResName resName, int quantity, String qualifiers) {
-        init();
+        init(ResourceKind.VALUES);
         PluralResourceLoader.PluralRules pluralRules = pluralsResolver.get(resName, qualifiers);
         if (pluralRules == null) return null;
 
@@ -142,36 +428,37 @@ public class PackageResourceLoader implements ResourceLoader {
 
     @Override
     public float getDimenValue(ResName resName, String qualifiers) {
-        init();
-        return dimenResolver.resolve(resName, qualifiers);
+        init(ResourceKind.VALUES);
+        return dimenResolver.resolveFloat(resName, qualifiers);
     }
 
     @Override
     public int getIntegerValue(ResName resName, String qualifiers) {
-        init();
-        return integerResolver.resolve(resName, qualifiers);
+        init(ResourceKind.VALUES);
+        return integerResolver.resolveInt(resName, qualifiers);
     }
 
     @Override
     public boolean getBooleanValue(ResName resName, String qualifiers) {
-        init();
-        return booleanResolver.resolve(resName, qualifiers);
+        init(ResourceKind.VALUES);
+        return booleanResolver.resolveBoolean(resName, qualifiers);
     }
 
     @Override
     public XmlResourceParser getXml(int id) {
-        init();
+        init(ResourceKind.XML);
         return xmlFileLoader.getXml(id);
     }
 
     @Override
     public DrawableNode getDrawableNode(ResName resName, String qualifiers) {
+        init(ResourceKind.DRAWABLES);
         return drawableNodes.get(resName, qualifiers);
     }
 
     @Override
     public InputStream getRawValue(int id) {
-        init();
+        init(ResourceKind.RAW);
 
         for (RawResourceLoader rawResourceLoader : rawResourceLoaders) {
             InputStream stream = rawResourceLoader.getValue(id);
@@ -183,7 +470,7 @@ public class PackageResourceLoader implements ResourceLoader {
 
     @Override
     public String[] getStringArrayValue(ResName resName, String qualifiers) {
-        init();
+        init(ResourceKind.VALUES);
 
         if (resName == null) return null;
         resName = new ResName(resName.namespace, "string-array", resName.name); // ugh
@@ -193,7 +480,7 @@ public class PackageResourceLoader implements ResourceLoader {
 
     @Override
     public int[] getIntegerArrayValue(ResName resName, String qualifiers) {
-        init();
+        init(ResourceKind.VALUES);
 
         if (resName == null) return null;
         resName = new ResName(resName.namespace, "integer-array", resName.name); // ugh
@@ -212,20 +499,20 @@ public class PackageResourceLoader implements ResourceLoader {
 
     @Override
     public PreferenceScreen inflatePreferences(Context context, int resourceId) {
-        init();
+        init(ResourceKind.XML);
         return preferenceLoader.inflatePreferences(context, resourceId);
     }
 
     @Override
     public ViewNode getLayoutViewNode(ResName resName, String qualifiers) {
-        init();
+        init(ResourceKind.LAYOUTS);
         if (resName == null) return null;
         return viewNodes.get(resName, qualifiers);
     }
 
     @Override
     public MenuNode getMenuNode(ResName resName, String qualifiers) {
-        init();
+        init(ResourceKind.MENUS);
         if (resName == null) return null;
         return menuNodes.get(resName, qualifiers);
     }
@@ -237,18 +524,87 @@ public class PackageResourceLoader implements ResourceLoader {
 
     @Override
     public boolean hasAttributeFor(Class<? extends View> viewClass, String namespace, String attribute) {
-        init();
+        init(ResourceKind.VALUES);
         return attrResourceLoader.hasAttributeFor(viewClass, namespace, attribute);
     }
 
     @Override
     public String convertValueToEnum(Class<? extends View> viewClass, String namespace, String attribute, String part) {
-        init();
+        init(ResourceKind.VALUES);
         return attrResourceLoader.convertValueToEnum(viewClass, namespace, attribute, part);
     }
 
-    abstract static class Resolver<T> extends ResBundle<String> {
+    /**
+     * Converts raw values, following references, the first time each name is resolved for a set of qualifiers. Results
+     * are kept in a {@link ResolvedValueTable} per qualifier string, by resource id; names without an id are resolved
+     * every time.
+     */
+    abstract static class Resolver<T, V extends ResolvedValueTable> extends ResBundle<String> {
+        private final ResourceExtractor resourceExtractor;
+        private final ConcurrentHashMap<String, V> resolvedValues = new ConcurrentHashMap<String, V>();
+
+        Resolver(ResourceExtractor resourceExtractor) {
+            this.resourceExtractor = resourceExtractor;
+        }
+
+        /**
+         * Forgets every resolved value. Called once values have been loaded or reloaded, rather than on every put.
+         */
+        void forgetResolvedValues() {
+            resolvedValues.clear();
+        }
+
+        @Override
+        public void clear() {
+            resolvedValues.clear();
+            super.clear();
+        }
+
         public T resolve(ResName resName, String qualifiers) {
+            if (resName == null) return null;
+
+            int id = resourceExtractor.findResourceId(resName);
+            if (id == ResourceIdTable.NO_ID) return resolveUncached(resName, qualifiers);
+
+            V table = tableFor(qualifiers);
+            int state = lookUp(table, id, resName, qualifiers);
+            return state == ResolvedValueTable.FOUND ? get(table, id) : null;
+        }
+
+        /**
+         * @return the state of {@code id} in {@code table}, resolving and storing its value first if need be
+         */
+        int lookUp(V table, int id, ResName resName, String qualifiers) {
+            int state = table.stateOf(id);
+            if (ResourceLoadingListener.isListening()) {
+                ResourceLoadingListener.notifyValueResolved(resName, state != ResolvedValueTable.UNRESOLVED);
+            }
+            if (state != ResolvedValueTable.UNRESOLVED) return state;
+
+            T value = resolveUncached(resName, qualifiers);
+            if (value == null) {
+                table.putNotFound(id);
+                return ResolvedValueTable.NOT_FOUND;
+            }
+            put(table, id, value);
+            return ResolvedValueTable.FOUND;
+        }
+
+        V tableFor(String qualifiers) {
+            V table = resolvedValues.get(qualifiers);
+            if (table == null) {
+                V newTable = newTable();
+                table = resolvedValues.putIfAbsent(qualifiers, newTable);
+                if (table == null) table = newTable;
+            }
+            return table;
+        }
+
+        int findResourceId(ResName resName) {
+            return resName == null ? ResourceIdTable.NO_ID : resourceExtractor.findResourceId(resName);
+        }
+
+        private T resolveUncached(ResName resName, String qualifiers) {
             Value<String> value = getValue(resName, qualifiers);
             if (value == null) return null;
             return resolveValue(qualifiers, value.value, value.xmlContext.packageName);
@@ -276,9 +632,86 @@ public class PackageResourceLoader implements ResourceLoader {
         }
 
         abstract T convert(String rawValue);
+
+        abstract V newTable();
+
+        abstract T get(V table, int id);
+
+        abstract void put(V table, int id, T value);
     }
 
-    private static class BooleanResolver extends Resolver<Boolean> {
+    abstract static class IntResolver extends Resolver<Integer, ResolvedValueTable.Ints> {
+        IntResolver(ResourceExtractor resourceExtractor) {
+            super(resourceExtractor);
+        }
+
+        /**
+         * Like {@link #resolve(ResName, String)}, but without boxing once the value has been resolved.
+         */
+        int resolveInt(ResName resName, String qualifiers) {
+            int id = findResourceId(resName);
+            if (id == ResourceIdTable.NO_ID) return notFoundIfNull(resolve(resName, qualifiers), resName);
+
+            ResolvedValueTable.Ints table = tableFor(qualifiers);
+            if (lookUp(table, id, resName, qualifiers) != ResolvedValueTable.FOUND) throw notFound(resName);
+            return table.get(id);
+        }
+
+        int resolveInt(ResName resName, String qualifiers, int notFound) {
+            int id = findResourceId(resName);
+            if (id == ResourceIdTable.NO_ID) {
+                Integer value = resolve(resName, qualifiers);
+                return value == null ? notFound : value;
+            }
+
+            ResolvedValueTable.Ints table = tableFor(qualifiers);
+            return lookUp(table, id, resName, qualifiers) == ResolvedValueTable.FOUND ? table.get(id) : notFound;
+        }
+
+        @Override ResolvedValueTable.Ints newTable() {
+            return new ResolvedValueTable.Ints();
+        }
+
+        @Override Integer get(ResolvedValueTable.Ints table, int id) {
+            return table.get(id);
+        }
+
+        @Override void put(ResolvedValueTable.Ints table, int id, Integer value) {
+            table.put(id, value);
+        }
+    }
+
+    /**
+     * What one kind of resource loaded from one resource path, kept while watching for changes.
+     */
+    private static class LoadedResources {
+        ResourceDirSnapshot snapshot;
+        ResourceTable table;                    // values, layouts and menus
+        ResBundle<DrawableNode> drawables;
+        RawResourceLoader rawResourceLoader;
+
+        LoadedResources(ResourceDirSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    private static class BooleanResolver extends Resolver<Boolean, ResolvedValueTable.Booleans> {
+        BooleanResolver(ResourceExtractor resourceExtractor) {
+            super(resourceExtractor);
+        }
+
+        /**
+         * Like {@link #resolve(ResName, String)}, but without boxing once the value has been resolved.
+         */
+        boolean resolveBoolean(ResName resName, String qualifiers) {
+            int id = findResourceId(resName);
+            if (id == ResourceIdTable.NO_ID) return notFoundIfNull(resolve(resName, qualifiers), resName);
+
+            ResolvedValueTable.Booleans table = tableFor(qualifiers);
+            if (lookUp(table, id, resName, qualifiers) != ResolvedValueTable.FOUND) throw notFound(resName);
+            return table.get(id);
+        }
+
         @Override
         Boolean convert(String rawValue) {
             if ("true".equalsIgnoreCase(rawValue)) {
@@ -294,9 +727,25 @@ public class PackageResourceLoader implements ResourceLoader {
             return true;
 
         }
+
+        @Override ResolvedValueTable.Booleans newTable() {
+            return new ResolvedValueTable.Booleans();
+        }
+
+        @Override Boolean get(ResolvedValueTable.Booleans table, int id) {
+            return table.get(id);
+        }
+
+        @Override void put(ResolvedValueTable.Booleans table, int id, Boolean value) {
+            table.put(id, value);
+        }
     }
 
-    private static class ColorResolver extends Resolver<Integer> {
+    private static class ColorResolver extends IntResolver {
+        ColorResolver(ResourceExtractor resourceExtractor) {
+            super(resourceExtractor);
+        }
+
         @Override
         Integer convert(String rawValue) {
             if (rawValue.startsWith("#")) {
@@ -307,9 +756,25 @@ public class PackageResourceLoader implements ResourceLoader {
         }
     }
 
-    private static class DimenResolver extends Resolver<Float> {
+    private static class DimenResolver extends Resolver<Float, ResolvedValueTable.Floats> {
         private static final String[] UNITS = { "dp", "dip", "pt", "px", "sp" };
 
+        DimenResolver(ResourceExtractor resourceExtractor) {
+            super(resourceExtractor);
+        }
+
+        /**
+         * Like {@link #resolve(ResName, String)}, but without boxing once the value has been resolved.
+         */
+        float resolveFloat(ResName resName, String qualifiers) {
+            int id = findResourceId(resName);
+            if (id == ResourceIdTable.NO_ID) return notFoundIfNull(resolve(resName, qualifiers), resName);
+
+            ResolvedValueTable.Floats table = tableFor(qualifiers);
+            if (lookUp(table, id, resName, qualifiers) != ResolvedValueTable.FOUND) throw notFound(resName);
+            return table.get(id);
+        }
+
         @Override
         Float convert(String rawValue) {
             int end = rawValue.length();
@@ -322,9 +787,25 @@ public class PackageResourceLoader implements ResourceLoader {
 
             return Float.parseFloat(rawValue.substring(0, end));
         }
+
+        @Override ResolvedValueTable.Floats newTable() {
+            return new ResolvedValueTable.Floats();
+        }
+
+        @Override Float get(ResolvedValueTable.Floats table, int id) {
+            return table.get(id);
+        }
+
+        @Override void put(ResolvedValueTable.Floats table, int id, Float value) {
+            table.put(id, value);
+        }
     }
 
-    private static class IntegerResolver extends Resolver<Integer> {
+    private static class IntegerResolver extends IntResolver {
+        IntegerResolver(ResourceExtractor resourceExtractor) {
+            super(resourceExtractor);
+        }
+
         @Override
         Integer convert(String rawValue) {
             try {
@@ -341,17 +822,61 @@ public class PackageResourceLoader implements ResourceLoader {
     private static class PluralsResolver extends ResBundle<PluralResourceLoader.PluralRules> {
     }
 
-    static class StringResolver extends Resolver<String> {
+    static class StringResolver extends Resolver<String, ResolvedValueTable.References<String>> {
+        StringResolver(ResourceExtractor resourceExtractor) {
+            super(resourceExtractor);
+        }
+
         @Override
         String convert(String rawValue) {
             return rawValue;
         }
+
+        @Override ResolvedValueTable.References<String> newTable() {
+            return new ResolvedValueTable.References<String>();
+        }
+
+        @Override String get(ResolvedValueTable.References<String> table, int id) {
+            return table.get(id);
+        }
+
+        @Override void put(ResolvedValueTable.References<String> table, int id, String value) {
+            table.put(id, value);
+        }
     }
 
-    private static class StringArrayResolver extends Resolver<String[]> {
+    private static class StringArrayResolver extends Resolver<String[], ResolvedValueTable.References<String[]>> {
+        StringArrayResolver(ResourceExtractor resourceExtractor) {
+            super(resourceExtractor);
+        }
+
         @Override
         String[] convert(String rawValue) {
             return new String[0];
         }
+
+        @Override ResolvedValueTable.References<String[]> newTable() {
+            return new ResolvedValueTable.References<String[]>();
+        }
+
+        @Override String[] get(ResolvedValueTable.References<String[]> table, int id) {
+            return table.get(id);
+        }
+
+        @Override void put(ResolvedValueTable.References<String[]> table, int id, String[] value) {
+            table.put(id, value);
+        }
+    }
+
+    /**
+     * Missing booleans, dimens and integers have always surfaced as a NullPointerException, from unboxing.
+     */
+    private static <T> T notFoundIfNull(T value, ResName resName) {
+        if (value == null) throw notFound(resName);
+        return value;
+    }
+
+    private static NullPointerException notFound(ResName resName) {
+        return new NullPointerException("no value for " + resName);
     }
 }
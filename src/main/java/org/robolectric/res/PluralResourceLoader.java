@@ -1,34 +1,44 @@
 package org.robolectric.res;
 
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import java.util.ArrayList;
 import java.util.List;
 
-public class PluralResourceLoader extends XpathResourceXmlLoader {
+public class PluralResourceLoader extends StaxLoader {
     private ResBundle<PluralRules> pluralRulesResBundle;
 
+    private String name;
+    private PluralRules rules;
+    private String quantity;
+    private StringBuilder text;
+
     public PluralResourceLoader(ResourceExtractor resourceExtractor, ResBundle<PluralRules> pluralRulesResBundle) {
-        super("/resources/plurals", "plurals");
         this.pluralRulesResBundle = pluralRulesResBundle;
     }
 
-    @Override protected void processNode(Node node, String name, XmlContext xmlContext, String attrType) throws XPathExpressionException {
-        XPathExpression itemXPath = XPathFactory.newInstance().newXPath().compile("item");
-        NodeList childNodes = (NodeList) itemXPath.evaluate(node, XPathConstants.NODESET);
-        PluralRules rules = new PluralRules();
-        for (int j = 0; j < childNodes.getLength(); j++) {
-            Node childNode = childNodes.item(j);
-            String value = childNode.getTextContent();
-            String quantity = childNode.getAttributes().getNamedItem("quantity").getTextContent();
-            rules.add(new Plural(quantity, value));
+    @Override protected void startElement(XmlElement element, XmlContext xmlContext) {
+        if (element.isAt("plurals", "resources")) {
+            name = element.getAttributeValue("name");
+            rules = new PluralRules();
+        } else if (rules != null && element.isAt("item", "resources", "plurals")) {
+            quantity = element.getAttributeValue("quantity");
+            text = new StringBuilder();
+        }
+    }
+
+    @Override protected void characters(String text, boolean cdata, XmlContext xmlContext) {
+        if (this.text != null) {
+            this.text.append(text);
+        }
+    }
+
+    @Override protected void endElement(XmlElement element, XmlContext xmlContext) {
+        if (text != null && element.depth == 3) {
+            rules.add(new Plural(quantity, text.toString()));
+            text = null;
+        } else if (rules != null && element.depth == 2) {
+            pluralRulesResBundle.put("plurals", name, rules, xmlContext);
+            rules = null;
         }
-        pluralRulesResBundle.put(attrType, name, rules, xmlContext);
     }
 
     static class PluralRules {
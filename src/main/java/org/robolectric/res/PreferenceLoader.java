@@ -9,12 +9,7 @@ import org.robolectric.Robolectric;
 import org.robolectric.tester.android.util.Attribute;
 import org.robolectric.tester.android.util.TestAttributeSet;
 import org.robolectric.util.I18nException;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import java.io.File;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -23,53 +18,59 @@ import java.util.Map;
 
 import static org.robolectric.Robolectric.shadowOf;
 
-public class PreferenceLoader extends XmlLoader {
+public class PreferenceLoader extends StaxLoader {
 
     private final ResourceExtractor resourceExtractor;
     private Map<String, PreferenceNode> prefNodesByResourceName = new HashMap<String, PreferenceNode>();
 
+    private PreferenceNode topLevelNode;
+    private final List<PreferenceNode> openNodes = new ArrayList<PreferenceNode>();
+
     public PreferenceLoader(ResourceExtractor resourceExtractor) {
         this.resourceExtractor = resourceExtractor;
     }
 
     @Override
-    protected void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
-        PreferenceNode topLevelNode = new PreferenceNode("top-level", new ArrayList<Attribute>());
-        processChildren(document.getChildNodes(), topLevelNode, xmlContext);
-        prefNodesByResourceName.put(xmlContext.packageName + ":xml/" + xmlFile.getName().replace(".xml", ""), topLevelNode.getChildren().get(0));
+    protected void startDocument(XmlContext xmlContext) {
+        topLevelNode = new PreferenceNode("top-level", new ArrayList<Attribute>());
+        openNodes.clear();
+        openNodes.add(topLevelNode);
     }
 
-    private void processChildren(NodeList childNodes, PreferenceNode parent, XmlContext xmlContext) {
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node node = childNodes.item(i);
-            processNode(node, parent, xmlContext);
+    @Override
+    protected void startElement(XmlElement element, XmlContext xmlContext) {
+        List<Attribute> attrList = new ArrayList<Attribute>();
+        for (int i = 0; i < element.getAttributeCount(); i++) {
+            String attrName = ResourceExtractor.qualifyResourceName(element.getAttributeName(i), xmlContext.packageName);
+            if (attrName.startsWith("xmlns:")) {
+                // ignore
+            } else {
+                attrList.add(new Attribute(Attribute.addType(attrName, "attr"), element.getAttributeValue(i), xmlContext.packageName));
+            }
         }
+
+        PreferenceNode prefNode = new PreferenceNode(element.name, attrList);
+        openNodes.get(openNodes.size() - 1).addChild(prefNode);
+        openNodes.add(prefNode);
     }
 
-    private void processNode(Node node, PreferenceNode parent, XmlContext xmlContext) {
-        String name = node.getNodeName();
-        NamedNodeMap attributes = node.getAttributes();
-        List<Attribute> attrList = new ArrayList<Attribute>();
+    @Override
+    protected void endElement(XmlElement element, XmlContext xmlContext) {
+        openNodes.remove(openNodes.size() - 1);
+    }
 
-        if (attributes != null) {
-            int length = attributes.getLength();
-            for (int i = 0; i < length; i++) {
-                Node attr = attributes.item(i);
-                String attrName = ResourceExtractor.qualifyResourceName(attr.getNodeName(), xmlContext.packageName);
-                if (attrName.startsWith("xmlns:")) {
-                    // ignore
-                } else {
-                    attrList.add(new Attribute(Attribute.addType(attrName, "attr"), attr.getNodeValue(), xmlContext.packageName));
-                }
-            }
-        }
+    @Override
+    protected void endDocument(XmlContext xmlContext) {
+        prefNodesByResourceName.put(key(xmlContext), topLevelNode.getChildren().get(0));
+        topLevelNode = null;
+    }
 
-        if (!name.startsWith("#")) {
-            PreferenceNode prefNode = new PreferenceNode(name, attrList);
-            if (parent != null) parent.addChild(prefNode);
+    void removeResourceXml(XmlContext xmlContext) {
+        prefNodesByResourceName.remove(key(xmlContext));
+    }
 
-            processChildren(node.getChildNodes(), prefNode, xmlContext);
-        }
+    private String key(XmlContext xmlContext) {
+        return xmlContext.packageName + ":xml/" + xmlContext.getXmlFile().getName().replace(".xml", "");
     }
 
     public PreferenceScreen inflatePreferences(Context context, int resourceId) {
@@ -0,0 +1,188 @@
+package org.robolectric.res;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A resource directory's qualifiers (e.g. {@code en-rGB-port-hdpi}) parsed into typed fields: locale, density,
+ * orientation, screen size, version and so on.
+ *
+ * Each qualifier is stored as an int code in the field it belongs to, so matching one is an int comparison.
+ * Qualifiers that don't belong to any field, that aren't in their canonical form (e.g. {@code v07}), or that repeat a
+ * field already set are kept as strings, so a configuration has exactly the qualifiers it was parsed from.
+ */
+class Qualifiers {
+    private static final String[] NO_STRINGS = new String[0];
+    // every value from a resource directory has the same qualifiers, so each string is only parsed once
+    private static final ConcurrentHashMap<String, Qualifiers> PARSED = new ConcurrentHashMap<String, Qualifiers>();
+
+    /**
+     * The qualifier fields, in the order Android lists them.
+     */
+    enum Field {
+        MCC(NO_STRINGS, "mcc", ""),
+        MNC(NO_STRINGS, "mnc", ""),
+        LANGUAGE {
+            @Override int parse(String qualifier) {
+                return qualifier.length() == 2 ? packLetters(qualifier, 0, 'a') : 0;
+            }
+        },
+        REGION {
+            @Override int parse(String qualifier) {
+                return qualifier.length() == 3 && qualifier.charAt(0) == 'r' ? packLetters(qualifier, 1, 'A') : 0;
+            }
+        },
+        LAYOUT_DIRECTION("ldltr", "ldrtl"),
+        SMALLEST_WIDTH(NO_STRINGS, "sw", "dp"),
+        WIDTH(NO_STRINGS, "w", "dp"),
+        HEIGHT(NO_STRINGS, "h", "dp"),
+        SCREEN_SIZE("small", "normal", "large", "xlarge"),
+        SCREEN_ASPECT("long", "notlong"),
+        ORIENTATION("port", "land", "square"),
+        UI_MODE("car", "desk", "television", "appliance", "watch"),
+        NIGHT_MODE("night", "notnight"),
+        DENSITY(new String[] {"ldpi", "mdpi", "tvdpi", "hdpi", "xhdpi", "xxhdpi", "xxxhdpi", "nodpi", "anydpi"}, "", "dpi"),
+        TOUCHSCREEN("notouch", "stylus", "finger"),
+        KEYS_HIDDEN("keysexposed", "keyshidden", "keyssoft"),
+        KEYBOARD("nokeys", "qwerty", "12key"),
+        NAV_HIDDEN("navexposed", "navhidden"),
+        NAVIGATION("nonav", "dpad", "trackball", "wheel"),
+        VERSION(NO_STRINGS, "v", "");
+
+        private static final Field[] FIELDS = values();
+
+        private final String[] keywords;
+        private final String prefix;
+        private final String suffix;
+
+        Field() {
+            this(NO_STRINGS, null, null);
+        }
+
+        Field(String... keywords) {
+            this(keywords, null, null);
+        }
+
+        /**
+         * @param prefix and {@code suffix} surround a number, for fields that take one; or null
+         */
+        Field(String[] keywords, String prefix, String suffix) {
+            this.keywords = keywords;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        /**
+         * @return a code for {@code qualifier} that's unique within this field: negative for keywords, positive for
+         *     numbers and letters, or 0 if it doesn't belong here
+         */
+        int parse(String qualifier) {
+            for (int i = 0; i < keywords.length; i++) {
+                if (keywords[i].equals(qualifier)) return -(i + 1);
+            }
+            if (prefix == null || !qualifier.startsWith(prefix) || !qualifier.endsWith(suffix)) return 0;
+
+            int end = qualifier.length() - suffix.length();
+            if (end <= prefix.length() || end - prefix.length() > 9) return 0;
+            int number = 0;
+            for (int i = prefix.length(); i < end; i++) {
+                char c = qualifier.charAt(i);
+                if (c < '0' || c > '9' || (c == '0' && i == prefix.length() && end - i > 1)) return 0;
+                number = number * 10 + (c - '0');
+            }
+            return number + 1;
+        }
+
+        private static int packLetters(String qualifier, int start, char first) {
+            int code = 0;
+            for (int i = start; i < qualifier.length(); i++) {
+                int letter = qualifier.charAt(i) - first;
+                if (letter < 0 || letter >= 26) return 0;
+                code = code * 27 + letter + 1;
+            }
+            return code;
+        }
+    }
+
+    private final int[] codes = new int[Field.FIELDS.length];
+    private final String[] others;
+
+    private Qualifiers(String[] qualifiers) {
+        List<String> others = null;
+        for (String qualifier : qualifiers) {
+            Qualifier parsed = Qualifier.parse(qualifier);
+            if (parsed.field != null && codes[parsed.field.ordinal()] == 0) {
+                codes[parsed.field.ordinal()] = parsed.code;
+            } else {
+                if (others == null) others = new ArrayList<String>();
+                others.add(qualifier);
+            }
+        }
+        this.others = others == null ? NO_STRINGS : others.toArray(new String[others.size()]);
+    }
+
+    /**
+     * @param qualifiers as in a resource directory name, without the type; the empty string, or null, for none
+     */
+    static Qualifiers parse(String qualifiers) {
+        if (qualifiers == null) qualifiers = "";
+        Qualifiers parsed = PARSED.get(qualifiers);
+        if (parsed == null) {
+            parsed = new Qualifiers(qualifiers.split("-", -1));
+            Qualifiers existing = PARSED.putIfAbsent(qualifiers, parsed);
+            if (existing != null) parsed = existing;
+        }
+        return parsed;
+    }
+
+    /**
+     * @return the code of this configuration's {@code field}, as {@link Field#parse(String)} gives it, or 0 if unset
+     */
+    int get(Field field) {
+        return codes[field.ordinal()];
+    }
+
+    boolean has(Qualifier qualifier) {
+        if (qualifier.field != null && codes[qualifier.field.ordinal()] == qualifier.code) return true;
+        for (String other : others) {
+            if (other.equals(qualifier.text)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * One qualifier, parsed into its field and code.
+     */
+    static class Qualifier {
+        final String text;
+        final Field field;
+        final int code;
+
+        private Qualifier(String text, Field field, int code) {
+            this.text = text;
+            this.field = field;
+            this.code = code;
+        }
+
+        static Qualifier parse(String text) {
+            for (Field field : Field.FIELDS) {
+                int code = field.parse(text);
+                if (code != 0) return new Qualifier(text, field, code);
+            }
+            return new Qualifier(text, null, 0);
+        }
+
+        /**
+         * @return the qualifiers in {@code qualifiers}, in order, as they're looked for when picking a value
+         */
+        static Qualifier[] parseAll(String qualifiers) {
+            String[] texts = qualifiers.split("-");
+            Qualifier[] parsed = new Qualifier[texts.length];
+            for (int i = 0; i < texts.length; i++) {
+                parsed[i] = parse(texts[i]);
+            }
+            return parsed;
+        }
+    }
+}
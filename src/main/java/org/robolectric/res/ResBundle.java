@@ -2,11 +2,14 @@ package org.robolectric.res;
 
 import org.robolectric.tester.android.util.ResName;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 class ResBundle<T> {
     private final ResMap<T> valuesMap = new ResMap<T>();
@@ -16,15 +19,13 @@ class ResBundle<T> {
     public void put(String attrType, String name, T value, XmlLoader.XmlContext xmlContext) {
         ResName resName = new ResName(maybeOverride(xmlContext.packageName), attrType, name);
         Values<T> values = valuesMap.find(resName);
-        values.add(new Value<T>(xmlContext.getQualifiers(), value, xmlContext));
-        Collections.sort(values);
+        values.insertSorted(new Value<T>(xmlContext.getQualifiers(), value, xmlContext));
     }
 
     public void putArray(String attrType, String name, List<T> value, XmlLoader.XmlContext xmlContext) {
         ResName resName = new ResName(maybeOverride(xmlContext.packageName), attrType, name);
         Values<List<T>> values = valuesArrayMap.find(resName);
-        values.add(new Value<List<T>>(xmlContext.getQualifiers(), value, xmlContext));
-        Collections.sort(values);
+        values.insertSorted(new Value<List<T>>(xmlContext.getQualifiers(), value, xmlContext));
     }
 
     public T get(ResName resName, String qualifiers) {
@@ -33,7 +34,7 @@ class ResBundle<T> {
     }
 
     public Value<T> getValue(ResName resName, String qualifiers) {
-        Values<T> values = valuesMap.find(maybeOverride(resName));
+        Values<T> values = valuesMap.get(maybeOverride(resName));
         return (values != null) ? pick(values, qualifiers) : null;
     }
 
@@ -43,42 +44,62 @@ class ResBundle<T> {
     }
 
     public Value<List<T>> getListValue(ResName resName, String qualifiers) {
-        Values<List<T>> values = valuesArrayMap.find(maybeOverride(resName));
+        Values<List<T>> values = valuesArrayMap.get(maybeOverride(resName));
         return (values != null) ? pick(values, qualifiers) : null;
     }
 
+    /**
+     * Picks the value whose qualifiers best match {@code qualifiers}: each qualifier in turn eliminates the candidates
+     * that don't have it (unless none do), until only one is left or the qualifiers run out. Qualifiers are compared as
+     * typed {@link Qualifiers} fields. Picks are remembered per qualifier string until the values change.
+     */
     public static <T> Value<T> pick(Values<T> values, String qualifiers) {
-        final int count = values.size();
-        if (count >= Long.SIZE) throw new RuntimeException("really, more than " + Long.SIZE + " qualifiers?!?");
-        if (count == 0) return null;
+        if (values.isEmpty()) return null;
 
-        long possibles = 0;
-        for (int i = 0; i < count; i++) possibles |= 1 << i;
-
-        String[] qualifierList = qualifiers.split("-");
-        for (String qualifier : qualifierList) {
-            String paddedQualifier = "-" + qualifier + "-";
-            long matches = 0;
-
-            for (int i = 0; i < count; i++) {
-                if ((possibles & (1 << i)) == 0) continue;
+        Values.Index<T> index = values.getIndex();
+        Value<T> picked = index.picks.get(qualifiers);
+        if (picked == null) {
+            picked = index.pick(qualifiers);
+            index.picks.put(qualifiers, picked);
+        }
+        return picked;
+    }
 
-                if (values.get(i).qualifiers.contains(paddedQualifier)) {
-                    matches |= 1 << i;
-                }
+    /**
+     * Adds everything in {@code other}, as if it had been put here in the same order.
+     */
+    public void mergeFrom(ResBundle<T> other) {
+        for (Map.Entry<ResName, Values<T>> entry : other.valuesMap.map.entrySet()) {
+            for (Value<T> value : entry.getValue()) {
+                put(entry.getKey().type, entry.getKey().name, value.value, value.xmlContext);
             }
-
-            if (matches != 0) {
-                possibles &= matches; // eliminate any that didn't match this qualifier
+        }
+        for (Map.Entry<ResName, Values<List<T>>> entry : other.valuesArrayMap.map.entrySet()) {
+            for (Value<List<T>> value : entry.getValue()) {
+                putArray(entry.getKey().type, entry.getKey().name, value.value, value.xmlContext);
             }
-
-            if (Long.bitCount(matches) == 1) break;
         }
+    }
 
-        for (int i = 0; i < count; i++) {
-            if ((possibles & (1 << i)) != 0) return values.get(i);
-        }
-        throw new IllegalStateException("couldn't handle qualifiers \"" + qualifiers + "\"");
+    /**
+     * Removes everything that was loaded from {@code xmlFile}.
+     */
+    public void removeFrom(File xmlFile) {
+        valuesMap.removeFrom(xmlFile);
+        valuesArrayMap.removeFrom(xmlFile);
+    }
+
+    public void clear() {
+        valuesMap.map.clear();
+        valuesArrayMap.map.clear();
+    }
+
+    Map<ResName, Values<T>> getValuesMap() {
+        return valuesMap.map;
+    }
+
+    Map<ResName, Values<List<T>>> getValuesArrayMap() {
+        return valuesArrayMap.map;
     }
 
     int size() {
@@ -100,6 +121,7 @@ class ResBundle<T> {
 
     static class Value<T> implements Comparable<Value<T>> {
         final String qualifiers;
+        final Qualifiers config;
         final T value;
         final XmlLoader.XmlContext xmlContext;
 
@@ -110,6 +132,7 @@ class ResBundle<T> {
 
             this.xmlContext = xmlContext;
             this.qualifiers = qualifiers == null ? "--" : "-" + qualifiers + "-";
+            this.config = Qualifiers.parse(qualifiers);
             this.value = value;
         }
 
@@ -120,15 +143,118 @@ class ResBundle<T> {
     }
 
     static class Values<T> extends ArrayList<Value<T>> {
+        private volatile Index<T> index;
+
+        /**
+         * Inserts after any values with the same qualifiers, as appending then sorting would.
+         */
+        void insertSorted(Value<T> value) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (get(mid).compareTo(value) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            add(low, value);
+        }
+
+        @Override public boolean add(Value<T> value) {
+            index = null;
+            return super.add(value);
+        }
+
+        @Override public void add(int position, Value<T> value) {
+            index = null;
+            super.add(position, value);
+        }
+
+        /**
+         * @return whether any values were removed
+         */
+        boolean removeFrom(File xmlFile) {
+            boolean removed = false;
+            for (Iterator<Value<T>> iterator = iterator(); iterator.hasNext(); ) {
+                if (iterator.next().xmlContext.getXmlFile().equals(xmlFile)) {
+                    iterator.remove();
+                    removed = true;
+                }
+            }
+            if (removed) index = null;
+            return removed;
+        }
+
+        /**
+         * Built at most once per change to the values, under their lock, and published through {@link #index}.
+         */
+        Index<T> getIndex() {
+            Index<T> index = this.index;
+            if (index == null) {
+                synchronized (this) {
+                    index = this.index;
+                    if (index == null) {
+                        this.index = index = new Index<T>(this);
+                    }
+                }
+            }
+            return index;
+        }
+
+        /**
+         * A snapshot of the values, with the picks made from them so far.
+         */
+        static class Index<T> {
+            private final List<Value<T>> values;
+            private final Map<String, Value<T>> picks = new ConcurrentHashMap<String, Value<T>>();
+
+            Index(List<Value<T>> values) {
+                this.values = new ArrayList<Value<T>>(values);
+            }
+
+            Value<T> pick(String qualifiers) {
+                BitSet possibles = new BitSet();
+                possibles.set(0, values.size());
+
+                for (Qualifiers.Qualifier qualifier : Qualifiers.Qualifier.parseAll(qualifiers)) {
+                    BitSet matches = new BitSet();
+                    for (int i = possibles.nextSetBit(0); i >= 0; i = possibles.nextSetBit(i + 1)) {
+                        if (values.get(i).config.has(qualifier)) matches.set(i);
+                    }
+                    if (!matches.isEmpty()) {
+                        possibles = matches; // eliminate any that didn't match this qualifier
+                    }
+
+                    if (matches.cardinality() == 1) break;
+                }
+
+                return values.get(possibles.nextSetBit(0));
+            }
+        }
     }
 
     private static class ResMap<T> {
         private final Map<ResName, Values<T>> map = new HashMap<ResName, Values<T>>();
 
+        public Values<T> get(ResName resName) {
+            return map.get(resName);
+        }
+
         public Values<T> find(ResName resName) {
             Values<T> values = map.get(resName);
             if (values == null) map.put(resName, values = new Values<T>());
             return values;
         }
+
+        public void removeFrom(File xmlFile) {
+            for (Iterator<Values<T>> iterator = map.values().iterator(); iterator.hasNext(); ) {
+                Values<T> values = iterator.next();
+                if (values.removeFrom(xmlFile) && values.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,178 @@
+package org.robolectric.res;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Values resolved for one set of qualifiers, in primitive arrays indexed by resource id, so lookups neither box nor
+ * lock.
+ *
+ * Like {@link ResourceIdTable}, there's an array for each package and type ({@code 0xPPTT} of {@code 0xPPTTEEEE}),
+ * indexed by entry. A resolver only sees a type or two per package, so those arrays are found by scanning a short
+ * list, which is replaced whenever one is added or grown. Each entry's state is published after its value, so a
+ * reader that sees {@link #FOUND} sees the value too. Writers take turns.
+ */
+abstract class ResolvedValueTable {
+    static final int UNRESOLVED = 0;
+    static final int FOUND = 1;
+    static final int NOT_FOUND = 2;
+
+    final Object writeLock = new Object();
+    private volatile Entries[] entriesByType = new Entries[0];
+
+    /**
+     * @return {@link #UNRESOLVED}, {@link #FOUND} or {@link #NOT_FOUND}
+     */
+    int stateOf(int id) {
+        Entries entries = entriesFor(id);
+        int entry = id & 0xffff;
+        return entries == null || entry >= entries.length ? UNRESOLVED : entries.states.get(entry);
+    }
+
+    void putNotFound(int id) {
+        synchronized (writeLock) {
+            entriesToWrite(id).states.set(id & 0xffff, NOT_FOUND);
+        }
+    }
+
+    abstract Object newValues(int length);
+
+    /**
+     * @return the array holding {@code id}'s value; only call once {@link #stateOf(int)} is {@link #FOUND}
+     */
+    Object valuesFor(int id) {
+        return entriesFor(id).values;
+    }
+
+    /**
+     * @return the array to write {@code id}'s value into; call with {@link #writeLock} held, then {@link #found(int)}
+     */
+    Object valuesToWrite(int id) {
+        return entriesToWrite(id).values;
+    }
+
+    void found(int id) {
+        entriesToWrite(id).states.set(id & 0xffff, FOUND);
+    }
+
+    private Entries entriesFor(int id) {
+        int type = id >>> 16;
+        Entries[] entriesByType = this.entriesByType;
+        for (int i = 0; i < entriesByType.length; i++) {
+            if (entriesByType[i].type == type) return entriesByType[i];
+        }
+        return null;
+    }
+
+    private Entries entriesToWrite(int id) {
+        int type = id >>> 16;
+        int entry = id & 0xffff;
+        Entries[] entriesByType = this.entriesByType;
+        for (int i = 0; i < entriesByType.length; i++) {
+            Entries entries = entriesByType[i];
+            if (entries.type != type) continue;
+            if (entry < entries.length) return entries;
+
+            int length = Math.max(entry + 1, Math.min(entries.length * 2, 0x10000));
+            Entries grown = new Entries(type, length, newValues(length));
+            System.arraycopy(entries.values, 0, grown.values, 0, entries.length);
+            for (int e = 0; e < entries.length; e++) {
+                grown.states.set(e, entries.states.get(e));
+            }
+            Entries[] replaced = entriesByType.clone();
+            replaced[i] = grown;
+            this.entriesByType = replaced;
+            return grown;
+        }
+
+        int length = Math.max(entry + 1, 64);
+        Entries added = new Entries(type, length, newValues(length));
+        Entries[] replaced = new Entries[entriesByType.length + 1];
+        System.arraycopy(entriesByType, 0, replaced, 0, entriesByType.length);
+        replaced[entriesByType.length] = added;
+        this.entriesByType = replaced;
+        return added;
+    }
+
+    private static class Entries {
+        private final int type;
+        private final int length;
+        private final Object values;
+        private final AtomicIntegerArray states;
+
+        Entries(int type, int length, Object values) {
+            this.type = type;
+            this.length = length;
+            this.values = values;
+            this.states = new AtomicIntegerArray(length);
+        }
+    }
+
+    static class Ints extends ResolvedValueTable {
+        int get(int id) {
+            return ((int[]) valuesFor(id))[id & 0xffff];
+        }
+
+        void put(int id, int value) {
+            synchronized (writeLock) {
+                ((int[]) valuesToWrite(id))[id & 0xffff] = value;
+                found(id);
+            }
+        }
+
+        @Override Object newValues(int length) {
+            return new int[length];
+        }
+    }
+
+    static class Floats extends ResolvedValueTable {
+        float get(int id) {
+            return ((float[]) valuesFor(id))[id & 0xffff];
+        }
+
+        void put(int id, float value) {
+            synchronized (writeLock) {
+                ((float[]) valuesToWrite(id))[id & 0xffff] = value;
+                found(id);
+            }
+        }
+
+        @Override Object newValues(int length) {
+            return new float[length];
+        }
+    }
+
+    static class Booleans extends ResolvedValueTable {
+        boolean get(int id) {
+            return ((boolean[]) valuesFor(id))[id & 0xffff];
+        }
+
+        void put(int id, boolean value) {
+            synchronized (writeLock) {
+                ((boolean[]) valuesToWrite(id))[id & 0xffff] = value;
+                found(id);
+            }
+        }
+
+        @Override Object newValues(int length) {
+            return new boolean[length];
+        }
+    }
+
+    static class References<T> extends ResolvedValueTable {
+        T get(int id) {
+            //noinspection unchecked
+            return ((T[]) valuesFor(id))[id & 0xffff];
+        }
+
+        void put(int id, T value) {
+            synchronized (writeLock) {
+                ((Object[]) valuesToWrite(id))[id & 0xffff] = value;
+                found(id);
+            }
+        }
+
+        @Override Object newValues(int length) {
+            return new Object[length];
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.robolectric.res;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The length and modification time of every file in one kind of directory (e.g. layout, layout-land...) of a
+ * {@link ResourcePath}, so the files that have changed since can be found without reading any of them.
+ */
+class ResourceDirSnapshot {
+    private final Map<File, Stamp> stamps = new HashMap<File, Stamp>();
+
+    ResourceDirSnapshot(ResourcePath resourcePath, String dirName, FileFilter fileFilter) {
+        File[] dirs = resourcePath.resourceBase.listFiles(new DirectoryMatchingFileFilter(dirName));
+        if (dirs == null) return;
+        for (File dir : dirs) {
+            File[] files = dir.listFiles(fileFilter);
+            if (files == null) continue;
+            for (File file : files) {
+                stamps.put(file, new Stamp(file.length(), file.lastModified()));
+            }
+        }
+    }
+
+    /**
+     * @return the files that have been added, changed or removed since {@code older} was taken
+     */
+    List<File> changedSince(ResourceDirSnapshot older) {
+        List<File> changedFiles = new ArrayList<File>();
+        for (Map.Entry<File, Stamp> entry : stamps.entrySet()) {
+            if (!entry.getValue().equals(older.stamps.get(entry.getKey()))) {
+                changedFiles.add(entry.getKey());
+            }
+        }
+        for (File file : older.stamps.keySet()) {
+            if (!stamps.containsKey(file)) {
+                changedFiles.add(file);
+            }
+        }
+        return changedFiles;
+    }
+
+    private static class Stamp {
+        private final long length;
+        private final long lastModified;
+
+        Stamp(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stamp)) return false;
+            Stamp that = (Stamp) o;
+            return length == that.length && lastModified == that.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (length ^ lastModified);
+        }
+    }
+}
@@ -11,10 +11,9 @@ public class ResourceExtractor {
     private static final ResourceRemapper RESOURCE_REMAPPER = new ResourceRemapper();
     private static final boolean REMAP_RESOURCES = false;
 
-    private Map<ResName, Integer> resourceNameToId = new HashMap<ResName, Integer>();
-    private Map<Integer, ResName> resourceIdToResName = new HashMap<Integer, ResName>();
+    private final ResourceIdTable resourceIds = new ResourceIdTable();
     private Set<Class> processedRFiles = new HashSet<Class>();
-    private Integer maxUsedInt = null;
+    private int maxUsedInt = ResourceIdTable.NO_ID;
 
     public ResourceExtractor() {
     }
@@ -28,16 +27,7 @@ public class ResourceExtractor {
             }
             processedRFiles.addAll(subExtractor.processedRFiles);
 
-            merge(resourceNameToId, subExtractor.resourceNameToId, "resourceNameToId");
-            merge(resourceIdToResName, subExtractor.resourceIdToResName, "resourceIdToResName");
-        }
-    }
-
-    private static <K,V> void merge(Map<K, V> map1, Map<K, V> map2, String name) {
-        int expected = map1.size() + map2.size();
-        map1.putAll(map2);
-        if (map1.size() != expected) {
-            throw new IllegalStateException("there must have been some overlap for " + name + "! expected " + expected + " but got " + map1.size());
+            resourceIds.putAll(subExtractor.resourceIds);
         }
     }
 
@@ -54,6 +44,14 @@ public class ResourceExtractor {
     }
 
     private void addRClass(Class<?> rClass) {
+        long startNanos = System.nanoTime();
+        extractRClass(rClass);
+        if (ResourceLoadingListener.isListening()) {
+            ResourceLoadingListener.notifyRClassExtracted(rClass, System.nanoTime() - startNanos);
+        }
+    }
+
+    private void extractRClass(Class<?> rClass) {
         if (REMAP_RESOURCES) RESOURCE_REMAPPER.remapRClass(rClass);
 
         if (!processedRFiles.add(rClass)) {
@@ -76,14 +74,12 @@ public class ResourceExtractor {
                   if (!section.equals("styleable")) {
                     ResName resName = new ResName(packageName, section, field.getName());
 
-                    resourceNameToId.put(resName, value);
-
-                    if (resourceIdToResName.containsKey(value) && REMAP_RESOURCES) {
+                    if (REMAP_RESOURCES && resourceIds.getName(value) != null) {
                       throw new RuntimeException(
-                          value + " is already defined with name: " + resourceIdToResName.get(value) + " can't also call it: " + resName);
+                          value + " is already defined with name: " + resourceIds.getName(value) + " can't also call it: " + resName);
                     }
 
-                    resourceIdToResName.put(value, resName);
+                    resourceIds.put(resName, value);
                   }
                 }
             }
@@ -107,18 +103,29 @@ public class ResourceExtractor {
         return resourceId;
     }
 
+    /**
+     * Unlike {@link #getResourceId(ResName)}, never assigns an id and doesn't box.
+     *
+     * @return {@code resName}'s id, or {@link ResourceIdTable#NO_ID} if it has none
+     */
+    int findResourceId(ResName resName) {
+        return resourceIds.getId(resName);
+    }
+
     public Integer getResourceId(ResName resName) {
-        Integer id = resourceNameToId.get(resName);
-        if (id == null && "android".equals(resName.namespace)) {
-            if (maxUsedInt == null) {
-                maxUsedInt = resourceIdToResName.isEmpty() ? 0 : Collections.max(resourceIdToResName.keySet());
+        int id = resourceIds.getId(resName);
+        if (id != ResourceIdTable.NO_ID) return id;
+
+        if ("android".equals(resName.namespace)) {
+            if (maxUsedInt == ResourceIdTable.NO_ID) {
+                maxUsedInt = resourceIds.getMaxId();
             }
             id = ++maxUsedInt;
-            resourceNameToId.put(resName, id);
-            resourceIdToResName.put(id, resName);
+            resourceIds.put(resName, id);
             System.out.println("INFO: no id mapping found for " + resName.getFullyQualifiedName() + "; assigning " + id);
+            return id;
         }
-        return id;
+        return null;
     }
 
     public static @NotNull String qualifyResourceName(String possiblyQualifiedResourceName, String contextPackageName) {
@@ -135,6 +142,6 @@ public class ResourceExtractor {
     }
 
     public ResName getResName(int resourceId) {
-        return resourceIdToResName.get(resourceId);
+        return resourceIds.getName(resourceId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package org.robolectric.res;
+
+import org.robolectric.tester.android.util.ResName;
+
+/**
+ * Two-way mapping between resource ids and {@link ResName}s that doesn't box ids.
+ *
+ * Names are looked up by id in dense arrays indexed by the package, type and entry bits of the id
+ * ({@code 0xPPTTEEEE}); aapt hands out entries contiguously from zero, so the arrays are barely sparse. Ids are
+ * looked up by name in an open-addressing (linear probing) hash table.
+ */
+class ResourceIdTable {
+    /** Never a valid resource id; returned by {@link #getId(ResName)} for unknown names. */
+    static final int NO_ID = 0;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ResName[][][] namesById = new ResName[256][][];
+    private int idCount;
+    private int maxId;
+
+    private ResName[] names = new ResName[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int nameCount;
+
+    int getId(ResName name) {
+        int slot = slotFor(names, name);
+        return names[slot] == null ? NO_ID : ids[slot];
+    }
+
+    ResName getName(int id) {
+        ResName[][] types = namesById[id >>> 24];
+        if (types == null) return null;
+        ResName[] entries = types[(id >>> 16) & 0xff];
+        int entry = id & 0xffff;
+        return entries == null || entry >= entries.length ? null : entries[entry];
+    }
+
+    /**
+     * @return the largest id in the table, or 0 if it's empty
+     */
+    int getMaxId() {
+        return maxId;
+    }
+
+    boolean isEmpty() {
+        return idCount == 0;
+    }
+
+    /**
+     * Maps {@code name} to {@code id} and {@code id} to {@code name}, replacing any earlier mapping for either.
+     */
+    void put(ResName name, int id) {
+        putId(name, id);
+        putName(id, name);
+    }
+
+    /**
+     * Adds everything from {@code other}, which must not share any names or ids with this table.
+     */
+    void putAll(ResourceIdTable other) {
+        for (int slot = 0; slot < other.names.length; slot++) {
+            ResName name = other.names[slot];
+            if (name == null) continue;
+            if (getId(name) != NO_ID) {
+                throw new IllegalStateException("there must have been some overlap for resourceNameToId! " + name + " is already mapped");
+            }
+            putId(name, other.ids[slot]);
+        }
+
+        for (int pkg = 0; pkg < other.namesById.length; pkg++) {
+            ResName[][] types = other.namesById[pkg];
+            if (types == null) continue;
+            for (int type = 0; type < types.length; type++) {
+                ResName[] entries = types[type];
+                if (entries == null) continue;
+                for (int entry = 0; entry < entries.length; entry++) {
+                    if (entries[entry] == null) continue;
+                    int id = (pkg << 24) | (type << 16) | entry;
+                    if (getName(id) != null) {
+                        throw new IllegalStateException("there must have been some overlap for resourceIdToResName! " + id + " is already mapped");
+                    }
+                    putName(id, entries[entry]);
+                }
+            }
+        }
+    }
+
+    private void putId(ResName name, int id) {
+        int slot = slotFor(names, name);
+        if (names[slot] == null) {
+            names[slot] = name;
+            if (++nameCount * 2 > names.length) {
+                rehash();
+            }
+            slot = slotFor(names, name);
+        }
+        ids[slot] = id;
+    }
+
+    private void putName(int id, ResName name) {
+        int pkg = id >>> 24;
+        int type = (id >>> 16) & 0xff;
+        int entry = id & 0xffff;
+
+        ResName[][] types = namesById[pkg];
+        if (types == null) {
+            types = namesById[pkg] = new ResName[256][];
+        }
+        ResName[] entries = types[type];
+        if (entries == null || entry >= entries.length) {
+            ResName[] grown = new ResName[Math.max(entry + 1, entries == null ? 64 : Math.min(entries.length * 2, 0x10000))];
+            if (entries != null) System.arraycopy(entries, 0, grown, 0, entries.length);
+            entries = types[type] = grown;
+        }
+
+        if (entries[entry] == null) {
+            if (idCount++ == 0 || id > maxId) maxId = id;
+        }
+        entries[entry] = name;
+    }
+
+    private void rehash() {
+        ResName[] oldNames = names;
+        int[] oldIds = ids;
+        names = new ResName[oldNames.length * 2];
+        ids = new int[oldNames.length * 2];
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                int slot = slotFor(names, oldNames[i]);
+                names[slot] = oldNames[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+
+    private static int slotFor(ResName[] names, ResName name) {
+        int mask = names.length - 1;
+        int hash = name.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (names[slot] != null && !names[slot].equals(name)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -48,4 +48,11 @@ public interface ResourceLoader {
     boolean hasAttributeFor(Class<? extends View> viewClass, String namespace, String attribute);
 
     String convertValueToEnum(Class<? extends View> viewClass, String namespace, String attribute, String part);
+
+    /**
+     * Reads again any resource files that have changed since they were loaded, if this loader watches for changes.
+     *
+     * @return whether anything was reloaded
+     */
+    boolean reloadChangedResources();
 }
@@ -0,0 +1,109 @@
+package org.robolectric.res;
+
+import org.robolectric.tester.android.util.ResName;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Told what resource loading is doing and how long it takes. Override the callbacks you care about, and
+ * {@link #add(ResourceLoadingListener) add} the listener before the resources are loaded.
+ *
+ * Resource files are parsed on several threads at once, so callbacks must be thread-safe. Listeners are kept per
+ * class loader, so add them from code loaded the same way as the {@link ResourceLoader} (e.g. from a test runner
+ * subclass or a test).
+ *
+ * @see ResourceLoadingStats
+ */
+public abstract class ResourceLoadingListener {
+    private static final List<ResourceLoadingListener> LISTENERS = new CopyOnWriteArrayList<ResourceLoadingListener>();
+
+    public static void add(ResourceLoadingListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void remove(ResourceLoadingListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Called after the resource ids in an R class have been read.
+     */
+    public void rClassExtracted(Class<?> rClass, long nanos) {
+    }
+
+    /**
+     * Called after an XML file has been read by every loader that wanted it.
+     */
+    public void fileParsed(File xmlFile, long bytes, long nanos) {
+    }
+
+    /**
+     * Called after one kind of resource (values, layouts, drawables...) has been loaded from a resource path,
+     * whether it was parsed or read from a compiled resource table.
+     */
+    public void resourcesLoaded(ResourcePath resourcePath, String kind, long nanos) {
+    }
+
+    /**
+     * Called when files of one kind of resource (values, layouts...) have changed in a resource path, before they're
+     * read again.
+     */
+    public void resourcesReloading(ResourcePath resourcePath, String kind, List<File> changedFiles) {
+    }
+
+    /**
+     * Called after every resource path has been loaded, once for each type of resource (string, layout...) it
+     * filled in.
+     */
+    public void bundleLoaded(String type, int entries) {
+    }
+
+    /**
+     * Called each time a value is looked up, with whether it had already been resolved for those qualifiers.
+     */
+    public void valueResolved(ResName resName, boolean cached) {
+    }
+
+    static boolean isListening() {
+        return !LISTENERS.isEmpty();
+    }
+
+    static void notifyRClassExtracted(Class<?> rClass, long nanos) {
+        for (ResourceLoadingListener listener : LISTENERS) {
+            listener.rClassExtracted(rClass, nanos);
+        }
+    }
+
+    static void notifyFileParsed(File xmlFile, long nanos) {
+        long bytes = xmlFile.length();
+        for (ResourceLoadingListener listener : LISTENERS) {
+            listener.fileParsed(xmlFile, bytes, nanos);
+        }
+    }
+
+    static void notifyResourcesLoaded(ResourcePath resourcePath, String kind, long nanos) {
+        for (ResourceLoadingListener listener : LISTENERS) {
+            listener.resourcesLoaded(resourcePath, kind, nanos);
+        }
+    }
+
+    static void notifyResourcesReloading(ResourcePath resourcePath, String kind, List<File> changedFiles) {
+        for (ResourceLoadingListener listener : LISTENERS) {
+            listener.resourcesReloading(resourcePath, kind, changedFiles);
+        }
+    }
+
+    static void notifyBundleLoaded(String type, int entries) {
+        for (ResourceLoadingListener listener : LISTENERS) {
+            listener.bundleLoaded(type, entries);
+        }
+    }
+
+    static void notifyValueResolved(ResName resName, boolean cached) {
+        for (ResourceLoadingListener listener : LISTENERS) {
+            listener.valueResolved(resName, cached);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.robolectric.res;
+
+import org.robolectric.tester.android.util.ResName;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adds up where resource loading spends its time, and how often looked-up values are already resolved. Read it
+ * directly, print it, or {@link #register()} it to watch from a JMX console (e.g. jconsole).
+ */
+public class ResourceLoadingStats extends ResourceLoadingListener implements ResourceLoadingStatsMXBean {
+    public static final String OBJECT_NAME = "org.robolectric:type=ResourceLoadingStats";
+
+    private final AtomicLong rClassesExtracted = new AtomicLong();
+    private final AtomicLong rClassExtractionNanos = new AtomicLong();
+    private final AtomicLong filesParsed = new AtomicLong();
+    private final AtomicLong bytesParsed = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong filesReloaded = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> loadNanosByKind = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<String, Integer> entriesByType = new ConcurrentHashMap<String, Integer>();
+    private final ConcurrentMap<String, AtomicLong> lookupsByType = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<String, AtomicLong> cachedLookupsByType = new ConcurrentHashMap<String, AtomicLong>();
+
+    /**
+     * Adds these stats to the platform MBean server as {@link #OBJECT_NAME}, unless something already has that name.
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // another class loader's stats got there first
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void rClassExtracted(Class<?> rClass, long nanos) {
+        rClassesExtracted.incrementAndGet();
+        rClassExtractionNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void fileParsed(File xmlFile, long bytes, long nanos) {
+        filesParsed.incrementAndGet();
+        bytesParsed.addAndGet(bytes);
+        parseNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void resourcesLoaded(ResourcePath resourcePath, String kind, long nanos) {
+        counter(loadNanosByKind, kind).addAndGet(nanos);
+    }
+
+    @Override
+    public void resourcesReloading(ResourcePath resourcePath, String kind, List<File> changedFiles) {
+        filesReloaded.addAndGet(changedFiles.size());
+    }
+
+    @Override
+    public void bundleLoaded(String type, int entries) {
+        entriesByType.put(type, entries);
+    }
+
+    @Override
+    public void valueResolved(ResName resName, boolean cached) {
+        counter(lookupsByType, resName.type).incrementAndGet();
+        if (cached) counter(cachedLookupsByType, resName.type).incrementAndGet();
+    }
+
+    @Override
+    public long getRClassesExtracted() {
+        return rClassesExtracted.get();
+    }
+
+    @Override
+    public long getRClassExtractionMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(rClassExtractionNanos.get());
+    }
+
+    @Override
+    public long getFilesParsed() {
+        return filesParsed.get();
+    }
+
+    @Override
+    public long getBytesParsed() {
+        return bytesParsed.get();
+    }
+
+    @Override
+    public long getParseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(parseNanos.get());
+    }
+
+    @Override
+    public long getFilesReloaded() {
+        return filesReloaded.get();
+    }
+
+    @Override
+    public Map<String, Long> getLoadMillisByKind() {
+        Map<String, Long> millis = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : loadNanosByKind.entrySet()) {
+            millis.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue().get()));
+        }
+        return millis;
+    }
+
+    @Override
+    public Map<String, Integer> getEntriesByType() {
+        return new TreeMap<String, Integer>(entriesByType);
+    }
+
+    @Override
+    public Map<String, Long> getLookupsByType() {
+        Map<String, Long> lookups = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : lookupsByType.entrySet()) {
+            lookups.put(entry.getKey(), entry.getValue().get());
+        }
+        return lookups;
+    }
+
+    @Override
+    public Map<String, Double> getLookupHitRateByType() {
+        Map<String, Double> hitRates = new TreeMap<String, Double>();
+        for (Map.Entry<String, AtomicLong> entry : lookupsByType.entrySet()) {
+            AtomicLong cached = cachedLookupsByType.get(entry.getKey());
+            long lookups = entry.getValue().get();
+            hitRates.put(entry.getKey(), cached == null || lookups == 0 ? 0.0 : (double) cached.get() / lookups);
+        }
+        return hitRates;
+    }
+
+    @Override
+    public void reset() {
+        rClassesExtracted.set(0);
+        rClassExtractionNanos.set(0);
+        filesParsed.set(0);
+        bytesParsed.set(0);
+        parseNanos.set(0);
+        filesReloaded.set(0);
+        loadNanosByKind.clear();
+        entriesByType.clear();
+        lookupsByType.clear();
+        cachedLookupsByType.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceLoadingStats{" +
+                "rClassesExtracted=" + getRClassesExtracted() +
+                ", rClassExtractionMillis=" + getRClassExtractionMillis() +
+                ", filesParsed=" + getFilesParsed() +
+                ", bytesParsed=" + getBytesParsed() +
+                ", parseMillis=" + getParseMillis() +
+                ", filesReloaded=" + getFilesReloaded() +
+                ", loadMillisByKind=" + getLoadMillisByKind() +
+                ", entriesByType=" + getEntriesByType() +
+                ", lookupsByType=" + getLookupsByType() +
+                ", lookupHitRateByType=" + getLookupHitRateByType() +
+                '}';
+    }
+
+    private static AtomicLong counter(ConcurrentMap<String, AtomicLong> counters, String key) {
+        AtomicLong counter = counters.get(key);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = counters.putIfAbsent(key, newCounter);
+            if (counter == null) counter = newCounter;
+        }
+        return counter;
+    }
+}
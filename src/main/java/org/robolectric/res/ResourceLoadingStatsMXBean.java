@@ -0,0 +1,42 @@
+package org.robolectric.res;
+
+import java.util.Map;
+
+/**
+ * What {@link ResourceLoadingStats} shows over JMX.
+ */
+public interface ResourceLoadingStatsMXBean {
+    long getRClassesExtracted();
+
+    long getRClassExtractionMillis();
+
+    long getFilesParsed();
+
+    long getBytesParsed();
+
+    long getParseMillis();
+
+    /**
+     * @return the number of changed files read again by {@link ResourceLoader#reloadChangedResources()}
+     */
+    long getFilesReloaded();
+
+    /**
+     * @return time spent loading each kind of resource (values, layout...), across all resource paths
+     */
+    Map<String, Long> getLoadMillisByKind();
+
+    /**
+     * @return the number of names of each type of resource (string, layout...) after the last load
+     */
+    Map<String, Integer> getEntriesByType();
+
+    Map<String, Long> getLookupsByType();
+
+    /**
+     * @return the fraction of lookups of each type that had already been resolved
+     */
+    Map<String, Double> getLookupHitRateByType();
+
+    void reset();
+}
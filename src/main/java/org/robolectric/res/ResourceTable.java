@@ -0,0 +1,657 @@
+package org.robolectric.res;
+
+import org.robolectric.tester.android.util.Attribute;
+import org.robolectric.tester.android.util.ResName;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Everything loaded from one kind of directory (values, layout or menu) of one {@link ResourcePath}. Loading those
+ * means parsing every file, so a table can be compiled into a binary file and read back by later JVMs for as long
+ * as neither its source files nor the code that parses them have changed:
+ *
+ * <pre>
+ *   int magic, int version, fingerprint,
+ *   string pool, xml contexts, bools, colors, dimens, integers, strings, plurals, layouts, menus, attrs
+ * </pre>
+ *
+ * The fingerprint covers the path, length and modification time of every source file, and the bytes of the classes
+ * that parse and encode resources, so a table compiled by another version of Robolectric is never read. Drawables and xml resources
+ * keep their parsed events in an {@link XmlBuffer}, which isn't compiled, so they're still parsed on every load.
+ */
+class ResourceTable {
+    private static final int MAGIC = 0x52657354;
+    private static final int VERSION = 1;
+    private static final Class<?>[] LOADER_CLASSES = {
+            ResourceTable.class, DocumentLoader.class, XmlLoader.class, ValueResourceLoader.class,
+            PluralResourceLoader.class, AttrResourceLoader.class, ViewLoader.class, ViewNode.class,
+            MenuLoader.class, MenuNode.class, ResBundle.class
+    };
+    private static final String LOADER_DIGEST = loaderDigest();
+    private static final FileFilter ENDS_WITH_XML = new FileFilter() {
+        @Override public boolean accept(File file) {
+            return file.getName().endsWith(".xml");
+        }
+    };
+
+    private static final ExecutorService PARSER_POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                @Override public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "resource parser");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    final ResBundle<String> booleans = new ResBundle<String>();
+    final ResBundle<String> colors = new ResBundle<String>();
+    final ResBundle<String> dimens = new ResBundle<String>();
+    final ResBundle<String> integers = new ResBundle<String>();
+    final ResBundle<String> strings = new ResBundle<String>();
+    final ResBundle<PluralResourceLoader.PluralRules> plurals = new ResBundle<PluralResourceLoader.PluralRules>();
+    final ResBundle<ViewNode> layouts = new ResBundle<ViewNode>();
+    final ResBundle<MenuNode> menus = new ResBundle<MenuNode>();
+    final AttrResourceLoader attrs = new AttrResourceLoader();
+
+    /**
+     * Reads the compiled table for {@code resourcePath}'s {@code dirName} directories from {@code tableDir} if it's
+     * still current, otherwise parses the resources and compiles them there. With a null {@code tableDir} the
+     * resources are just parsed.
+     */
+    static ResourceTable load(ResourcePath resourcePath, ResourceExtractor resourceExtractor, File tableDir, String dirName) throws Exception {
+        if (tableDir == null) return parse(resourcePath, resourceExtractor, dirName);
+
+        String fingerprint = fingerprint(resourcePath, dirName);
+        File tableFile = new File(tableDir, dirName + "-" + sha1(resourcePath.resourceBase.getAbsolutePath() + "|" + resourcePath.getPackageName()) + ".table");
+        ResourceTable resourceTable = read(tableFile, fingerprint);
+        if (resourceTable == null) {
+            resourceTable = parse(resourcePath, resourceExtractor, dirName);
+            resourceTable.write(tableFile, fingerprint);
+        }
+        return resourceTable;
+    }
+
+    /**
+     * Parses each directory into its own table on {@link #PARSER_POOL}, then merges them in the order a sequential
+     * load would have used, so the result doesn't depend on scheduling.
+     */
+    static ResourceTable parse(final ResourcePath resourcePath, final ResourceExtractor resourceExtractor, final String dirName) throws Exception {
+        List<Callable<ResourceTable>> tasks = new ArrayList<Callable<ResourceTable>>();
+        File[] dirs = resourcePath.resourceBase.listFiles(new DirectoryMatchingFileFilter(dirName));
+        if (dirs == null) return new ResourceTable();
+        for (final File dir : dirs) {
+            tasks.add(new Callable<ResourceTable>() {
+                @Override public ResourceTable call() throws Exception {
+                    ResourceTable resourceTable = new ResourceTable();
+                    resourceTable.documentLoaderFor(dirName, resourceExtractor).loadResourceXmlDir(resourcePath, dir);
+                    return resourceTable;
+                }
+            });
+        }
+
+        ResourceTable resourceTable = new ResourceTable();
+        if (tasks.size() == 1) {
+            resourceTable.mergeFrom(tasks.get(0).call());
+            return resourceTable;
+        }
+
+        for (Future<ResourceTable> partialTable : PARSER_POOL.invokeAll(tasks)) {
+            try {
+                resourceTable.mergeFrom(partialTable.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+                throw (Error) e.getCause();
+            }
+        }
+        return resourceTable;
+    }
+
+    DocumentLoader documentLoaderFor(String dirName, ResourceExtractor resourceExtractor) {
+        if (dirName.equals("values")) {
+            return new DocumentLoader(
+                    new ValueResourceLoader(booleans, "bool", false),
+                    new ValueResourceLoader(colors, "color", false),
+                    new ValueResourceLoader(dimens, "dimen", false),
+                    new ValueResourceLoader(integers, "integer", true),
+                    new PluralResourceLoader(resourceExtractor, plurals),
+                    new ValueResourceLoader(strings, "string", true),
+                    attrs);
+        } else if (dirName.equals("layout")) {
+            return new DocumentLoader(new ViewLoader(layouts));
+        } else {
+            return new DocumentLoader(new MenuLoader(menus));
+        }
+    }
+
+    /**
+     * Removes everything loaded from {@code xmlFile} except attrs, which aren't kept by file.
+     */
+    void removeFrom(File xmlFile) {
+        for (ResBundle<String> bundle : stringBundles()) {
+            bundle.removeFrom(xmlFile);
+        }
+        plurals.removeFrom(xmlFile);
+        layouts.removeFrom(xmlFile);
+        menus.removeFrom(xmlFile);
+    }
+
+    void mergeFrom(ResourceTable other) {
+        booleans.mergeFrom(other.booleans);
+        colors.mergeFrom(other.colors);
+        dimens.mergeFrom(other.dimens);
+        integers.mergeFrom(other.integers);
+        strings.mergeFrom(other.strings);
+        plurals.mergeFrom(other.plurals);
+        layouts.mergeFrom(other.layouts);
+        menus.mergeFrom(other.menus);
+        attrs.mergeFrom(other.attrs);
+    }
+
+    static String fingerprint(ResourcePath resourcePath, String dirName) {
+        StringBuilder buf = new StringBuilder(LOADER_DIGEST).append('\n').append(resourcePath.getPackageName());
+        File[] dirs = resourcePath.resourceBase.listFiles(new DirectoryMatchingFileFilter(dirName));
+        if (dirs != null) {
+            Arrays.sort(dirs);
+            for (File dir : dirs) {
+                File[] files = dir.listFiles(ENDS_WITH_XML);
+                if (files == null) continue;
+                Arrays.sort(files);
+                for (File file : files) {
+                    buf.append('\n').append(file.getPath())
+                            .append(' ').append(file.length())
+                            .append(' ').append(file.lastModified());
+                }
+            }
+        }
+        return sha1(buf.toString());
+    }
+
+    /**
+     * A digest of the bytes of {@link #LOADER_CLASSES} and of {@code ResourceTable}'s nested and anonymous classes
+     * (its codecs); a class whose bytes can't be read contributes just its name.
+     */
+    private static String loaderDigest() {
+        List<String> classNames = new ArrayList<String>();
+        for (Class<?> loaderClass : LOADER_CLASSES) {
+            classNames.add(loaderClass.getName());
+        }
+        for (Class<?> nestedClass : ResourceTable.class.getDeclaredClasses()) {
+            classNames.add(nestedClass.getName());
+        }
+        ClassLoader classLoader = ResourceTable.class.getClassLoader();
+        for (int i = 1; classLoader != null && classLoader.getResource(classFileName(ResourceTable.class.getName() + "$" + i)) != null; i++) {
+            classNames.add(ResourceTable.class.getName() + "$" + i);
+        }
+
+        StringBuilder buf = new StringBuilder();
+        for (String className : classNames) {
+            buf.append('\n').append(className).append(' ');
+            InputStream in = classLoader == null ? null : classLoader.getResourceAsStream(classFileName(className));
+            if (in == null) continue;
+            try {
+                try {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    byte[] chunk = new byte[4096];
+                    int count;
+                    while ((count = in.read(chunk)) != -1) {
+                        bytes.write(chunk, 0, count);
+                    }
+                    buf.append(sha1(bytes.toByteArray()));
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                // the name will have to do
+            }
+        }
+        return sha1(buf.toString());
+    }
+
+    private static String classFileName(String className) {
+        return className.replace('.', '/') + ".class";
+    }
+
+    void write(File tableFile, String fingerprint) {
+        try {
+            Writer body = new Writer();
+            body.writeContexts(this);
+            for (ResBundle<String> bundle : stringBundles()) {
+                body.writeBundle(bundle, STRING_CODEC);
+            }
+            body.writeBundle(plurals, PLURALS_CODEC);
+            body.writeBundle(layouts, VIEW_NODE_CODEC);
+            body.writeBundle(menus, MENU_NODE_CODEC);
+            body.writeAttrs(attrs);
+
+            File dir = tableFile.getAbsoluteFile().getParentFile();
+            if (!dir.exists()) dir.mkdirs();
+            // write then rename, so concurrently loading JVMs never map a partial table
+            File tempFile = File.createTempFile(tableFile.getName(), ".tmp", dir);
+            OutputStream fileOut = new FileOutputStream(tempFile);
+            try {
+                DataOutputStream out = new DataOutputStream(fileOut);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(fingerprint);
+                body.writeStringPool(out);
+                body.bytes.writeTo(out);
+                out.flush();
+            } finally {
+                fileOut.close();
+            }
+            if (!tempFile.renameTo(tableFile)) {
+                tableFile.delete();
+                if (!tempFile.renameTo(tableFile)) tempFile.delete();
+            }
+        } catch (IOException e) {
+            // just a cache; parse again next time
+        }
+    }
+
+    static ResourceTable read(File tableFile, String fingerprint) {
+        if (!tableFile.exists()) return null;
+
+        try {
+            // everything is decoded up front, so read the file onto the heap rather than keep a mapping alive
+            byte[] bytes = new byte[(int) tableFile.length()];
+            DataInputStream fileIn = new DataInputStream(new FileInputStream(tableFile));
+            try {
+                fileIn.readFully(bytes);
+            } finally {
+                fileIn.close();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+            byte[] fingerprintBytes = new byte[buffer.getShort() & 0xffff];
+            buffer.get(fingerprintBytes);
+            if (!new String(fingerprintBytes, "UTF-8").equals(fingerprint)) return null;
+
+            ResourceTable resourceTable = new ResourceTable();
+            Reader in = new Reader(buffer);
+            in.readContexts();
+            for (ResBundle<String> bundle : resourceTable.stringBundles()) {
+                in.readBundle(bundle, STRING_CODEC);
+            }
+            in.readBundle(resourceTable.plurals, PLURALS_CODEC);
+            in.readBundle(resourceTable.layouts, VIEW_NODE_CODEC);
+            in.readBundle(resourceTable.menus, MENU_NODE_CODEC);
+            in.readAttrs(resourceTable.attrs);
+            return resourceTable;
+        } catch (IOException e) {
+            return null;
+        } catch (RuntimeException e) {
+            return null; // truncated or otherwise corrupt
+        }
+    }
+
+    private List<ResBundle<String>> stringBundles() {
+        return Arrays.asList(booleans, colors, dimens, integers, strings);
+    }
+
+    private static String sha1(String string) {
+        try {
+            return sha1(string.getBytes("UTF-8"));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String sha1(byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder buf = new StringBuilder();
+            for (byte b : digest.digest(bytes)) {
+                buf.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+            }
+            return buf.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private interface Codec<T> {
+        void write(Writer out, T value) throws IOException;
+
+        T read(Reader in, XmlLoader.XmlContext xmlContext);
+    }
+
+    private static final Codec<String> STRING_CODEC = new Codec<String>() {
+        @Override public void write(Writer out, String value) throws IOException {
+            out.writeString(value);
+        }
+
+        @Override public String read(Reader in, XmlLoader.XmlContext xmlContext) {
+            return in.readString();
+        }
+    };
+
+    private static final Codec<PluralResourceLoader.PluralRules> PLURALS_CODEC = new Codec<PluralResourceLoader.PluralRules>() {
+        @Override public void write(Writer out, PluralResourceLoader.PluralRules pluralRules) throws IOException {
+            out.out.writeInt(pluralRules.plurals.size());
+            for (PluralResourceLoader.Plural plural : pluralRules.plurals) {
+                out.writeString(plural.quantity);
+                out.writeString(plural.string);
+            }
+        }
+
+        @Override public PluralResourceLoader.PluralRules read(Reader in, XmlLoader.XmlContext xmlContext) {
+            PluralResourceLoader.PluralRules pluralRules = new PluralResourceLoader.PluralRules();
+            int count = in.buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                pluralRules.add(new PluralResourceLoader.Plural(in.readString(), in.readString()));
+            }
+            return pluralRules;
+        }
+    };
+
+    private static final Codec<ViewNode> VIEW_NODE_CODEC = new Codec<ViewNode>() {
+        @Override public void write(Writer out, ViewNode viewNode) throws IOException {
+            out.writeString(viewNode.getName());
+            out.out.writeBoolean(viewNode.isFocusRequested());
+            out.writeAttributes(viewNode.getAttributes());
+            out.out.writeInt(viewNode.getChildren().size());
+            for (ViewNode child : viewNode.getChildren()) {
+                write(out, child);
+            }
+        }
+
+        @Override public ViewNode read(Reader in, XmlLoader.XmlContext xmlContext) {
+            String name = in.readString();
+            boolean focusRequested = in.buffer.get() != 0;
+            ViewNode viewNode = new ViewNode(name, in.readAttributes(), xmlContext);
+            if (focusRequested) viewNode.focusRequested();
+            int childCount = in.buffer.getInt();
+            for (int i = 0; i < childCount; i++) {
+                viewNode.addChild(read(in, xmlContext));
+            }
+            return viewNode;
+        }
+    };
+
+    private static final Codec<MenuNode> MENU_NODE_CODEC = new Codec<MenuNode>() {
+        @Override public void write(Writer out, MenuNode menuNode) throws IOException {
+            out.writeString(menuNode.getName());
+            out.writeAttributes(menuNode.getAttributes());
+            out.out.writeInt(menuNode.getChildren().size());
+            for (MenuNode child : menuNode.getChildren()) {
+                write(out, child);
+            }
+        }
+
+        @Override public MenuNode read(Reader in, XmlLoader.XmlContext xmlContext) {
+            MenuNode menuNode = new MenuNode(in.readString(), in.readAttributes());
+            int childCount = in.buffer.getInt();
+            for (int i = 0; i < childCount; i++) {
+                menuNode.addChild(read(in, xmlContext));
+            }
+            return menuNode;
+        }
+    };
+
+    /**
+     * Writes maps in key order rather than hash order, so a table's bytes depend only on what's in it and not on the
+     * order it was put together in.
+     */
+    private static class Writer {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+        private final List<String> stringPool = new ArrayList<String>();
+        private final Map<XmlLoader.XmlContext, Integer> contextIndexes = new IdentityHashMap<XmlLoader.XmlContext, Integer>();
+
+        void writeString(String string) throws IOException {
+            if (string == null) {
+                out.writeInt(-1);
+                return;
+            }
+
+            Integer index = stringIndexes.get(string);
+            if (index == null) {
+                index = stringPool.size();
+                stringPool.add(string);
+                stringIndexes.put(string, index);
+            }
+            out.writeInt(index);
+        }
+
+        void writeStringPool(DataOutputStream poolOut) throws IOException {
+            poolOut.writeInt(stringPool.size());
+            for (String string : stringPool) {
+                byte[] stringBytes = string.getBytes("UTF-8");
+                poolOut.writeInt(stringBytes.length);
+                poolOut.write(stringBytes);
+            }
+        }
+
+        void writeContexts(ResourceTable resourceTable) throws IOException {
+            List<XmlLoader.XmlContext> contexts = new ArrayList<XmlLoader.XmlContext>();
+            for (ResBundle<?> bundle : Arrays.<ResBundle<?>>asList(resourceTable.booleans, resourceTable.colors,
+                    resourceTable.dimens, resourceTable.integers, resourceTable.strings, resourceTable.plurals,
+                    resourceTable.layouts, resourceTable.menus)) {
+                collectContexts(bundle.getValuesMap(), contexts);
+                collectContexts(bundle.getValuesArrayMap(), contexts);
+            }
+
+            out.writeInt(contexts.size());
+            for (XmlLoader.XmlContext xmlContext : contexts) {
+                writeString(xmlContext.packageName);
+                writeString(xmlContext.getXmlFile().getPath());
+            }
+        }
+
+        private <T> void collectContexts(Map<ResName, ResBundle.Values<T>> valuesMap, List<XmlLoader.XmlContext> contexts) {
+            for (Map.Entry<ResName, ResBundle.Values<T>> entry : sortedByName(valuesMap)) {
+                for (ResBundle.Value<T> value : entry.getValue()) {
+                    if (!contextIndexes.containsKey(value.xmlContext)) {
+                        contextIndexes.put(value.xmlContext, contexts.size());
+                        contexts.add(value.xmlContext);
+                    }
+                }
+            }
+        }
+
+        <T> void writeBundle(ResBundle<T> bundle, Codec<T> codec) throws IOException {
+            writeValues(bundle.getValuesMap(), codec, false);
+            writeValues(bundle.getValuesArrayMap(), codec, true);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T, V> void writeValues(Map<ResName, ResBundle.Values<V>> valuesMap, Codec<T> codec, boolean arrays) throws IOException {
+            int count = 0;
+            for (ResBundle.Values<V> values : valuesMap.values()) {
+                count += values.size();
+            }
+
+            out.writeInt(count);
+            for (Map.Entry<ResName, ResBundle.Values<V>> entry : sortedByName(valuesMap)) {
+                for (ResBundle.Value<V> value : entry.getValue()) {
+                    writeString(entry.getKey().type);
+                    writeString(entry.getKey().name);
+                    out.writeInt(contextIndexes.get(value.xmlContext));
+                    if (arrays) {
+                        List<T> items = (List<T>) value.value;
+                        out.writeInt(items.size());
+                        for (T item : items) {
+                            codec.write(this, item);
+                        }
+                    } else {
+                        codec.write(this, (T) value.value);
+                    }
+                }
+            }
+        }
+
+        void writeAttributes(List<Attribute> attributes) throws IOException {
+            out.writeInt(attributes.size());
+            for (Attribute attribute : attributes) {
+                writeString(attribute.resName.namespace);
+                writeString(attribute.resName.type);
+                writeString(attribute.resName.name);
+                writeString(attribute.value);
+                writeString(attribute.contextPackageName);
+            }
+        }
+
+        void writeAttrs(AttrResourceLoader attrs) throws IOException {
+            writeStringMap(attrs.classEnumToValue);
+
+            out.writeInt(attrs.knownClassEnums.size());
+            for (String knownClassEnum : new TreeSet<String>(attrs.knownClassEnums)) {
+                writeString(knownClassEnum);
+            }
+
+            out.writeInt(attrs.enums.size());
+            for (AttrResourceLoader.EnumDef enumDef : new TreeMap<String, AttrResourceLoader.EnumDef>(attrs.enums).values()) {
+                writeString(enumDef.name);
+                writeStringMap(enumDef.values);
+            }
+
+            out.writeInt(attrs.enumRefs.size());
+            for (Map.Entry<String, AttrResourceLoader.EnumRef> entry : new TreeMap<String, AttrResourceLoader.EnumRef>(attrs.enumRefs).entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue().viewName);
+                writeString(entry.getValue().enumName);
+            }
+        }
+
+        private void writeStringMap(Map<String, String> map) throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<String, String> entry : new TreeMap<String, String>(map).entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        private static <V> List<Map.Entry<ResName, V>> sortedByName(Map<ResName, V> map) {
+            List<Map.Entry<ResName, V>> entries = new ArrayList<Map.Entry<ResName, V>>(map.entrySet());
+            Collections.sort(entries, new Comparator<Map.Entry<ResName, V>>() {
+                @Override public int compare(Map.Entry<ResName, V> a, Map.Entry<ResName, V> b) {
+                    return a.getKey().getFullyQualifiedName().compareTo(b.getKey().getFullyQualifiedName());
+                }
+            });
+            return entries;
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private final String[] stringPool;
+        private XmlLoader.XmlContext[] contexts;
+
+        Reader(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            stringPool = new String[buffer.getInt()];
+            for (int i = 0; i < stringPool.length; i++) {
+                byte[] stringBytes = new byte[buffer.getInt()];
+                buffer.get(stringBytes);
+                stringPool[i] = new String(stringBytes, "UTF-8");
+            }
+        }
+
+        String readString() {
+            int index = buffer.getInt();
+            return index == -1 ? null : stringPool[index];
+        }
+
+        void readContexts() {
+            contexts = new XmlLoader.XmlContext[buffer.getInt()];
+            for (int i = 0; i < contexts.length; i++) {
+                String packageName = readString();
+                contexts[i] = new XmlLoader.XmlContext(packageName, new File(readString()));
+            }
+        }
+
+        <T> void readBundle(ResBundle<T> bundle, Codec<T> codec) {
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String type = readString();
+                String name = readString();
+                XmlLoader.XmlContext xmlContext = contexts[buffer.getInt()];
+                bundle.put(type, name, codec.read(this, xmlContext), xmlContext);
+            }
+
+            int arrayCount = buffer.getInt();
+            for (int i = 0; i < arrayCount; i++) {
+                String type = readString();
+                String name = readString();
+                XmlLoader.XmlContext xmlContext = contexts[buffer.getInt()];
+                int itemCount = buffer.getInt();
+                List<T> items = new ArrayList<T>(itemCount);
+                for (int j = 0; j < itemCount; j++) {
+                    items.add(codec.read(this, xmlContext));
+                }
+                bundle.putArray(type, name, items, xmlContext);
+            }
+        }
+
+        List<Attribute> readAttributes() {
+            int count = buffer.getInt();
+            List<Attribute> attributes = new ArrayList<Attribute>(count);
+            for (int i = 0; i < count; i++) {
+                ResName resName = new ResName(readString(), readString(), readString());
+                attributes.add(new Attribute(resName, readString(), readString()));
+            }
+            return attributes;
+        }
+
+        void readAttrs(AttrResourceLoader attrs) {
+            readStringMap(attrs.classEnumToValue);
+
+            int knownClassEnumCount = buffer.getInt();
+            for (int i = 0; i < knownClassEnumCount; i++) {
+                attrs.knownClassEnums.add(readString());
+            }
+
+            int enumCount = buffer.getInt();
+            for (int i = 0; i < enumCount; i++) {
+                AttrResourceLoader.EnumDef enumDef = new AttrResourceLoader.EnumDef(readString());
+                readStringMap(enumDef.values);
+                attrs.enums.put(enumDef.name, enumDef);
+            }
+
+            int enumRefCount = buffer.getInt();
+            for (int i = 0; i < enumRefCount; i++) {
+                String key = readString();
+                String viewName = readString();
+                attrs.enumRefs.put(key, new AttrResourceLoader.EnumRef(viewName, readString()));
+            }
+        }
+
+        private void readStringMap(Map<String, String> map) {
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString();
+                map.put(key, readString());
+            }
+        }
+    }
+}
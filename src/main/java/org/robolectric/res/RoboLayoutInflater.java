@@ -20,10 +20,12 @@ public class RoboLayoutInflater {
 
     private View doInflate(Context context, ViewNode viewNode, ViewGroup parent, String qualifiers) {
         if (viewNode.isInclude()) {
-            List<Attribute> viewNodeAttributes = viewNode.getAttributes();
-            Attribute layoutAttribute = Attribute.find(viewNodeAttributes, ATTR_LAYOUT);
-            ResName resName = new ResName(layoutAttribute.qualifiedValue());
-            return inflateView(context, resName, viewNodeAttributes, parent, qualifiers);
+            ResName resName = viewNode.getIncludedLayout();
+            ViewNode included = resourceLoader.getLayoutViewNode(resName, qualifiers);
+            if (included == null) {
+                throw new RuntimeException("Could not find layout " + resName.name);
+            }
+            return doInflate(context, viewNode.withIncludeAttributes(included), parent, qualifiers, resName);
         } else {
             View view = viewNode.create(context, parent);
 
@@ -57,8 +59,12 @@ public class RoboLayoutInflater {
             throw new RuntimeException("Could not find layout " + resName.name);
         }
 
+        return doInflate(context, viewNode.plusAttributes(attributes), parent, qualifiers, resName);
+    }
+
+    private View doInflate(Context context, ViewNode viewNode, ViewGroup parent, String qualifiers, ResName resName) {
         try {
-            return doInflate(context, viewNode.plusAttributes(attributes), parent, qualifiers);
+            return doInflate(context, viewNode, parent, qualifiers);
         } catch (I18nException e) {
             throw e;
         } catch (Exception e) {
@@ -7,7 +7,9 @@ import android.view.View;
 import org.robolectric.tester.android.util.ResName;
 
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -115,6 +117,18 @@ public class RoutingResourceLoader implements ResourceLoader {
         return pickFor(namespace).convertValueToEnum(viewClass, namespace, attribute, part);
     }
 
+    @Override
+    public boolean reloadChangedResources() {
+        Set<ResourceLoader> distinctLoaders = Collections.newSetFromMap(new IdentityHashMap<ResourceLoader, Boolean>());
+        distinctLoaders.addAll(resourceLoaders.values());
+
+        boolean reloaded = false;
+        for (ResourceLoader resourceLoader : distinctLoaders) {
+            if (resourceLoader.reloadChangedResources()) reloaded = true;
+        }
+        return reloaded;
+    }
+
     private ResourceLoader pickFor(int id) {
         ResName resName = resourceExtractor.getResName(id);
         return pickFor(resName);
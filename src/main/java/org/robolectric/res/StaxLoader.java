@@ -0,0 +1,34 @@
+package org.robolectric.res;
+
+import org.w3c.dom.Document;
+
+import java.io.File;
+
+/**
+ * A loader that handles resource files as they stream past rather than from a DOM. {@link DocumentLoader} feeds
+ * every StaxLoader it's given from one pass of a StAX parser over each file, and only builds a {@link Document}
+ * if some other loader needs one.
+ *
+ * Callbacks arrive in document order. Comments are dropped. Text may arrive in several chunks, and CDATA sections
+ * are flagged, since some loaders treat them differently.
+ */
+abstract class StaxLoader extends XmlLoader {
+    @Override
+    protected final void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
+        throw new UnsupportedOperationException(getClass().getName() + " reads resources as a stream, not a Document");
+    }
+
+    protected void startDocument(XmlContext xmlContext) throws Exception {
+    }
+
+    protected abstract void startElement(XmlElement element, XmlContext xmlContext) throws Exception;
+
+    protected void characters(String text, boolean cdata, XmlContext xmlContext) throws Exception {
+    }
+
+    protected void endElement(XmlElement element, XmlContext xmlContext) throws Exception {
+    }
+
+    protected void endDocument(XmlContext xmlContext) throws Exception {
+    }
+}
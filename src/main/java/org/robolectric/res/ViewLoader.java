@@ -1,60 +1,63 @@
 package org.robolectric.res;
 
 import org.robolectric.tester.android.util.Attribute;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ViewLoader extends XmlLoader {
+public class ViewLoader extends StaxLoader {
     public static final String XMLNS_URI = "http://www.w3.org/2000/xmlns/";
 
     private final ResBundle<ViewNode> resBundle;
 
+    private ViewNode topLevelNode;
+    private final List<ViewNode> openNodes = new ArrayList<ViewNode>();
+
     public ViewLoader(ResBundle<ViewNode> resBundle) {
         this.resBundle = resBundle;
     }
 
     @Override
-    protected void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
-        ViewNode topLevelNode = new ViewNode("top-level", new ArrayList<Attribute>(), xmlContext);
-        processChildren(document.getChildNodes(), topLevelNode, xmlContext);
-        String name = xmlFile.getName().replace(".xml", "");
-        resBundle.put("layout", name, topLevelNode.getChildren().get(0), xmlContext);
+    protected void startDocument(XmlContext xmlContext) {
+        topLevelNode = new ViewNode("top-level", new ArrayList<Attribute>(), xmlContext);
+        openNodes.clear();
+        openNodes.add(topLevelNode);
     }
 
-    private void processChildren(NodeList childNodes, ViewNode parent, XmlContext xmlContext) {
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node node = childNodes.item(i);
-            processNode(node, parent, xmlContext);
-        }
-    }
-
-    private void processNode(Node node, ViewNode parent, XmlContext xmlContext) {
-        String name = node.getNodeName();
-        NamedNodeMap attributes = node.getAttributes();
-        List<Attribute> attrList = new ArrayList<Attribute>();
-        if (attributes != null) {
-            int length = attributes.getLength();
-            for (int i = 0; i < length; i++) {
-                Node attr = attributes.item(i);
-                if (!XMLNS_URI.equals(attr.getNamespaceURI())) {
-                    attrList.add(new Attribute(attr, xmlContext));
+    @Override
+    protected void startElement(XmlElement element, XmlContext xmlContext) {
+        ViewNode parent = openNodes.get(openNodes.size() - 1);
+        ViewNode viewNode = null;
+
+        // children of a <requestFocus> are ignored
+        if (parent != null) {
+            if (element.name.equals("requestFocus")) {
+                parent.focusRequested();
+            } else {
+                List<Attribute> attrList = new ArrayList<Attribute>();
+                for (int i = 0; i < element.getAttributeCount(); i++) {
+                    if (!XMLNS_URI.equals(element.getAttributeNamespace(i))) {
+                        attrList.add(new Attribute(element.getAttributeNamespace(i), element.getAttributeLocalName(i),
+                                element.getAttributeValue(i), xmlContext));
+                    }
                 }
+
+                viewNode = new ViewNode(element.name, attrList, parent.getXmlContext());
+                parent.addChild(viewNode);
             }
         }
+        openNodes.add(viewNode);
+    }
 
-        if (name.equals("requestFocus")) {
-            parent.focusRequested();
-        } else if (!name.startsWith("#")) {
-            ViewNode viewNode = new ViewNode(name, attrList, parent.getXmlContext());
-            parent.addChild(viewNode);
+    @Override
+    protected void endElement(XmlElement element, XmlContext xmlContext) {
+        openNodes.remove(openNodes.size() - 1);
+    }
 
-            processChildren(node.getChildNodes(), viewNode, xmlContext);
-        }
+    @Override
+    protected void endDocument(XmlContext xmlContext) {
+        String name = xmlContext.getXmlFile().getName().replace(".xml", "");
+        resBundle.put("layout", name, topLevelNode.getChildren().get(0), xmlContext);
+        topLevelNode = null;
     }
 }
@@ -9,6 +9,7 @@ import android.view.ViewGroup;
 import android.view.ViewParent;
 import android.widget.FrameLayout;
 import org.robolectric.tester.android.util.Attribute;
+import org.robolectric.tester.android.util.AttributeIndex;
 import org.robolectric.tester.android.util.ResName;
 import org.robolectric.tester.android.util.TestAttributeSet;
 
@@ -18,6 +19,8 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import static org.robolectric.Robolectric.shadowOf;
 
@@ -29,12 +32,23 @@ public class ViewNode {
     private List<ViewNode> children = new ArrayList<ViewNode>();
     private boolean requestFocusOverride = false;
 
+    // ViewNodes are shared by every inflation of their layout, so what inflating them needs is worked out once
+    private static volatile Method onFinishInflateMethod;
+    private volatile AttributeIndex attributeIndex;
+    private volatile ViewConstructor viewConstructor;
+    private volatile ResName includedLayout;
+    private Map<ViewNode, ViewNode> includedNodes;
+
     public ViewNode(String name, List<Attribute> attributes, XmlLoader.XmlContext xmlContext) {
         this.name = name;
         this.attributes = Collections.unmodifiableList(attributes);
         this.xmlContext = xmlContext;
     }
 
+    public String getName() {
+        return name;
+    }
+
     public XmlLoader.XmlContext getXmlContext() {
         return xmlContext;
     }
@@ -55,10 +69,51 @@ public class ViewNode {
         return attributes;
     }
 
+    AttributeIndex getAttributeIndex() {
+        AttributeIndex attributeIndex = this.attributeIndex;
+        if (attributeIndex == null) {
+            attributeIndex = this.attributeIndex = new AttributeIndex(attributes);
+        }
+        return attributeIndex;
+    }
+
+    /**
+     * The layout named by this {@code <include>}'s layout attribute.
+     */
+    ResName getIncludedLayout() {
+        ResName layout = includedLayout;
+        if (layout == null) {
+            Attribute layoutAttribute = getAttributeIndex().find(RoboLayoutInflater.ATTR_LAYOUT);
+            layout = includedLayout = new ResName(layoutAttribute.qualifiedValue());
+        }
+        return layout;
+    }
+
+    /**
+     * The root of an included layout with this {@code <include>}'s attributes merged in. Remembered per included
+     * node, so repeated inflations reuse the merged node and whatever it has already resolved.
+     */
+    synchronized ViewNode withIncludeAttributes(ViewNode included) {
+        if (includedNodes == null) {
+            includedNodes = new WeakHashMap<ViewNode, ViewNode>();
+        }
+        ViewNode merged = includedNodes.get(included);
+        if (merged == null) {
+            merged = included.plusAttributes(attributes);
+            if (merged == included) return merged; // would keep the weak key alive
+            includedNodes.put(included, merged);
+        }
+        return merged;
+    }
+
     void invokeOnFinishInflate(View view) {
         try {
-            Method onFinishInflate = View.class.getDeclaredMethod("onFinishInflate");
-            onFinishInflate.setAccessible(true);
+            Method onFinishInflate = onFinishInflateMethod;
+            if (onFinishInflate == null) {
+                onFinishInflate = View.class.getDeclaredMethod("onFinishInflate");
+                onFinishInflate.setAccessible(true);
+                onFinishInflateMethod = onFinishInflate;
+            }
             onFinishInflate.invoke(view);
         } catch (InvocationTargetException e) {
             throw new RuntimeException(e);
@@ -99,9 +154,9 @@ public class ViewNode {
     }
 
     private FrameLayout constructFragment(Context context) {
-        TestAttributeSet attributeSet = shadowOf(context).createAttributeSet(attributes, View.class);
+        TestAttributeSet attributeSet = shadowOf(context).createAttributeSet(getAttributeIndex(), View.class);
 
-        Class<? extends Fragment> clazz = loadFragmentClass(Attribute.find(attributes, "android:attr/name").value);
+        Class<? extends Fragment> clazz = loadFragmentClass(getAttributeIndex().find(new ResName("android:attr/name")).value);
         Fragment fragment = null;
         try {
             fragment = ((Constructor<? extends Fragment>) clazz.getConstructor()).newInstance();
@@ -142,17 +197,21 @@ public class ViewNode {
     }
 
     private View constructView(Context context) {
-        Class<? extends View> clazz = pickViewClass();
+        ViewConstructor viewConstructor = this.viewConstructor;
+        if (viewConstructor == null) {
+            viewConstructor = this.viewConstructor = new ViewConstructor(pickViewClass());
+        }
+
+        // built even when it's not passed on, since building it is what validates strict i18n
+        TestAttributeSet attributeSet = shadowOf(context).createAttributeSet(getAttributeIndex(), View.class);
         try {
-            try {
-                TestAttributeSet attributeSet = shadowOf(context).createAttributeSet(attributes, View.class);
-                return ((Constructor<? extends View>) clazz.getConstructor(Context.class, AttributeSet.class)).newInstance(context, attributeSet);
-            } catch (NoSuchMethodException e) {
-                try {
-                    return ((Constructor<? extends View>) clazz.getConstructor(Context.class)).newInstance(context);
-                } catch (NoSuchMethodException e1) {
-                    return ((Constructor<? extends View>) clazz.getConstructor(Context.class, String.class)).newInstance(context, "");
-                }
+            switch (viewConstructor.kind) {
+                case CONTEXT_AND_ATTRIBUTES:
+                    return viewConstructor.constructor.newInstance(context, attributeSet);
+                case CONTEXT:
+                    return viewConstructor.constructor.newInstance(context);
+                default:
+                    return viewConstructor.constructor.newInstance(context, "");
             }
         } catch (InstantiationException e) {
             throw new RuntimeException(e);
@@ -160,8 +219,6 @@ public class ViewNode {
             throw new RuntimeException(e);
         } catch (InvocationTargetException e) {
             throw new RuntimeException(e);
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException(e);
         }
     }
 
@@ -169,7 +226,7 @@ public class ViewNode {
         String name = this.name;
 
         if ("view".equals(name)) {
-            Attribute attribute = Attribute.find(attributes, new ResName("", "attr", "class"));
+            Attribute attribute = getAttributeIndex().find(new ResName("", "attr", "class"));
             if (attribute == null) throw new RuntimeException("no class attr for node " + this);
             name = attribute.value;
         }
@@ -240,10 +297,47 @@ public class ViewNode {
         ViewNode viewNode = new ViewNode(name, newAttrs, xmlContext);
         viewNode.children = children;
         viewNode.requestFocusOverride = requestFocusOverride;
+        if (!"view".equals(name)) { // a <view>'s class comes from its attributes, which may just have changed
+            viewNode.viewConstructor = viewConstructor;
+        }
         return viewNode;
     }
 
     void focusRequested() {
         requestFocusOverride = true;
     }
+
+    boolean isFocusRequested() {
+        return requestFocusOverride;
+    }
+
+    private static class ViewConstructor {
+        enum Kind { CONTEXT_AND_ATTRIBUTES, CONTEXT, CONTEXT_AND_STRING }
+
+        final Constructor<? extends View> constructor;
+        final Kind kind;
+
+        ViewConstructor(Class<? extends View> clazz) {
+            Constructor<? extends View> constructor;
+            Kind kind;
+            try {
+                try {
+                    constructor = clazz.getConstructor(Context.class, AttributeSet.class);
+                    kind = Kind.CONTEXT_AND_ATTRIBUTES;
+                } catch (NoSuchMethodException e) {
+                    try {
+                        constructor = clazz.getConstructor(Context.class);
+                        kind = Kind.CONTEXT;
+                    } catch (NoSuchMethodException e1) {
+                        constructor = clazz.getConstructor(Context.class, String.class);
+                        kind = Kind.CONTEXT_AND_STRING;
+                    }
+                }
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException(e);
+            }
+            this.constructor = constructor;
+            this.kind = kind;
+        }
+    }
 }
@@ -0,0 +1,168 @@
+package org.robolectric.res;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An XML resource that's read again after loading ({@code res/xml} files, drawable XML), kept as the list of events
+ * a pull parser reports rather than as a DOM tree.
+ *
+ * All the file's text is held in one string; elements and text events refer to ranges of it. As the DOM-based
+ * parser did, text events skip whitespace-only text and CDATA sections, though both still count towards an
+ * element's text content.
+ */
+class XmlBuffer {
+    private final String text;
+    private final XmlElement[] elements;
+    private final int[] elementTextStarts;
+    private final int[] elementTextEnds;
+
+    private final int[] eventTypes;
+    private final int[] eventElements;
+    private final int[] eventTextStarts;
+    private final int[] eventTextEnds;
+
+    private XmlBuffer(Builder builder) {
+        text = builder.text.toString();
+        elements = builder.elements.toArray(new XmlElement[builder.elements.size()]);
+        elementTextStarts = toArray(builder.elementTextStarts);
+        elementTextEnds = toArray(builder.elementTextEnds);
+        eventTypes = toArray(builder.eventTypes);
+        eventElements = toArray(builder.eventElements);
+        eventTextStarts = toArray(builder.eventTextStarts);
+        eventTextEnds = toArray(builder.eventTextEnds);
+    }
+
+    /**
+     * @return the number of {@link XmlPullParser#START_TAG}, {@link XmlPullParser#END_TAG} and
+     *     {@link XmlPullParser#TEXT} events; {@link XmlPullParser#END_DOCUMENT} follows the last of them
+     */
+    int getEventCount() {
+        return eventTypes.length;
+    }
+
+    int getEventType(int event) {
+        return eventTypes[event];
+    }
+
+    /**
+     * @return the element a tag event is for, or null for text
+     */
+    XmlElement getEventElement(int event) {
+        int element = eventElements[event];
+        return element == -1 ? null : elements[element];
+    }
+
+    /**
+     * @return the text of a text event, or the text content of a tag event's element
+     */
+    String getEventText(int event) {
+        int element = eventElements[event];
+        return element == -1
+                ? text.substring(eventTextStarts[event], eventTextEnds[event])
+                : text.substring(elementTextStarts[element], elementTextEnds[element]);
+    }
+
+    List<XmlElement> getElementsByTagName(String name) {
+        List<XmlElement> matches = new ArrayList<XmlElement>();
+        for (XmlElement element : elements) {
+            if (element.name.equals(name)) matches.add(element);
+        }
+        return matches;
+    }
+
+    /**
+     * @see XmlElement#isAt(String, String...)
+     */
+    List<XmlElement> getElementsAt(String name, String... ancestorNames) {
+        List<XmlElement> matches = new ArrayList<XmlElement>();
+        for (XmlElement element : elements) {
+            if (element.isAt(name, ancestorNames)) matches.add(element);
+        }
+        return matches;
+    }
+
+    static boolean isWhitespace(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (" \t\n\u000B\f\r".indexOf(text.charAt(i)) == -1) return false;
+        }
+        return text.length() > 0;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Collects the callbacks a {@link StaxLoader} receives for one file.
+     */
+    static class Builder {
+        private final StringBuilder text = new StringBuilder();
+        private final List<XmlElement> elements = new ArrayList<XmlElement>();
+        private final List<Integer> elementTextStarts = new ArrayList<Integer>();
+        private final List<Integer> elementTextEnds = new ArrayList<Integer>();
+        private final List<Integer> openElements = new ArrayList<Integer>();
+
+        private final List<Integer> eventTypes = new ArrayList<Integer>();
+        private final List<Integer> eventElements = new ArrayList<Integer>();
+        private final List<Integer> eventTextStarts = new ArrayList<Integer>();
+        private final List<Integer> eventTextEnds = new ArrayList<Integer>();
+
+        private int pendingTextStart = -1;
+
+        void startElement(XmlElement element) {
+            flushText();
+            int index = elements.size();
+            elements.add(element);
+            elementTextStarts.add(text.length());
+            elementTextEnds.add(text.length());
+            openElements.add(index);
+            addEvent(XmlPullParser.START_TAG, index, 0, 0);
+        }
+
+        void characters(String chars, boolean cdata) {
+            if (cdata) {
+                flushText();
+            } else if (pendingTextStart == -1) {
+                pendingTextStart = text.length();
+            }
+            text.append(chars);
+            if (cdata) {
+                pendingTextStart = -1;
+            }
+        }
+
+        void endElement() {
+            flushText();
+            int index = openElements.remove(openElements.size() - 1);
+            elementTextEnds.set(index, text.length());
+            addEvent(XmlPullParser.END_TAG, index, 0, 0);
+        }
+
+        XmlBuffer build() {
+            return new XmlBuffer(this);
+        }
+
+        private void flushText() {
+            if (pendingTextStart != -1) {
+                if (!isWhitespace(text.substring(pendingTextStart))) {
+                    addEvent(XmlPullParser.TEXT, -1, pendingTextStart, text.length());
+                }
+                pendingTextStart = -1;
+            }
+        }
+
+        private void addEvent(int type, int element, int textStart, int textEnd) {
+            eventTypes.add(type);
+            eventElements.add(element);
+            eventTextStarts.add(textStart);
+            eventTextEnds.add(textEnd);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.robolectric.res;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * An element's name and attributes, read from a {@link XMLStreamReader} positioned at its start tag.
+ *
+ * Attributes are presented the way a namespace-aware DOM presents them, which is what resource loaders were
+ * written against: namespace declarations count as attributes, and attributes are sorted by qualified name.
+ */
+class XmlElement {
+    static final String XMLNS_URI = XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+
+    final String name;
+    final String namespace;
+    final XmlElement parent;
+    final int depth;
+    private final String[] attributeNames;
+    private final String[] attributeLocalNames;
+    private final String[] attributeNamespaces;
+    private final String[] attributeValues;
+
+    XmlElement(XMLStreamReader reader, XmlElement parent) {
+        this.name = qualifiedName(reader.getPrefix(), reader.getLocalName());
+        this.namespace = emptyToNull(reader.getNamespaceURI());
+        this.parent = parent;
+        this.depth = parent == null ? 1 : parent.depth + 1;
+
+        int namespaceCount = reader.getNamespaceCount();
+        int count = namespaceCount + reader.getAttributeCount();
+        attributeNames = new String[count];
+        attributeLocalNames = new String[count];
+        attributeNamespaces = new String[count];
+        attributeValues = new String[count];
+
+        for (int i = 0; i < namespaceCount; i++) {
+            String prefix = emptyToNull(reader.getNamespacePrefix(i));
+            set(i, prefix == null ? "xmlns" : "xmlns:" + prefix, prefix == null ? "xmlns" : prefix, XMLNS_URI, reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            set(namespaceCount + i, qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                    reader.getAttributeLocalName(i), emptyToNull(reader.getAttributeNamespace(i)), reader.getAttributeValue(i));
+        }
+        sortAttributes();
+    }
+
+    /**
+     * @return whether this element's name is {@code name} and its ancestors' names are {@code ancestorNames},
+     *     outermost first, e.g. {@code isAt("item", "resources", "string-array")}
+     */
+    boolean isAt(String name, String... ancestorNames) {
+        if (depth != ancestorNames.length + 1 || !this.name.equals(name)) return false;
+        XmlElement ancestor = parent;
+        for (int i = ancestorNames.length - 1; i >= 0; i--, ancestor = ancestor.parent) {
+            if (!ancestor.name.equals(ancestorNames[i])) return false;
+        }
+        return true;
+    }
+
+    int getAttributeCount() {
+        return attributeNames.length;
+    }
+
+    /**
+     * @return the attribute's qualified name, e.g. {@code android:id}
+     */
+    String getAttributeName(int index) {
+        return attributeNames[index];
+    }
+
+    String getAttributeLocalName(int index) {
+        return attributeLocalNames[index];
+    }
+
+    String getAttributeNamespace(int index) {
+        return attributeNamespaces[index];
+    }
+
+    String getAttributeValue(int index) {
+        return attributeValues[index];
+    }
+
+    /**
+     * @return the index of the attribute with the given qualified name, or -1
+     */
+    int indexOfAttribute(String qualifiedName) {
+        for (int i = 0; i < attributeNames.length; i++) {
+            if (attributeNames[i].equals(qualifiedName)) return i;
+        }
+        return -1;
+    }
+
+    String getAttributeValue(String qualifiedName) {
+        int index = indexOfAttribute(qualifiedName);
+        return index == -1 ? null : attributeValues[index];
+    }
+
+    String getAttributeValueNS(String namespace, String localName) {
+        for (int i = 0; i < attributeNames.length; i++) {
+            if (attributeLocalNames[i].equals(localName) && namespace.equals(attributeNamespaces[i])) {
+                return attributeValues[i];
+            }
+        }
+        return null;
+    }
+
+    private void set(int i, String name, String localName, String namespace, String value) {
+        attributeNames[i] = name;
+        attributeLocalNames[i] = localName;
+        attributeNamespaces[i] = namespace;
+        attributeValues[i] = value;
+    }
+
+    private void sortAttributes() {
+        // insertion sort; elements rarely have more than a dozen attributes
+        for (int i = 1; i < attributeNames.length; i++) {
+            for (int j = i; j > 0 && attributeNames[j - 1].compareTo(attributeNames[j]) > 0; j--) {
+                swap(attributeNames, j);
+                swap(attributeLocalNames, j);
+                swap(attributeNamespaces, j);
+                swap(attributeValues, j);
+            }
+        }
+    }
+
+    private static void swap(String[] strings, int j) {
+        String tmp = strings[j];
+        strings[j] = strings[j - 1];
+        strings[j - 1] = tmp;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.length() == 0 ? localName : prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String string) {
+        return string == null || string.length() == 0 ? null : string;
+    }
+}
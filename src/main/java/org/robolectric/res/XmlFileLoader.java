@@ -2,12 +2,8 @@ package org.robolectric.res;
 
 import android.content.res.Resources;
 import android.content.res.XmlResourceParser;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
 import org.xmlpull.v1.XmlPullParserException;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -28,10 +24,11 @@ import java.util.Map;
  * @see https://github.com/android/platform_frameworks_base/blob/master/core/java/android/content/res/XmlBlock.java
  * @see Resources#getXml(int)
  */
-public class XmlFileLoader extends XmlLoader {
+public class XmlFileLoader extends StaxLoader {
 
     private final ResourceExtractor resourceExtractor;
-    private Map<String, Document> mXmlDocuments = new HashMap<String, Document>();
+    private Map<String, XmlBuffer> mXmlDocuments = new HashMap<String, XmlBuffer>();
+    private XmlBuffer.Builder mBuilder;
 	
 	/**
 	 * All the parser features currently supported by Android. 
@@ -69,8 +66,37 @@ public class XmlFileLoader extends XmlLoader {
     }
 
 	@Override
-	protected void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
-		mXmlDocuments.put(xmlContext.packageName + ":xml/" + xmlFile.getName().replace(".xml", ""), document);
+	protected void startDocument(XmlContext xmlContext) {
+		mBuilder = new XmlBuffer.Builder();
+	}
+
+	@Override
+	protected void startElement(XmlElement element, XmlContext xmlContext) {
+		mBuilder.startElement(element);
+	}
+
+	@Override
+	protected void characters(String text, boolean cdata, XmlContext xmlContext) {
+		mBuilder.characters(text, cdata);
+	}
+
+	@Override
+	protected void endElement(XmlElement element, XmlContext xmlContext) {
+		mBuilder.endElement();
+	}
+
+	@Override
+	protected void endDocument(XmlContext xmlContext) {
+		mXmlDocuments.put(key(xmlContext), mBuilder.build());
+		mBuilder = null;
+	}
+
+	void removeResourceXml(XmlContext xmlContext) {
+		mXmlDocuments.remove(key(xmlContext));
+	}
+
+	private String key(XmlContext xmlContext) {
+		return xmlContext.packageName + ":xml/" + xmlContext.getXmlFile().getName().replace(".xml", "");
 	}
 
  
@@ -79,20 +105,20 @@ public class XmlFileLoader extends XmlLoader {
 	}
 	
 	public XmlResourceParser getXml(String key) {
-		Document document = mXmlDocuments.get(key);
-		if (document == null) {
+		XmlBuffer buffer = mXmlDocuments.get(key);
+		if (buffer == null) {
 			return null;
 		}
-        return new XmlResourceParserImpl(document);
+        return new XmlResourceParserImpl(buffer);
 	}
 
 	/**
 	 * Concrete implementation of the {@link XmlResourceParser}.
 	 * 
 	 * <p>Clients expects a pull parser while the resource loader
-	 * initialise this object with a {@link Document}. 
-	 * This implementation navigates the dom and emulates a pull
-	 * parser by raising all the opportune events.
+	 * initialise this object with an {@link XmlBuffer}, the events
+	 * recorded when the file was loaded. This implementation replays
+	 * them, emulating a pull parser.
 	 * 
 	 * <p>Note that the original android implementation is based on
 	 * a set of native methods calls. Here those methods are
@@ -103,16 +129,16 @@ public class XmlFileLoader extends XmlLoader {
 	final class XmlResourceParserImpl
 			implements XmlResourceParser {
 
-        private final Document document;
-        private Node currentNode;
+        private final XmlBuffer buffer;
+        private int currentEvent = -1;
         
         private boolean mStarted = false;
         private boolean mDecNextDepth = false;
         private int mDepth = 0;
         private int mEventType = START_DOCUMENT;
         
-        XmlResourceParserImpl(Document document) {
-        	this.document = document;
+        XmlResourceParserImpl(XmlBuffer buffer) {
+        	this.buffer = buffer;
         }
         
         public void setFeature(String name, boolean state)
@@ -195,10 +221,10 @@ public class XmlFileLoader extends XmlLoader {
         }
         
         public String getText() {
-        	if (currentNode == null) {
+        	if (!hasCurrentEvent()) {
         		return "";
         	}
-        	return currentNode.getTextContent();
+        	return buffer.getEventText(currentEvent);
         }
         
         public int getLineNumber() {
@@ -217,7 +243,7 @@ public class XmlFileLoader extends XmlLoader {
             if (text == null) {
             	return false;
             }
-            return text.split("\\s").length == 0;
+            return XmlBuffer.isWhitespace(text);
         }
         
         public boolean isWhitespace()
@@ -244,57 +270,49 @@ public class XmlFileLoader extends XmlLoader {
         }
         
         public String getNamespace() {
-        	if (currentNode == null) {
-        		return "";
-        	}
-        	String namespace = currentNode.getNamespaceURI();
-        	if (namespace == null) {
+        	XmlElement element = getCurrentElement();
+        	if (element == null || element.namespace == null) {
         		return "";
         	}
-        	return namespace;
+        	return element.namespace;
         }
         
         public String getName() {
-        	if (currentNode == null) {
+        	if (!hasCurrentEvent()) {
         		return "";
         	}
-            return currentNode.getNodeName();
+        	XmlElement element = getCurrentElement();
+        	// DOM's name for a text node, which this used to report
+            return element == null ? "#text" : element.name;
         }
         
-        Node getAttributeAt(int index) {
-        	if (currentNode == null) {
-        		throw new IndexOutOfBoundsException(String.valueOf(index));
-        	}
-        	NamedNodeMap map = currentNode.getAttributes();
-        	if (index >= map.getLength()) {
-        		throw new IndexOutOfBoundsException(String.valueOf(index));
-        	}
-        	return map.item(index);
+        private boolean hasCurrentEvent() {
+        	return currentEvent >= 0 && currentEvent < buffer.getEventCount();
         }
         
-        Node getAttribute(String namespace, String name) {
-        	if (currentNode == null) {
-        		return null;
+        /**
+         * @return the element of the current tag event, or null
+         * 		before the first tag, at text or after the last tag
+         */
+        private XmlElement getCurrentElement() {
+        	return hasCurrentEvent() ? buffer.getEventElement(currentEvent) : null;
+        }
+        
+        private XmlElement getElementWithAttribute(int index) {
+        	XmlElement element = getCurrentElement();
+        	if (element == null || index < 0 || index >= element.getAttributeCount()) {
+        		throw new IndexOutOfBoundsException(String.valueOf(index));
         	}
-        	NamedNodeMap map = currentNode.getAttributes();
-        	// XXX(msama): getNamedItemNS does not work.
-        	// 		This is an hack to make this implementation working.
-        	//		return map.getNamedItemNS(namespace, name);
-        	return map.getNamedItem(name);
+        	return element;
         }
         
         public String getAttributeNamespace(int index) {
-        	Node attr = getAttributeAt(index);
-        	if (attr == null) {
-        		return null;
-        	}
-        	return attr.getNamespaceURI();
+        	return getElementWithAttribute(index).getAttributeNamespace(index);
         }
         
         public String getAttributeName(int index) {
         	try {
-        		Node attr = getAttributeAt(index);
-        		return attr.getNodeName();
+        		return getElementWithAttribute(index).getAttributeName(index);
         	} catch(IndexOutOfBoundsException ex) {
         		return null;
         	}
@@ -311,14 +329,15 @@ public class XmlFileLoader extends XmlLoader {
         }
         
         public int getAttributeCount() {
-            if (currentNode == null) {
+            XmlElement element = getCurrentElement();
+            if (element == null) {
             	return -1;
             }
-            return currentNode.getAttributes().getLength();
+            return element.getAttributeCount();
         }
         
         public String getAttributeValue(int index) {
-        	return getAttributeAt(index).getNodeValue();
+        	return getElementWithAttribute(index).getAttributeValue(index);
         }
         
         public String getAttributeType(int index) {
@@ -337,11 +356,13 @@ public class XmlFileLoader extends XmlLoader {
         }
         
         public String getAttributeValue(String namespace, String name) {
-        	Node attr = getAttribute(namespace, name);
-        	if (attr == null) {
+        	XmlElement element = getCurrentElement();
+        	if (element == null) {
         		return null;
         	}
-        	return attr.getNodeValue();
+        	// XXX(msama): looking up by namespace does not work.
+        	// 		This is an hack to make this implementation working.
+        	return element.getAttributeValue(name);
         }
         
         public int next() throws XmlPullParserException,IOException {       	
@@ -378,155 +399,14 @@ public class XmlFileLoader extends XmlLoader {
         
         /**
          * A twin implementation of the native android nativeNext(status)
-         * @throws XmlPullParserException 
          */
-        private int nativeNext() throws XmlPullParserException {
-        	switch(mEventType) {
-        		case(CDSECT): {
-        			throw new IllegalArgumentException(
-        					"CDSECT is not handled by Android");
-        		}
-        		case(COMMENT): {
-        			throw new IllegalArgumentException(
-        					"COMMENT is not handled by Android");
-        		}
-        		case(DOCDECL): {
-        			throw new IllegalArgumentException(
-        					"DOCDECL is not handled by Android");
-        		}
-        		case(ENTITY_REF): {
-        			throw new IllegalArgumentException(
-        					"ENTITY_REF is not handled by Android");
-        		}
-        		case(END_DOCUMENT): {
-        			// The end document event should have been filtered
-        			// from the invoker. This should never happen.
-        			throw new IllegalArgumentException(
-        					"END_DOCUMENT should not be found here.");
-        		}
-        		case(END_TAG): {
-        			return navigateToNextNode(currentNode);
-        		}
-        		case(IGNORABLE_WHITESPACE): {
-        			throw new IllegalArgumentException(
-        					"IGNORABLE_WHITESPACE");
-        		}
-        		case(PROCESSING_INSTRUCTION): {
-        			throw new IllegalArgumentException(
-        					"PROCESSING_INSTRUCTION");
-        		}
-        		case(START_DOCUMENT): {
-        			currentNode = document.getDocumentElement();
-        			return START_TAG;
-        		}
-        		case(START_TAG): {
-        			if (currentNode.hasChildNodes()) {
-        				// The node has children, navigate down
-        				return processNextNodeType(
-        						currentNode.getFirstChild());
-        			} else {
-        				// The node has no children
-        				return END_TAG;
-        			}
-        		}
-        		case(TEXT): {
-        			return navigateToNextNode(currentNode);
-        		}
-        		default : {
-        			// This can only happen if mEventType is
-        			// assigned with an unmapped integer.
-        			throw new RuntimeException(
-                			"Robolectric-> Uknown XML event type: " + mEventType);
-        		}
+        private int nativeNext() {
+        	currentEvent++;
+        	if (currentEvent >= buffer.getEventCount()) {
+        		currentEvent = buffer.getEventCount();
+        		return END_DOCUMENT;
         	}
-
-        }
-        
-        /*protected*/ int processNextNodeType(Node node)
-        		throws XmlPullParserException {
-        	switch (node.getNodeType()) {
-				case(Node.ATTRIBUTE_NODE): {
-					throw new IllegalArgumentException("ATTRIBUTE_NODE");
-				}
-				case(Node.CDATA_SECTION_NODE): {
-					return navigateToNextNode(node);
-				}
-				case(Node.COMMENT_NODE): {
-					return navigateToNextNode(node);
-				}
-				case(Node.DOCUMENT_FRAGMENT_NODE): {
-					throw new IllegalArgumentException("DOCUMENT_FRAGMENT_NODE");
-				}
-				case(Node.DOCUMENT_NODE): {
-					throw new IllegalArgumentException("DOCUMENT_NODE");
-				}
-				case(Node.DOCUMENT_TYPE_NODE): {
-					throw new IllegalArgumentException("DOCUMENT_TYPE_NODE");
-				}
-				case(Node.ELEMENT_NODE): {
-					currentNode = node;
-					return START_TAG;
-				}
-				case(Node.ENTITY_NODE): {
-					throw new IllegalArgumentException("ENTITY_NODE");
-				}
-				case(Node.ENTITY_REFERENCE_NODE): {
-					throw new IllegalArgumentException("ENTITY_REFERENCE_NODE");
-				}
-				case(Node.NOTATION_NODE): {
-					throw new IllegalArgumentException("DOCUMENT_TYPE_NODE");
-				}
-				case(Node.PROCESSING_INSTRUCTION_NODE): {
-					throw new IllegalArgumentException("DOCUMENT_TYPE_NODE");
-				}
-				case(Node.TEXT_NODE): {
-					if (isWhitespace(node.getNodeValue())) {
-						// Skip whitespaces
-						return navigateToNextNode(node);
-					} else {
-						currentNode = node;
-						return TEXT;
-					}
-				}
-				default : {
-					throw new RuntimeException(
-							"Robolectric -> Unknown node type: " +
-							node.getNodeType() + ".");
-				}
-        	}
-        }
-        
-        /**
-         * Navigate to the next node after a node and all of his 
-         * children have been explored.
-         * 
-         * <p>If the node has unexplored siblings navigate to the
-         * next sibling. Otherwise return to its parent.
-         * 
-         * @param node the node which was just explored.
-         * @return {@link XmlPullParserException#START_TAG} if the given 
-         * 		node has siblings, {@link XmlPullParserException#END_TAG}
-         * 		if the node has no unexplored siblings or 
-         * 		{@link XmlPullParserException#END_DOCUMENT} if the explored
-         * 		was the root document.
-         * @throws XmlPullParserException if the parser fails to 
-         * 		parse the next node.
-         */
-        int navigateToNextNode(Node node)
-        		throws XmlPullParserException {
-			Node nextNode = node.getNextSibling();
-			if (nextNode != null) {
-				// Move to the next siblings
-				return processNextNodeType(nextNode);
-			} else {
-				// Goes back to the parent
-				if (document.getDocumentElement().equals(node)) {
-					currentNode = null;
-	        		return END_DOCUMENT;
-	        	}
-				currentNode = node.getParentNode();
-				return END_TAG;
-			}
+        	return buffer.getEventType(currentEvent);
         }
         
         public void require(int type, String namespace, String name)
@@ -582,12 +462,12 @@ public class XmlFileLoader extends XmlLoader {
     
         public int getAttributeListValue(String namespace, String attribute,
                 String[] options, int defaultValue) {
-    		Node attr = getAttribute(namespace, attribute);
-    		if (attr == null) {
+    		String value = getAttributeValue(namespace, attribute);
+    		if (value == null) {
     			return 0;
     		}
     		List<String> optList = Arrays.asList(options);
-        	int index = optList.indexOf(attr.getNodeValue());
+        	int index = optList.indexOf(value);
         	if (index == -1) {
         		return defaultValue;
         	}
@@ -596,11 +476,11 @@ public class XmlFileLoader extends XmlLoader {
         
         public boolean getAttributeBooleanValue(String namespace, String attribute,
                 boolean defaultValue) {
-        	Node attr = getAttribute(namespace, attribute);
-        	if (attr == null) {
+        	String value = getAttributeValue(namespace, attribute);
+        	if (value == null) {
         		return defaultValue;
         	}
-        	return Boolean.parseBoolean(attr.getNodeValue());
+        	return Boolean.parseBoolean(value);
         }
         
         public int getAttributeResourceValue(String namespace, String attribute,
@@ -610,12 +490,12 @@ public class XmlFileLoader extends XmlLoader {
         
         public int getAttributeIntValue(String namespace, String attribute,
                 int defaultValue) {
-        	Node attr = getAttribute(namespace, attribute);
-        	if (attr == null) {
+        	String value = getAttributeValue(namespace, attribute);
+        	if (value == null) {
         		return defaultValue;
         	}
         	try {
-        		return Integer.parseInt(attr.getNodeValue());
+        		return Integer.parseInt(value);
         	} catch(NumberFormatException ex) {
         		return defaultValue;
         	}
@@ -633,12 +513,12 @@ public class XmlFileLoader extends XmlLoader {
         
         public float getAttributeFloatValue(String namespace, String attribute,
                 float defaultValue) {
-        	Node attr = getAttribute(namespace, attribute);
-        	if (attr == null) {
+        	String value = getAttributeValue(namespace, attribute);
+        	if (value == null) {
         		return defaultValue;
         	}
         	try {
-	        	return Float.parseFloat(attr.getNodeValue());
+	        	return Float.parseFloat(value);
 	        } catch(NumberFormatException ex) {
 	        	return defaultValue;
 	    	}
@@ -701,19 +581,11 @@ public class XmlFileLoader extends XmlLoader {
         }
 
         public String getIdAttribute() {
-        	Node attr = getAttribute(null, "id");
-        	if (attr == null) {
-        		return null;
-        	}
-        	return attr.getNodeValue();
+        	return getAttributeValue(null, "id");
         }
         
         public String getClassAttribute() {
-        	Node attr = getAttribute(null, "class");
-        	if (attr == null) {
-        		return null;
-        	}
-        	return attr.getNodeValue();
+        	return getAttributeValue(null, "class");
         }
 
         public int getIdAttributeResourceValue(int defaultValue) {
@@ -729,12 +601,12 @@ public class XmlFileLoader extends XmlLoader {
         }
 
         public int getStyleAttribute() {
-        	Node attr = getAttribute(null, "style");
-        	if (attr == null) {
+        	String value = getAttributeValue(null, "style");
+        	if (value == null) {
         		return 0;
         	}
         	try {
-        		return Integer.parseInt(attr.getNodeValue());
+        		return Integer.parseInt(value);
         	} catch (NumberFormatException ex) {
         		return 0;
         	}
@@ -85,7 +85,7 @@ public class ShadowApplication extends ShadowContextWrapper {
     private Map<String, Intent> stickyIntents = new HashMap<String, Intent>();
     private FakeHttpLayer fakeHttpLayer = new FakeHttpLayer();
     private Looper mainLooper = ShadowLooper.myLooper();
-    private Scheduler backgroundScheduler = new Scheduler();
+    private Scheduler backgroundScheduler = new Scheduler(Robolectric.getVirtualClock());
     private Map<String, Map<String, Object>> sharedPreferenceMap = new HashMap<String, Map<String, Object>>();
     private ArrayList<Toast> shownToasts = new ArrayList<Toast>();
     private PowerManager.WakeLock latestWakeLock;
@@ -11,6 +11,7 @@ import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 import org.robolectric.res.ResourceLoader;
 import org.robolectric.tester.android.util.Attribute;
+import org.robolectric.tester.android.util.AttributeIndex;
 import org.robolectric.tester.android.util.ResName;
 import org.robolectric.tester.android.util.TestAttributeSet;
 
@@ -94,7 +95,14 @@ abstract public class ShadowContext {
     }
 
     public TestAttributeSet createAttributeSet(List<Attribute> attributes, Class<? extends View> viewClass) {
-        TestAttributeSet attributeSet = new TestAttributeSet(attributes, getResourceLoader(), viewClass);
+        return validated(new TestAttributeSet(attributes, getResourceLoader(), viewClass));
+    }
+
+    public TestAttributeSet createAttributeSet(AttributeIndex attributeIndex, Class<? extends View> viewClass) {
+        return validated(new TestAttributeSet(attributeIndex, getResourceLoader(), viewClass));
+    }
+
+    private TestAttributeSet validated(TestAttributeSet attributeSet) {
         if (isStrictI18n()) {
             attributeSet.validateStrictI18n();
         }
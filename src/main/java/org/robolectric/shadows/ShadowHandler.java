@@ -10,8 +10,13 @@ import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.robolectric.Robolectric.shadowOf;
 
@@ -27,7 +32,7 @@ public class ShadowHandler {
     @RealObject
     private Handler realHandler;
     private Looper looper = Looper.myLooper();
-    private List<Message> messages = new ArrayList<Message>();
+    private final Map<Integer, PendingMessages> messagesByWhat = new HashMap<Integer, PendingMessages>();
     private Handler.Callback callback;
 
     public void __constructor__() {
@@ -96,19 +101,34 @@ public class ShadowHandler {
     @Implementation
     public final boolean sendMessageDelayed(final Message msg, long delayMillis) {
         Robolectric.shadowOf(msg).setWhen(Robolectric.shadowOf(looper).getScheduler().getCurrentTime()+delayMillis);
-        messages.add(msg);
-        postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                if (messages.contains(msg)) {
-                    messages.remove(msg);
-                    routeMessage(msg);
-                }
-            }
-        }, delayMillis);
+        postDelayed(enqueue(msg), delayMillis);
         return true;
     }
 
+    // messages may be sent from background threads; the index is locked separately from the looper's scheduler, and
+    // never while calling into it, so the two can't deadlock
+    private MessageRunnable enqueue(Message msg) {
+        MessageRunnable messageRunnable = new MessageRunnable(msg);
+        synchronized (messagesByWhat) {
+            PendingMessages messages = messagesByWhat.get(msg.what);
+            if (messages == null) {
+                messages = new PendingMessages();
+                messagesByWhat.put(msg.what, messages);
+            }
+            messages.add(messageRunnable);
+        }
+        return messageRunnable;
+    }
+
+    private boolean dequeue(MessageRunnable messageRunnable) {
+        synchronized (messagesByWhat) {
+            PendingMessages messages = messagesByWhat.get(messageRunnable.message.what);
+            if (messages == null || !messages.remove(messageRunnable)) return false;
+            if (messages.isEmpty()) messagesByWhat.remove(messageRunnable.message.what);
+            return true;
+        }
+    }
+
     private void routeMessage(Message msg) {
         if(callback != null) {
             callback.handleMessage(msg);
@@ -132,16 +152,7 @@ public class ShadowHandler {
     @Implementation
     public final boolean sendMessageAtFrontOfQueue(final Message msg) {
         Robolectric.shadowOf(msg).setWhen(Robolectric.shadowOf(looper).getScheduler().getCurrentTime());
-        messages.add(0, msg);
-        postAtFrontOfQueue(new Runnable() {
-            @Override
-            public void run() {
-                if (messages.contains(msg)) {
-                    messages.remove(msg);
-                    routeMessage(msg);
-                }
-            }
-        });
+        postAtFrontOfQueue(enqueue(msg));
         return true;
     }
 
@@ -157,22 +168,17 @@ public class ShadowHandler {
 
     @Implementation
     public final boolean hasMessages(int what) {
-        for (Message message : messages) {
-            if (message.what == what) {
-                return true;
-            }
+        synchronized (messagesByWhat) {
+            return messagesByWhat.containsKey(what);
         }
-        return false;
     }
 
     @Implementation
     public final boolean hasMessages(int what, Object object) {
-        for (Message message : messages) {
-            if(message.what == what && message.obj == object) {
-                return true;
-            }
+        synchronized (messagesByWhat) {
+            PendingMessages messages = messagesByWhat.get(what);
+            return messages != null && messages.countsByObject.containsKey(object);
         }
-        return false;
     }
 
 
@@ -183,10 +189,78 @@ public class ShadowHandler {
 
     @Implementation
     public final void removeMessages(int what, Object object) {
-        for (Iterator<Message> iterator = messages.iterator(); iterator.hasNext(); ) {
-            Message message = iterator.next();
-            if (message.what == what && (object == null || object.equals(message.obj))) {
-                iterator.remove();
+        List<MessageRunnable> removed = new ArrayList<MessageRunnable>();
+        synchronized (messagesByWhat) {
+            PendingMessages messages = messagesByWhat.get(what);
+            if (messages == null) return;
+            for (Iterator<MessageRunnable> iterator = messages.messages.iterator(); iterator.hasNext(); ) {
+                MessageRunnable messageRunnable = iterator.next();
+                if (object == null || object.equals(messageRunnable.message.obj)) {
+                    iterator.remove();
+                    messages.forget(messageRunnable);
+                    removed.add(messageRunnable);
+                }
+            }
+            if (messages.isEmpty()) messagesByWhat.remove(what);
+        }
+
+        for (MessageRunnable messageRunnable : removed) {
+            shadowOf(looper).getScheduler().remove(messageRunnable);
+        }
+    }
+
+    /**
+     * The messages pending for one {@code what}, in the order they were sent, with a count of them per {@code obj} so
+     * {@link #hasMessages(int, Object)} is a lookup too. Like {@code Handler}, objects are compared by identity there.
+     */
+    private static class PendingMessages {
+        private final Set<MessageRunnable> messages = new LinkedHashSet<MessageRunnable>();
+        private final Map<Object, Integer> countsByObject = new IdentityHashMap<Object, Integer>();
+
+        void add(MessageRunnable messageRunnable) {
+            messages.add(messageRunnable);
+            Integer count = countsByObject.get(messageRunnable.message.obj);
+            countsByObject.put(messageRunnable.message.obj, count == null ? 1 : count + 1);
+        }
+
+        boolean remove(MessageRunnable messageRunnable) {
+            if (!messages.remove(messageRunnable)) return false;
+            forget(messageRunnable);
+            return true;
+        }
+
+        /**
+         * Uncounts a message already taken out of {@link #messages}.
+         */
+        void forget(MessageRunnable messageRunnable) {
+            int count = countsByObject.get(messageRunnable.message.obj);
+            if (count == 1) {
+                countsByObject.remove(messageRunnable.message.obj);
+            } else {
+                countsByObject.put(messageRunnable.message.obj, count - 1);
+            }
+        }
+
+        boolean isEmpty() {
+            return messages.isEmpty();
+        }
+    }
+
+    /**
+     * What's posted to the looper for each message sent, so it can be found by {@code what} and taken out of the
+     * looper's queue again when the message is removed.
+     */
+    private class MessageRunnable implements Runnable {
+        private final Message message;
+
+        MessageRunnable(Message message) {
+            this.message = message;
+        }
+
+        @Override
+        public void run() {
+            if (dequeue(this)) {
+                routeMessage(message);
             }
         }
     }
@@ -2,6 +2,7 @@ package org.robolectric.shadows;
 
 import android.location.Location;
 import android.os.Bundle;
+import org.robolectric.Robolectric;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 
@@ -47,7 +48,7 @@ public class ShadowLocation {
 
     public void __constructor__(String provider) {
         this.provider = provider;
-        time = System.currentTimeMillis();
+        time = Robolectric.getVirtualClock().currentTimeMillis();
     }
 
     @Implementation
@@ -7,6 +7,9 @@ import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 import org.robolectric.util.Scheduler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.robolectric.Robolectric.shadowOf;
 
 /**
@@ -19,7 +22,8 @@ import static org.robolectric.Robolectric.shadowOf;
 @Implements(Looper.class)
 public class ShadowLooper {
     private static ThreadLocal<Looper> looperForThread = makeThreadLocalLoopers();
-    private Scheduler scheduler = new Scheduler();
+    private static final List<Looper> loopers = new ArrayList<Looper>();
+    private Scheduler scheduler = new Scheduler(Robolectric.getVirtualClock());
     private Thread myThread = Thread.currentThread();
     private @RealObject Looper realObject;
 
@@ -29,13 +33,30 @@ public class ShadowLooper {
         return new ThreadLocal<Looper>() {
             @Override
             protected Looper initialValue() {
-                return Robolectric.Reflection.newInstanceOf(Looper.class);
+                Looper looper = Robolectric.Reflection.newInstanceOf(Looper.class);
+                synchronized (loopers) {
+                    loopers.add(looper);
+                }
+                return looper;
             }
         };
     }
 
     public static void resetThreadLoopers() {
         looperForThread = makeThreadLocalLoopers();
+        synchronized (loopers) {
+            loopers.clear();
+        }
+    }
+
+    /**
+     * @return the looper of every thread that has asked for one since loopers were last reset, in the order they were
+     *     created, except those that have quit
+     */
+    public static List<Looper> getAllLoopers() {
+        synchronized (loopers) {
+            return new ArrayList<Looper>(loopers);
+        }
     }
 
     @Implementation
@@ -75,6 +96,10 @@ public class ShadowLooper {
             scheduler.reset();
             realObject.notify();
         }
+        // nothing will run on a quit looper again, so stop idling it and let it be collected
+        synchronized (loopers) {
+            loopers.remove(realObject);
+        }
     }
 
     @Implementation
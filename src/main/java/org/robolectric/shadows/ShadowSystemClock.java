@@ -0,0 +1,40 @@
+package org.robolectric.shadows;
+
+import android.os.SystemClock;
+import org.robolectric.Robolectric;
+import org.robolectric.internal.Implementation;
+import org.robolectric.internal.Implements;
+
+/**
+ * Shadow of {@code SystemClock} that reads {@link Robolectric#getVirtualClock() virtual time}, so it moves on exactly
+ * as far as the loopers' schedulers are advanced. {@link #sleep(long)} advances virtual time instead of blocking.
+ */
+@SuppressWarnings({"UnusedDeclaration"})
+@Implements(SystemClock.class)
+public class ShadowSystemClock {
+    @Implementation
+    public static long uptimeMillis() {
+        return Robolectric.getVirtualClock().getUptimeMillis();
+    }
+
+    @Implementation
+    public static long elapsedRealtime() {
+        return Robolectric.getVirtualClock().getUptimeMillis();
+    }
+
+    @Implementation
+    public static long currentThreadTimeMillis() {
+        return Robolectric.getVirtualClock().getUptimeMillis();
+    }
+
+    @Implementation
+    public static void sleep(long ms) {
+        Robolectric.getVirtualClock().advanceBy(ms);
+    }
+
+    @Implementation
+    public static boolean setCurrentTimeMillis(long millis) {
+        Robolectric.getVirtualClock().setCurrentTimeMillis(millis);
+        return true;
+    }
+}
@@ -3,6 +3,7 @@ package org.robolectric.shadows;
 
 import android.text.format.Time;
 import android.util.TimeFormatException;
+import org.robolectric.Robolectric;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
@@ -58,7 +59,7 @@ public class ShadowTime {
 
     @Implementation
     public void setToNow() {
-        set(System.currentTimeMillis());
+        set(Robolectric.getVirtualClock().currentTimeMillis());
     }
 
 
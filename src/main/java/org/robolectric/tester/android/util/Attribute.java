@@ -34,8 +34,12 @@ public class Attribute {
     }
 
     public Attribute(Node attr, XmlLoader.XmlContext xmlContext) {
-        this(extractPackageName(attr.getNamespaceURI(), xmlContext) + ":attr/" + attr.getLocalName(),
-                attr.getNodeValue(),
+        this(attr.getNamespaceURI(), attr.getLocalName(), attr.getNodeValue(), xmlContext);
+    }
+
+    public Attribute(String namespaceUri, String localName, String value, XmlLoader.XmlContext xmlContext) {
+        this(extractPackageName(namespaceUri, xmlContext) + ":attr/" + localName,
+                value,
                 xmlContext.packageName);
     }
 
@@ -0,0 +1,62 @@
+package org.robolectric.tester.android.util;
+
+import org.robolectric.res.ResourceExtractor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable list of attributes, indexed by name and by resource id so lookups don't have to scan it. Where an
+ * attribute appears more than once, the first one wins, as with {@link Attribute#find}.
+ *
+ * Ids come from a {@link ResourceExtractor}, so the id index is built the first time it's needed and rebuilt if
+ * asked with a different extractor.
+ */
+public class AttributeIndex {
+    private final List<Attribute> attributes;
+    private final Map<ResName, Attribute> attributesByName = new HashMap<ResName, Attribute>();
+    private volatile IdIndex idIndex;
+
+    public AttributeIndex(List<Attribute> attributes) {
+        this.attributes = Collections.unmodifiableList(new ArrayList<Attribute>(attributes));
+        for (Attribute attribute : this.attributes) {
+            if (!attributesByName.containsKey(attribute.resName)) {
+                attributesByName.put(attribute.resName, attribute);
+            }
+        }
+    }
+
+    public List<Attribute> getAttributes() {
+        return attributes;
+    }
+
+    public Attribute find(ResName resName) {
+        return attributesByName.get(resName);
+    }
+
+    public Attribute find(int attrId, ResourceExtractor resourceExtractor) {
+        IdIndex idIndex = this.idIndex;
+        if (idIndex == null || idIndex.resourceExtractor != resourceExtractor) {
+            idIndex = this.idIndex = new IdIndex(attributes, resourceExtractor);
+        }
+        return idIndex.attributesById.get(attrId);
+    }
+
+    private static class IdIndex {
+        private final ResourceExtractor resourceExtractor;
+        private final Map<Integer, Attribute> attributesById = new HashMap<Integer, Attribute>();
+
+        IdIndex(List<Attribute> attributes, ResourceExtractor resourceExtractor) {
+            this.resourceExtractor = resourceExtractor;
+            for (Attribute attribute : attributes) {
+                Integer resourceId = resourceExtractor.getResourceId(attribute.resName);
+                if (resourceId != null && !attributesById.containsKey(resourceId)) {
+                    attributesById.put(resourceId, attribute);
+                }
+            }
+        }
+    }
+}
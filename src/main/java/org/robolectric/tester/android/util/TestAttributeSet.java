@@ -10,6 +10,7 @@ import java.util.List;
 
 public class TestAttributeSet implements AttributeSet {
     private final List<Attribute> attributes;
+    private AttributeIndex attributeIndex;
     private final ResourceLoader resourceLoader;
     private Class<? extends View> viewClass;
 
@@ -23,18 +24,29 @@ public class TestAttributeSet implements AttributeSet {
             new ResName("android:attr/summary")
     };
 
+    private static final ResName STYLE_ATTR = new ResName("", "attr", "style");
+
     public TestAttributeSet(List<Attribute> attributes, ResourceLoader resourceLoader, Class<? extends View> viewClass) {
         this.attributes = attributes;
         this.resourceLoader = resourceLoader;
         this.viewClass = viewClass;
     }
 
+    /**
+     * Uses a prebuilt index, which can be shared between attribute sets; such sets can't be {@link #put} to.
+     */
+    public TestAttributeSet(AttributeIndex attributeIndex, ResourceLoader resourceLoader, Class<? extends View> viewClass) {
+        this(attributeIndex.getAttributes(), resourceLoader, viewClass);
+        this.attributeIndex = attributeIndex;
+    }
+
     public TestAttributeSet put(String fullyQualifiedName, String value, String valuePackage) {
         return put(new Attribute(fullyQualifiedName, value, valuePackage));
     }
 
     public TestAttributeSet put(Attribute attribute) {
         attributes.add(attribute);
+        attributeIndex = null;
         return this;
     }
 
@@ -189,7 +201,7 @@ public class TestAttributeSet implements AttributeSet {
     }
 
     @Override public int getStyleAttribute() {
-        Attribute styleAttribute = Attribute.find(attributes, new ResName("", "attr", "style"));
+        Attribute styleAttribute = getAttributeIndex().find(STYLE_ATTR);
         if (styleAttribute == null) {
             // Per Android specifications, return 0 if there is no style.
             return 0;
@@ -221,9 +233,16 @@ public class TestAttributeSet implements AttributeSet {
         // canonicalize the attr name if we can, otherwise don't...
         // todo: this is awful; fix it.
         if (resourceId == null) {
-            return Attribute.find(attributes, resName);
+            return getAttributeIndex().find(resName);
         } else {
-            return Attribute.find(attributes, resourceId, resourceExtractor);
+            return getAttributeIndex().find(resourceId, resourceExtractor);
+        }
+    }
+
+    private AttributeIndex getAttributeIndex() {
+        if (attributeIndex == null) {
+            attributeIndex = new AttributeIndex(attributes);
         }
+        return attributeIndex;
     }
 }
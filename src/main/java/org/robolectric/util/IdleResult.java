@@ -0,0 +1,30 @@
+package org.robolectric.util;
+
+/**
+ * What {@link org.robolectric.Robolectric#idleUntilQuiescent(long)} did.
+ */
+public class IdleResult {
+    private final int tasksRun;
+    private final long elapsedMillis;
+
+    public IdleResult(int tasksRun, long elapsedMillis) {
+        this.tasksRun = tasksRun;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getTasksRun() {
+        return tasksRun;
+    }
+
+    /**
+     * @return how far virtual time moved on, from when idling started to when the last task was due
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "IdleResult{tasksRun=" + tasksRun + ", elapsedMillis=" + elapsedMillis + '}';
+    }
+}
@@ -0,0 +1,98 @@
+package org.robolectric.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Remembers which files a set of Maven dependencies resolved to, so later JVMs can skip maven-ant-tasks. Each
+ * entry records the length and modification time of every file, and is only used while all of them still match.
+ */
+public class ResolvedArtifactCache {
+    private final File cacheFile;
+
+    public ResolvedArtifactCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * @return the files {@code key} resolved to, which may be none, or null if it isn't cached, its entry can't be
+     *     read, or any of the files has changed since
+     */
+    public List<File> get(String key) {
+        String entry = load().getProperty(key);
+        if (entry == null) return null;
+
+        List<File> files = new ArrayList<File>();
+        if (entry.length() == 0) return files;
+        for (String line : entry.split("\n")) {
+            String[] parts = line.split(" ", 3);
+            if (parts.length != 3) return null;
+
+            File file = new File(parts[2]);
+            try {
+                if (!file.isFile() || file.length() != Long.parseLong(parts[0]) || file.lastModified() != Long.parseLong(parts[1])) {
+                    return null;
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    public synchronized void put(String key, List<File> files) {
+        List<String> lines = new ArrayList<String>();
+        for (File file : files) {
+            lines.add(file.length() + " " + file.lastModified() + " " + file.getAbsolutePath());
+        }
+
+        Properties properties = load();
+        properties.setProperty(key, Join.join("\n", lines));
+
+        // write then rename, so concurrently starting JVMs never read a partial file
+        File dir = cacheFile.getAbsoluteFile().getParentFile();
+        try {
+            if (!dir.exists()) dir.mkdirs();
+            File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+            OutputStream out = new FileOutputStream(tempFile);
+            try {
+                properties.store(out, "resolved artifacts");
+            } finally {
+                out.close();
+            }
+            if (!tempFile.renameTo(cacheFile)) {
+                cacheFile.delete();
+                if (!tempFile.renameTo(cacheFile)) tempFile.delete();
+            }
+        } catch (IOException e) {
+            // just a cache; resolve again next time
+        }
+    }
+
+    private Properties load() {
+        Properties properties = new Properties();
+        if (!cacheFile.exists()) return properties;
+
+        try {
+            InputStream in = new FileInputStream(cacheFile);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return new Properties();
+        } catch (IllegalArgumentException e) {
+            return new Properties();
+        }
+        return properties;
+    }
+}
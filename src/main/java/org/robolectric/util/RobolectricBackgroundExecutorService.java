@@ -2,50 +2,128 @@ package org.robolectric.util;
 
 import org.robolectric.Robolectric;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * By default, queues tasks on the {@link Robolectric#getBackgroundScheduler() background scheduler}, to be run on the
+ * test thread by {@link Robolectric#runBackgroundTasks()}, except that {@link #invokeAll(Collection)} and
+ * {@link #invokeAny(Collection)} run their tasks inline, on the calling thread.
+ *
+ * Created with a thread count, runs tasks on that many real threads instead. Tasks start as soon as they're
+ * submitted; {@link Robolectric#runBackgroundTasks()} waits until every such executor is idle, so tests still have a
+ * point at which all background work is known to be done.
+ * Anything the tasks post to a {@link android.os.Handler} is queued on its looper's scheduler as usual.
+ */
 public class RobolectricBackgroundExecutorService implements ExecutorService {
+    private static final long AWAIT_TIMEOUT_MILLIS = Long.getLong("robolectric.backgroundTaskTimeoutMillis", 60000);
+    private static final Set<ThreadedExecutor> THREADED_EXECUTORS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<ThreadedExecutor, Boolean>()));
+
+    private final AbstractExecutorService executor;
+
+    public RobolectricBackgroundExecutorService() {
+        executor = new SchedulerExecutor();
+    }
+
+    /**
+     * @param threadCount how many tasks may run at once
+     */
+    public RobolectricBackgroundExecutorService(int threadCount) {
+        ThreadedExecutor threadedExecutor = new ThreadedExecutor(threadCount);
+        THREADED_EXECUTORS.add(threadedExecutor);
+        executor = threadedExecutor;
+    }
+
+    /**
+     * Waits until no task submitted to any threaded executor is queued or running, including tasks they submit in
+     * turn.
+     *
+     * @throws RuntimeException if a task passed to {@link #execute(Runnable)} or {@link #submit(Callable)} threw,
+     *     rather than losing the failure on a pool thread, or if tasks are still pending after
+     *     {@code robolectric.backgroundTaskTimeoutMillis} (a minute by default) across all executors
+     */
+    public static void awaitThreadedTasks() {
+        List<ThreadedExecutor> threadedExecutors;
+        synchronized (THREADED_EXECUTORS) {
+            threadedExecutors = new ArrayList<ThreadedExecutor>(THREADED_EXECUTORS);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AWAIT_TIMEOUT_MILLIS);
+        boolean busy = true;
+        while (busy) {
+            busy = false;
+            for (ThreadedExecutor threadedExecutor : threadedExecutors) {
+                if (threadedExecutor.awaitIdle(deadline)) busy = true;
+            }
+        }
+    }
+
+    /**
+     * Shuts down every threaded executor created so far and forgets them, so that neither their failures nor their
+     * stuck tasks carry over into the next test.
+     */
+    public static void reset() {
+        List<ThreadedExecutor> threadedExecutors;
+        synchronized (THREADED_EXECUTORS) {
+            threadedExecutors = new ArrayList<ThreadedExecutor>(THREADED_EXECUTORS);
+            THREADED_EXECUTORS.clear();
+        }
+
+        for (ThreadedExecutor threadedExecutor : threadedExecutors) {
+            threadedExecutor.shutdownNow();
+        }
+    }
+
     @Override
     public void shutdown() {
-        throw new UnsupportedOperationException();
+        executor.shutdown();
     }
 
     @Override
     public List<Runnable> shutdownNow() {
-        throw new UnsupportedOperationException();
+        return executor.shutdownNow();
     }
 
     @Override
     public boolean isShutdown() {
-        throw new UnsupportedOperationException();
+        return executor.isShutdown();
     }
 
     @Override
     public boolean isTerminated() {
-        throw new UnsupportedOperationException();
+        return executor.isTerminated();
     }
 
     @Override
     public boolean awaitTermination(long l, TimeUnit timeUnit) throws InterruptedException {
-        throw new UnsupportedOperationException();
+        return executor.awaitTermination(l, timeUnit);
     }
 
     @Override
     public <T> Future<T> submit(Callable<T> tCallable) {
-        return schedule(new FutureTask<T>(tCallable));
+        return executor.submit(tCallable);
     }
 
     @Override
     public <T> Future<T> submit(Runnable runnable, T t) {
-        return schedule(new FutureTask<T>(runnable, t));
+        return executor.submit(runnable, t);
     }
 
     @Override
@@ -53,40 +131,300 @@ public class RobolectricBackgroundExecutorService implements ExecutorService {
         return submit(runnable, null);
     }
 
-    private <T> Future<T> schedule(final FutureTask<T> futureTask) {
-        Robolectric.getShadowApplication().getBackgroundScheduler().post(new Runnable() {
-            @Override
-            public void run() {
-                futureTask.run();
-            }
-        });
-
-        return futureTask;
-    }
-
     @Override
     public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> callables) throws InterruptedException {
-        throw new UnsupportedOperationException();
+        return executor.invokeAll(callables);
     }
 
     @Override
     public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> callables, long l, TimeUnit timeUnit) throws InterruptedException {
-        throw new UnsupportedOperationException();
+        return executor.invokeAll(callables, l, timeUnit);
     }
 
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> callables) throws InterruptedException, ExecutionException {
-        throw new UnsupportedOperationException();
+        return executor.invokeAny(callables);
     }
 
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> callables, long l, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
-        throw new UnsupportedOperationException();
+        return executor.invokeAny(callables, l, timeUnit);
     }
 
     @Override
     public void execute(Runnable runnable) {
-        submit(runnable);
+        executor.execute(runnable);
     }
-}
 
+    /**
+     * Queues tasks on the background scheduler. The scheduler only runs them on the test thread, so there's nothing to
+     * wait for: {@link #invokeAll(Collection)} and {@link #invokeAny(Collection)}, which must return finished results,
+     * run their tasks inline instead, and {@link #awaitTermination(long, TimeUnit)} returns at once.
+     */
+    private static class SchedulerExecutor extends AbstractExecutorService {
+        private final Set<Runnable> queued = new LinkedHashSet<Runnable>();
+        private boolean shutdown;
+
+        private final AbstractExecutorService inline = new AbstractExecutorService() {
+            @Override public void execute(Runnable command) {
+                synchronized (queued) {
+                    if (shutdown) throw new RejectedExecutionException("shut down");
+                }
+                command.run();
+            }
+
+            @Override public void shutdown() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override public List<Runnable> shutdownNow() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override public boolean isShutdown() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override public boolean isTerminated() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override public boolean awaitTermination(long timeout, TimeUnit unit) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        @Override
+        public void execute(final Runnable command) {
+            synchronized (queued) {
+                if (shutdown) throw new RejectedExecutionException("shut down");
+                queued.add(command);
+            }
+
+            Robolectric.getShadowApplication().getBackgroundScheduler().post(new Runnable() {
+                @Override
+                public void run() {
+                    // unless shutdownNow() took it back
+                    synchronized (queued) {
+                        if (!queued.remove(command)) return;
+                    }
+                    command.run();
+                }
+            });
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> callables) throws InterruptedException {
+            return inline.invokeAll(callables);
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> callables, long timeout, TimeUnit unit) throws InterruptedException {
+            return inline.invokeAll(callables, timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> callables) throws InterruptedException, ExecutionException {
+            return inline.invokeAny(callables);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> callables, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return inline.invokeAny(callables, timeout, unit);
+        }
+
+        @Override
+        public void shutdown() {
+            synchronized (queued) {
+                shutdown = true;
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            synchronized (queued) {
+                shutdown = true;
+                List<Runnable> neverRun = new ArrayList<Runnable>(queued);
+                queued.clear();
+                return neverRun;
+            }
+        }
+
+        @Override
+        public boolean isShutdown() {
+            synchronized (queued) {
+                return shutdown;
+            }
+        }
+
+        @Override
+        public boolean isTerminated() {
+            synchronized (queued) {
+                return shutdown && queued.isEmpty();
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+
+    /**
+     * A thread pool that counts the tasks it has been handed and not yet finished, so they can be waited for.
+     */
+    private static class ThreadedExecutor extends AbstractExecutorService {
+        private final ThreadPoolExecutor threadPool;
+        private final Object lock = new Object();
+        private int pendingTasks;
+        private RuntimeException failure;
+        // checked for failures once they're done, since a future keeps what its task threw to itself
+        private final List<Future<?>> submitted = new ArrayList<Future<?>>();
+
+        ThreadedExecutor(int threadCount) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            threadPool = new ThreadPoolExecutor(threadCount, threadCount, 1, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "robolectric background " + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // so executors a test forgets to shut down don't keep threads around
+            threadPool.allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            synchronized (lock) {
+                pendingTasks++;
+            }
+            try {
+                threadPool.execute(new Runnable() {
+                    @Override public void run() {
+                        try {
+                            command.run();
+                        } catch (RuntimeException e) {
+                            fail(e);
+                        } catch (Error e) {
+                            fail(new RuntimeException(e));
+                        } finally {
+                            finished(1);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                finished(1);
+                throw e;
+            }
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return remember(super.submit(task));
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return remember(super.submit(task, result));
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return remember(super.submit(task));
+        }
+
+        private <T> Future<T> remember(Future<T> future) {
+            synchronized (lock) {
+                submitted.add(future);
+            }
+            return future;
+        }
+
+        /**
+         * @param deadline from {@link System#nanoTime()}
+         * @return whether there was anything to wait for
+         */
+        boolean awaitIdle(long deadline) {
+            synchronized (lock) {
+                boolean waited = false;
+                while (pendingTasks > 0) {
+                    waited = true;
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        throw new RuntimeException("timed out after " + AWAIT_TIMEOUT_MILLIS + "ms waiting for " + pendingTasks + " background task(s)");
+                    }
+                    try {
+                        lock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                }
+
+                for (Future<?> future : submitted) {
+                    if (!future.isCancelled()) failIfThrew(future);
+                }
+                submitted.clear();
+
+                RuntimeException failure = this.failure;
+                this.failure = null;
+                if (failure != null) throw failure;
+                return waited;
+            }
+        }
+
+        private void failIfThrew(Future<?> future) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                fail(cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause));
+            } catch (InterruptedException e) {
+                // can't happen; the future is done
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void fail(RuntimeException e) {
+            synchronized (lock) {
+                if (failure == null) failure = e;
+            }
+        }
+
+        private void finished(int taskCount) {
+            synchronized (lock) {
+                pendingTasks -= taskCount;
+                lock.notifyAll();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            threadPool.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> neverRun = threadPool.shutdownNow();
+            finished(neverRun.size());
+            return neverRun;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return threadPool.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return threadPool.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return threadPool.awaitTermination(timeout, unit);
+        }
+    }
+}
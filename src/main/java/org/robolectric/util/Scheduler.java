@@ -1,18 +1,41 @@
 package org.robolectric.util;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.ListIterator;
-
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Runs posted runnables in the order of the time they're scheduled for, then of posting, as simulated time
+ * advances. Posting, removing and running each take O(log n).
+ *
+ * Time is kept by a {@link VirtualClock}, which may be shared with other schedulers; moving any of them on moves them
+ * all, and runnables another scheduler's advance made overdue run the next time this one advances.
+ */
 public class Scheduler {
-    private List<PostedRunnable> postedRunnables = new ArrayList<PostedRunnable>();
-    private long currentTime = 0;
+    private final TreeSet<PostedRunnable> postedRunnables = new TreeSet<PostedRunnable>();
+    private final Map<Runnable, List<PostedRunnable>> postedRunnablesByRunnable = new IdentityHashMap<Runnable, List<PostedRunnable>>();
+    private long nextSequence = 0;
+    private long nextFrontOfQueueSequence = -1;
+    private final VirtualClock clock;
     private boolean paused = false;
     private Thread associatedThread = Thread.currentThread();
 
+    public Scheduler() {
+        this(new VirtualClock());
+    }
+
+    public Scheduler(VirtualClock clock) {
+        this.clock = clock;
+    }
+
     public synchronized long getCurrentTime() {
-        return currentTime;
+        return clock.getUptimeMillis();
+    }
+
+    public VirtualClock getClock() {
+        return clock;
     }
 
     public synchronized void pause() {
@@ -30,8 +53,7 @@ public class Scheduler {
 
     public synchronized void postDelayed(Runnable runnable, long delayMillis) {
         if (paused || delayMillis > 0 || Thread.currentThread() != associatedThread) {
-	        postedRunnables.add(new PostedRunnable(runnable, currentTime + delayMillis));
-	        Collections.sort(postedRunnables);
+            enqueue(new PostedRunnable(runnable, getCurrentTime() + delayMillis, nextSequence++));
         } else {
             runnable.run();
         }
@@ -43,18 +65,20 @@ public class Scheduler {
 
     public synchronized void postAtFrontOfQueue(Runnable runnable) {
         if (paused || Thread.currentThread() != associatedThread) {
-        	postedRunnables.add(0, new PostedRunnable(runnable, currentTime));
+            // ahead of everything else, including overdue runnables and earlier ones posted to the front
+            long scheduledTime = getCurrentTime();
+            if (!postedRunnables.isEmpty()) scheduledTime = Math.min(scheduledTime, getNextScheduledTime());
+            enqueue(new PostedRunnable(runnable, scheduledTime, nextFrontOfQueueSequence--));
         } else {
             runnable.run();
         }
     }
 
     public synchronized void remove(Runnable runnable) {
-        ListIterator<PostedRunnable> iterator = postedRunnables.listIterator();
-        while (iterator.hasNext()) {
-            PostedRunnable next = iterator.next();
-            if (next.runnable == runnable) {
-                iterator.remove();
+        List<PostedRunnable> removed = postedRunnablesByRunnable.remove(runnable);
+        if (removed != null) {
+            for (PostedRunnable postedRunnable : removed) {
+                postedRunnables.remove(postedRunnable);
             }
         }
     }
@@ -64,7 +88,7 @@ public class Scheduler {
             return false;
         }
 
-        return advanceTo(postedRunnables.get(postedRunnables.size() - 1).scheduledTime);
+        return advanceTo(postedRunnables.last().scheduledTime);
     }
 
     public synchronized boolean advanceToNextPostedRunnable() {
@@ -72,16 +96,16 @@ public class Scheduler {
             return false;
         }
 
-        return advanceTo(postedRunnables.get(0).scheduledTime);
+        return advanceTo(postedRunnables.first().scheduledTime);
     }
 
     public synchronized boolean advanceBy(long intervalMs) {
-        long endingTime = currentTime + intervalMs;
+        long endingTime = getCurrentTime() + intervalMs;
         return advanceTo(endingTime);
     }
 
     public synchronized boolean advanceTo(long endingTime) {
-        if (endingTime - currentTime < 0 || enqueuedTaskCount() < 1) {
+        if (endingTime - getCurrentTime() < 0) {
             return false;
         }
 
@@ -90,7 +114,7 @@ public class Scheduler {
             runOneTask();
             ++runCount;
         }
-        currentTime = endingTime;
+        clock.advanceTo(endingTime);
 
         return runCount > 0;
     }
@@ -100,8 +124,8 @@ public class Scheduler {
             return false;
         }
 
-        PostedRunnable postedRunnable = postedRunnables.remove(0);
-        currentTime = postedRunnable.scheduledTime;
+        PostedRunnable postedRunnable = dequeue();
+        clock.advanceTo(postedRunnable.scheduledTime);
         postedRunnable.run();
         return true;
     }
@@ -112,24 +136,33 @@ public class Scheduler {
         }
 
         while (howMany > 0) {
-            PostedRunnable postedRunnable = postedRunnables.remove(0);
-            currentTime = postedRunnable.scheduledTime;
+            PostedRunnable postedRunnable = dequeue();
+            clock.advanceTo(postedRunnable.scheduledTime);
             postedRunnable.run();
             howMany--;
         }
         return true;
     }
 
+    /**
+     * @return when the next posted runnable is scheduled to run
+     * @throws java.util.NoSuchElementException if nothing is posted
+     */
+    public synchronized long getNextScheduledTime() {
+        return postedRunnables.first().scheduledTime;
+    }
+
     public synchronized int enqueuedTaskCount() {
         return postedRunnables.size();
     }
 
     public synchronized boolean areAnyRunnable() {
-        return nextTaskIsScheduledBefore(currentTime);
+        return nextTaskIsScheduledBefore(getCurrentTime());
     }
 
     public synchronized void reset() {
         postedRunnables.clear();
+        postedRunnablesByRunnable.clear();
         paused = false;
     }
 
@@ -137,18 +170,43 @@ public class Scheduler {
         return postedRunnables.size();
     }
 
+    private void enqueue(PostedRunnable postedRunnable) {
+        postedRunnables.add(postedRunnable);
+        List<PostedRunnable> forRunnable = postedRunnablesByRunnable.get(postedRunnable.runnable);
+        if (forRunnable == null) {
+            forRunnable = new ArrayList<PostedRunnable>(1);
+            postedRunnablesByRunnable.put(postedRunnable.runnable, forRunnable);
+        }
+        forRunnable.add(postedRunnable);
+    }
+
+    private PostedRunnable dequeue() {
+        PostedRunnable postedRunnable = postedRunnables.pollFirst();
+        List<PostedRunnable> forRunnable = postedRunnablesByRunnable.get(postedRunnable.runnable);
+        forRunnable.remove(postedRunnable);
+        if (forRunnable.isEmpty()) {
+            postedRunnablesByRunnable.remove(postedRunnable.runnable);
+        }
+        return postedRunnable;
+    }
+
     class PostedRunnable implements Comparable<PostedRunnable> {
-        Runnable runnable;
-        long scheduledTime;
+        final Runnable runnable;
+        final long scheduledTime;
+        final long sequence;
 
-        PostedRunnable(Runnable runnable, long scheduledTime) {
+        PostedRunnable(Runnable runnable, long scheduledTime, long sequence) {
             this.runnable = runnable;
             this.scheduledTime = scheduledTime;
+            this.sequence = sequence;
         }
 
         @Override
         public int compareTo(PostedRunnable postedRunnable) {
-            return (int) (scheduledTime - postedRunnable.scheduledTime);
+            if (scheduledTime != postedRunnable.scheduledTime) {
+                return scheduledTime < postedRunnable.scheduledTime ? -1 : 1;
+            }
+            return sequence < postedRunnable.sequence ? -1 : sequence == postedRunnable.sequence ? 0 : 1;
         }
 
         public void run() {
@@ -157,6 +215,6 @@ public class Scheduler {
     }
 
     private boolean nextTaskIsScheduledBefore(long endingTime) {
-        return enqueuedTaskCount() > 0 && postedRunnables.get(0).scheduledTime <= endingTime;
+        return enqueuedTaskCount() > 0 && postedRunnables.first().scheduledTime <= endingTime;
     }
 }
@@ -0,0 +1,70 @@
+package org.robolectric.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds on to the most recently used {@code maxSize} values. Older ones are only softly reachable, so they're still
+ * found until the garbage collector needs the memory back, and are used again (and held on to) if they are.
+ */
+public class SoftLruCache<K, V> {
+    private final int maxSize;
+    private final LinkedHashMap<K, V> recentValues;
+    private final Map<K, SoftEntry<K, V>> evictedValues = new HashMap<K, SoftEntry<K, V>>();
+    private final ReferenceQueue<V> clearedValues = new ReferenceQueue<V>();
+
+    public SoftLruCache(int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        this.maxSize = maxSize;
+        recentValues = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() <= SoftLruCache.this.maxSize) return false;
+                evictedValues.put(eldest.getKey(), new SoftEntry<K, V>(eldest.getKey(), eldest.getValue(), clearedValues));
+                return true;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        expungeClearedValues();
+        V value = recentValues.get(key);
+        if (value != null) return value;
+
+        SoftEntry<K, V> evicted = evictedValues.remove(key);
+        value = evicted == null ? null : evicted.get();
+        if (value != null) recentValues.put(key, value);
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        expungeClearedValues();
+        evictedValues.remove(key);
+        recentValues.put(key, value);
+    }
+
+    /**
+     * @return how many values are held on to, not counting those only softly reachable
+     */
+    public synchronized int size() {
+        return recentValues.size();
+    }
+
+    private void expungeClearedValues() {
+        SoftEntry<?, ?> cleared;
+        while ((cleared = (SoftEntry<?, ?>) clearedValues.poll()) != null) {
+            if (evictedValues.get(cleared.key) == cleared) evictedValues.remove(cleared.key);
+        }
+    }
+
+    private static class SoftEntry<K, V> extends SoftReference<V> {
+        private final K key;
+
+        SoftEntry(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+}
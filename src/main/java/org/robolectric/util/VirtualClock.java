@@ -0,0 +1,46 @@
+package org.robolectric.util;
+
+/**
+ * Simulated time, which only moves when something moves it on, never backwards. Robolectric keeps one per test, shared
+ * by every {@link Scheduler} and read by the {@code SystemClock} shadow, so advancing any looper advances time
+ * everywhere.
+ *
+ * Uptime starts at zero; wall clock time starts at the real time the clock was created, and moves on with uptime.
+ */
+public class VirtualClock {
+    private long uptimeMillis;
+    private long wallClockOffset;
+
+    public VirtualClock() {
+        wallClockOffset = System.currentTimeMillis();
+    }
+
+    public synchronized long getUptimeMillis() {
+        return uptimeMillis;
+    }
+
+    /**
+     * Moves time on to {@code uptimeMillis}, unless it's already later.
+     */
+    public synchronized void advanceTo(long uptimeMillis) {
+        if (uptimeMillis > this.uptimeMillis) {
+            this.uptimeMillis = uptimeMillis;
+        }
+    }
+
+    public synchronized void advanceBy(long millis) {
+        advanceTo(uptimeMillis + millis);
+    }
+
+    public synchronized long currentTimeMillis() {
+        return wallClockOffset + uptimeMillis;
+    }
+
+    public synchronized void setCurrentTimeMillis(long currentTimeMillis) {
+        wallClockOffset = currentTimeMillis - uptimeMillis;
+    }
+
+    public synchronized long nanoTime() {
+        return uptimeMillis * 1000000;
+    }
+}
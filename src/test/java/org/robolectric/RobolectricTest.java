@@ -3,12 +3,16 @@ package org.robolectric;
 import android.app.Activity;
 import android.content.Context;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
 import android.view.Display;
 import android.view.View;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.shadows.ShadowDisplay;
+import org.robolectric.util.IdleResult;
 import org.robolectric.util.TestOnClickListener;
+import org.robolectric.util.Transcript;
 import org.apache.http.HttpException;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -143,6 +147,102 @@ public class RobolectricTest {
         assertTrue(wasRun[0]);
     }
 
+    @Test
+    public void idleUntilQuiescent_shouldRunLoopersAndBackgroundTasksInTimeOrder() throws Exception {
+        final Transcript transcript = new Transcript();
+        final Handler handler = new Handler();
+        HandlerThread handlerThread = new HandlerThread("worker");
+        handlerThread.start();
+        Handler workerHandler = new Handler(handlerThread.getLooper());
+
+        Robolectric.pauseMainLooper();
+        handler.postDelayed(new Runnable() {
+            @Override public void run() {
+                transcript.add("main at 300");
+            }
+        }, 300);
+        workerHandler.postDelayed(new Runnable() {
+            @Override public void run() {
+                transcript.add("worker at 100");
+                handler.postDelayed(new Runnable() {
+                    @Override public void run() {
+                        transcript.add("main at 150");
+                    }
+                }, 50);
+            }
+        }, 100);
+        Robolectric.getBackgroundScheduler().pause();
+        Robolectric.getBackgroundScheduler().postDelayed(new Runnable() {
+            @Override public void run() {
+                transcript.add("background at 200");
+            }
+        }, 200);
+
+        IdleResult result = Robolectric.idleUntilQuiescent(1000);
+        transcript.assertEventsSoFar("worker at 100", "main at 150", "background at 200", "main at 300");
+        assertEquals(4, result.getTasksRun());
+        assertEquals(300, result.getElapsedMillis());
+        handlerThread.quit();
+    }
+
+    @Test
+    public void idleUntilQuiescent_shouldGiveTasksPostedAcrossLoopersTheSameClock() throws Exception {
+        final Transcript transcript = new Transcript();
+        final long startTime = SystemClock.uptimeMillis();
+        final Handler handler = new Handler();
+        HandlerThread handlerThread = new HandlerThread("worker");
+        handlerThread.start();
+        final Handler workerHandler = new Handler(handlerThread.getLooper());
+
+        Robolectric.pauseMainLooper();
+        handler.postDelayed(new Runnable() {
+            @Override public void run() {
+                transcript.add("main at " + (SystemClock.uptimeMillis() - startTime));
+                workerHandler.postDelayed(new Runnable() {
+                    @Override public void run() {
+                        transcript.add("worker at " + (SystemClock.uptimeMillis() - startTime));
+                    }
+                }, 50);
+            }
+        }, 100);
+        workerHandler.postDelayed(new Runnable() {
+            @Override public void run() {
+                transcript.add("worker at " + (SystemClock.uptimeMillis() - startTime));
+                handler.postDelayed(new Runnable() {
+                    @Override public void run() {
+                        transcript.add("main at " + (SystemClock.uptimeMillis() - startTime));
+                    }
+                }, 10);
+            }
+        }, 120);
+
+        IdleResult result = Robolectric.idleUntilQuiescent(1000);
+        transcript.assertEventsSoFar("main at 100", "worker at 120", "main at 130", "worker at 150");
+        assertEquals(150, result.getElapsedMillis());
+        handlerThread.quit();
+    }
+
+    @Test
+    public void idleUntilQuiescent_shouldStopAtMaxVirtualTime() throws Exception {
+        final Transcript transcript = new Transcript();
+        Robolectric.pauseMainLooper();
+        new Handler().postDelayed(new Runnable() {
+            @Override public void run() {
+                transcript.add("at 100");
+            }
+        }, 100);
+        new Handler().postDelayed(new Runnable() {
+            @Override public void run() {
+                transcript.add("at 2000");
+            }
+        }, 2000);
+
+        IdleResult result = Robolectric.idleUntilQuiescent(1000);
+        transcript.assertEventsSoFar("at 100");
+        assertEquals(1, result.getTasksRun());
+        assertEquals(1, Robolectric.getUiThreadScheduler().enqueuedTaskCount());
+    }
+
     @Test
     public void shouldUseSetDensityForContexts() throws Exception {
         assertThat(new Activity().getResources().getDisplayMetrics().density, equalTo(1.0f));
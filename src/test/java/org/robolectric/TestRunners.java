@@ -3,9 +3,14 @@ package org.robolectric;
 import org.junit.runners.model.InitializationError;
 import org.robolectric.bytecode.AndroidTranslatorClassInstrumentedTest;
 import org.robolectric.bytecode.ClassInfo;
+import org.robolectric.bytecode.DirectShadowCallTest;
 import org.robolectric.bytecode.Setup;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import static org.robolectric.util.TestUtil.resourceFile;
 
@@ -77,6 +82,69 @@ public class TestRunners {
         }
     }
 
+    public static class WithVirtualTimeInterception extends RobolectricTestRunner {
+        public WithVirtualTimeInterception(Class<?> testClass) throws InitializationError {
+            super(RobolectricContext.bootstrap(WithVirtualTimeInterception.class, testClass, new RobolectricContext.Factory() {
+                @Override
+                public RobolectricContext create() {
+                    return new RobolectricContext() {
+                        @Override
+                        protected AndroidManifest createAppManifest() {
+                            return new AndroidManifest(resourceFile("TestAndroidManifest.xml"), resourceFile("res"), resourceFile("assets"));
+                        }
+
+                        @Override
+                        public Setup createSetup() {
+                            return new Setup() {
+                                @Override
+                                public Set<MethodRef> methodsToIntercept() {
+                                    Set<MethodRef> methodsToIntercept = new HashSet<MethodRef>(super.methodsToIntercept());
+                                    methodsToIntercept.add(new MethodRef(System.class, "currentTimeMillis"));
+                                    methodsToIntercept.add(new MethodRef(System.class, "nanoTime"));
+                                    return methodsToIntercept;
+                                }
+                            };
+                        }
+                    };
+                }
+            }));
+        }
+    }
+
+    public static class WithDirectShadowCalls extends RobolectricTestRunner {
+        public WithDirectShadowCalls(Class<?> testClass) throws InitializationError {
+            super(RobolectricContext.bootstrap(WithDirectShadowCalls.class, testClass, new RobolectricContext.Factory() {
+                @Override
+                public RobolectricContext create() {
+                    return new RobolectricContext() {
+                        @Override
+                        protected AndroidManifest createAppManifest() {
+                            return new AndroidManifest(resourceFile("TestAndroidManifest.xml"), resourceFile("res"), resourceFile("assets"));
+                        }
+
+                        @Override
+                        public Setup createSetup() {
+                            return new Setup() {
+                                private final Map<String, String> directCallBindings =
+                                        directCallBindingsFor(Arrays.<Class<?>>asList(DirectShadowCallTest.ShadowGreeter.class));
+
+                                @Override
+                                public Map<String, String> getShadowClassesForDirectCalls() {
+                                    return directCallBindings;
+                                }
+
+                                @Override
+                                public boolean invokeApiMethodBodiesWhenShadowMethodIsMissing(Class clazz, String methodName, Class<?>[] paramClasses) {
+                                    return true;
+                                }
+                            };
+                        }
+                    };
+                }
+            }));
+        }
+    }
+
     public static class RealApisWithDefaults extends RobolectricTestRunner {
         public RealApisWithDefaults(Class<?> testClass) throws InitializationError {
             super(RobolectricContext.bootstrap(RealApisWithDefaults.class, testClass, new RobolectricContext.Factory() {
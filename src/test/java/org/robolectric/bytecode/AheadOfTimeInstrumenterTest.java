@@ -0,0 +1,91 @@
+package org.robolectric.bytecode;
+
+import javassist.ClassPool;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.internal.Instrument;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AheadOfTimeInstrumenterTest {
+    private File jarFile;
+    private File cacheFile;
+
+    @Before
+    public void setUp() throws Exception {
+        File root = new File("target/ahead-of-time-instrumenter-test");
+        root.mkdirs();
+        jarFile = new File(root, "classes.jar");
+        cacheFile = new File(root, "cached-robolectric-classes.bin");
+        cacheFile.delete();
+
+        JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarFile));
+        try {
+            for (Class<?> aClass : asList(Instrumented.class, NotInstrumented.class)) {
+                String entryName = aClass.getName().replace('.', '/') + ".class";
+                jar.putNextEntry(new JarEntry(entryName));
+                InputStream in = getClass().getClassLoader().getResourceAsStream(entryName);
+                try {
+                    byte[] buffer = new byte[4096];
+                    int count;
+                    while ((count = in.read(buffer)) != -1) {
+                        jar.write(buffer, 0, count);
+                    }
+                } finally {
+                    in.close();
+                }
+                jar.closeEntry();
+            }
+        } finally {
+            jar.close();
+        }
+    }
+
+    @Test
+    public void shouldInstrumentOnlyClassesTheSetupWantsInstrumented() throws Exception {
+        Setup setup = new Setup();
+        int classCount = new AheadOfTimeInstrumenter(setup, asList(jarFile.getPath()), 2).instrumentInto(cacheFile);
+        assertEquals(1, classCount);
+    }
+
+    @Test
+    public void shouldLetTheClassLoaderDefineInstrumentedClassesWithoutJavassist() throws Exception {
+        Setup setup = new Setup();
+        new AheadOfTimeInstrumenter(setup, asList(jarFile.getPath()), 2).instrumentInto(cacheFile);
+
+        ClassCache classCache = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        AndroidTranslator androidTranslator = new AndroidTranslator(classCache, setup) {
+            @Override public void onLoad(ClassPool classPool, String className) {
+                throw new AssertionError("should have come from the cache: " + className);
+            }
+        };
+        // cached classes are keyed by the jar they came from, so the class loader has to find them in the same one
+        ClassLoader jarClassLoader = new URLClassLoader(new URL[] {jarFile.toURI().toURL()}, null);
+        RobolectricClassLoader classLoader = new RobolectricClassLoader(jarClassLoader, classCache,
+                androidTranslator, setup);
+
+        Class<?> instrumentedClass = classLoader.loadClass(Instrumented.class.getName());
+        assertSame(classLoader, instrumentedClass.getClassLoader());
+        instrumentedClass.getDeclaredField(AndroidTranslator.CLASS_HANDLER_DATA_FIELD_NAME);
+    }
+
+    @Instrument
+    public static class Instrumented {
+        public int answer() {
+            return 42;
+        }
+    }
+
+    public static class NotInstrumented {
+    }
+}
@@ -1,9 +1,21 @@
 package org.robolectric.bytecode;
 
 import javassist.ClassPool;
+import javassist.LoaderClassPath;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 
 public class AndroidTranslatorUnitTest {
@@ -30,4 +42,66 @@ public class AndroidTranslatorUnitTest {
         when(cache.isWriting()).thenReturn(true);
         new AndroidTranslator(cache, new Setup()).onLoad(classPool, "java.lang.Object");
     }
+
+    @Test
+    public void cacheKeyShouldDependOnClassContentAndSetup() throws Exception {
+        ClassPool classPool = new ClassPool();
+        classPool.appendClassPath(new LoaderClassPath(getClass().getClassLoader()));
+        ClassCache cache = mock(ClassCache.class);
+        AndroidTranslator translator = new AndroidTranslator(cache, new Setup());
+
+        String fooKey = translator.getCacheKey(classPool, Foo.class.getName());
+        assertEquals(fooKey, new AndroidTranslator(cache, new Setup()).getCacheKey(classPool, Foo.class.getName()));
+        assertThat(translator.getCacheKey(classPool, Pony.class.getName()), not(equalTo(fooKey)));
+
+        Setup otherSetup = new Setup() {
+            @Override public String getInstrumentationFingerprint() {
+                return "something else";
+            }
+        };
+        assertThat(new AndroidTranslator(cache, otherSetup).getCacheKey(classPool, Foo.class.getName()), not(equalTo(fooKey)));
+
+        assertNull(translator.getCacheKey(classPool, "no.such.Class"));
+    }
+
+    @Test
+    public void cacheKeyShouldIdentifyClassesInJarsByTheirJar() throws Exception {
+        File root = new File("target/android-translator-unit-test");
+        root.mkdirs();
+        File jar = writeJarWith(new File(root, "foo.jar"), Foo.class);
+        File otherJar = writeJarWith(new File(root, "other-foo.jar"), Foo.class);
+        ClassCache cache = mock(ClassCache.class);
+        AndroidTranslator translator = new AndroidTranslator(cache, new Setup());
+
+        ClassPool jarClassPool = new ClassPool();
+        jarClassPool.appendClassPath(jar.getPath());
+        ClassPool otherJarClassPool = new ClassPool();
+        otherJarClassPool.appendClassPath(otherJar.getPath());
+
+        String fooKey = translator.getCacheKey(jarClassPool, Foo.class.getName());
+        assertEquals(fooKey, new AndroidTranslator(cache, new Setup()).getCacheKey(jarClassPool, Foo.class.getName()));
+        assertThat(translator.getCacheKey(otherJarClassPool, Foo.class.getName()), not(equalTo(fooKey)));
+    }
+
+    private File writeJarWith(File jarFile, Class<?> aClass) throws Exception {
+        String entryName = aClass.getName().replace('.', '/') + ".class";
+        JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarFile));
+        try {
+            jar.putNextEntry(new JarEntry(entryName));
+            InputStream in = getClass().getClassLoader().getResourceAsStream(entryName);
+            try {
+                byte[] buffer = new byte[4096];
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    jar.write(buffer, 0, count);
+                }
+            } finally {
+                in.close();
+            }
+            jar.closeEntry();
+        } finally {
+            jar.close();
+        }
+        return jarFile;
+    }
 }
@@ -3,7 +3,183 @@ package org.robolectric.bytecode;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 public class ClassCacheTest {
+    @Test
+    public void shouldReadBackClassesSavedByAPreviousRun() throws Exception {
+        File cacheFile = new File("target/test-class-cache.bin");
+        cacheFile.delete();
+
+        ClassCache firstRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        firstRun.addClass("some.Class", "key", new byte[] {1, 2, 3});
+        firstRun.saveAllClassesToCache(cacheFile);
+
+        ClassCache secondRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        assertArrayEquals(new byte[] {1, 2, 3}, secondRun.getClassBytesFor("some.Class", "key"));
+        assertEquals(3, secondRun.getClassBufferFor("some.Class", "key").remaining());
+        assertNull(secondRun.getClassBytesFor("other.Class", "key"));
+    }
+
+    @Test
+    public void shouldAppendOnlyNewlyAddedClasses() throws Exception {
+        File cacheFile = new File("target/test-class-cache-append.bin");
+        cacheFile.delete();
+
+        ClassCache firstRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        firstRun.addClass("some.Class", "key", new byte[] {1, 2, 3});
+        firstRun.saveAllClassesToCache(cacheFile);
+        long sizeAfterFirstRun = cacheFile.length();
+
+        ClassCache secondRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        secondRun.addClass("some.Class", "key", new byte[] {1, 2, 3});
+        secondRun.addClass("other.Class", "key", new byte[] {4, 5});
+        secondRun.saveAllClassesToCache(cacheFile);
+        assertEquals(sizeAfterFirstRun + 4 + "other.Class@key".length() + 4 + 4 + 2, cacheFile.length());
+
+        ClassCache thirdRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        assertArrayEquals(new byte[] {1, 2, 3}, thirdRun.getClassBytesFor("some.Class", "key"));
+        assertArrayEquals(new byte[] {4, 5}, thirdRun.getClassBytesFor("other.Class", "key"));
+    }
+
+    @Test
+    public void shouldKeepClassesAnotherRunSavedSinceThisOneStarted() throws Exception {
+        File cacheFile = new File("target/test-class-cache-concurrent.bin");
+        cacheFile.delete();
+
+        ClassCache oneRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        ClassCache otherRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        oneRun.addClass("some.Class", "key", new byte[] {1, 2, 3});
+        oneRun.saveAllClassesToCache(cacheFile);
+        long sizeAfterOneRun = cacheFile.length();
+
+        otherRun.addClass("some.Class", "key", new byte[] {1, 2, 3});
+        otherRun.addClass("other.Class", "key", new byte[] {4, 5});
+        otherRun.saveAllClassesToCache(cacheFile);
+        assertEquals(sizeAfterOneRun + 4 + "other.Class@key".length() + 4 + 4 + 2, cacheFile.length());
+
+        ClassCache laterRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        assertArrayEquals(new byte[] {1, 2, 3}, laterRun.getClassBytesFor("some.Class", "key"));
+        assertArrayEquals(new byte[] {4, 5}, laterRun.getClassBytesFor("other.Class", "key"));
+    }
+
+    @Test
+    public void shouldCutOffARecordLeftIncompleteBeforeAppending() throws Exception {
+        File cacheFile = new File("target/test-class-cache-incomplete.bin");
+        cacheFile.delete();
+
+        ClassCache firstRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        firstRun.addClass("some.Class", "key", new byte[] {1, 2, 3});
+        firstRun.saveAllClassesToCache(cacheFile);
+        long sizeAfterFirstRun = cacheFile.length();
+
+        // as if a write had been interrupted part way through a record's class bytes
+        DataOutputStream outputStream = new DataOutputStream(new FileOutputStream(cacheFile, true));
+        outputStream.writeInt("lost.Class@key".length());
+        outputStream.write("lost.Class@key".getBytes("UTF-8"));
+        outputStream.writeInt(100);
+        outputStream.writeInt(0);
+        outputStream.write(new byte[] {9, 9, 9});
+        outputStream.close();
+
+        ClassCache secondRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        assertNull(secondRun.getClassBytesFor("lost.Class", "key"));
+        secondRun.addClass("other.Class", "key", new byte[] {4, 5});
+        secondRun.saveAllClassesToCache(cacheFile);
+        assertEquals(sizeAfterFirstRun + 4 + "other.Class@key".length() + 4 + 4 + 2, cacheFile.length());
+
+        ClassCache thirdRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        assertArrayEquals(new byte[] {1, 2, 3}, thirdRun.getClassBytesFor("some.Class", "key"));
+        assertArrayEquals(new byte[] {4, 5}, thirdRun.getClassBytesFor("other.Class", "key"));
+        assertNull(thirdRun.getClassBytesFor("lost.Class", "key"));
+    }
+
+    @Test
+    public void shouldTreatARecordThatFailsItsChecksumAsMissing() throws Exception {
+        File cacheFile = new File("target/test-class-cache-checksum.bin");
+        cacheFile.delete();
+
+        ClassCache firstRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        firstRun.addClass("some.Class", "key", new byte[] {1, 2, 3});
+        firstRun.saveAllClassesToCache(cacheFile);
+        long endOfFirstRecord = cacheFile.length();
+        ClassCache laterRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        laterRun.addClass("other.Class", "key", new byte[] {4, 5});
+        laterRun.saveAllClassesToCache(cacheFile);
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(cacheFile, "rw");
+        randomAccessFile.seek(endOfFirstRecord - 1);
+        randomAccessFile.write(7);
+        randomAccessFile.close();
+
+        ClassCache secondRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        assertNull(secondRun.getClassBytesFor("some.Class", "key"));
+        assertArrayEquals(new byte[] {4, 5}, secondRun.getClassBytesFor("other.Class", "key"));
+        secondRun.addClass("some.Class", "key", new byte[] {1, 2, 3});
+        secondRun.saveAllClassesToCache(cacheFile);
+
+        ClassCache thirdRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        assertArrayEquals(new byte[] {1, 2, 3}, thirdRun.getClassBytesFor("some.Class", "key"));
+    }
+
+    @Test
+    public void shouldKeepReadingItsMappingAfterAppending() throws Exception {
+        File cacheFile = new File("target/test-class-cache-in-place.bin");
+        cacheFile.delete();
+
+        ClassCache firstRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        firstRun.addClass("some.Class", "key", new byte[] {1, 2, 3});
+        firstRun.saveAllClassesToCache(cacheFile);
+
+        // a run that still has the file mapped keeps reading its records while others append
+        ClassCache mappedRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        mappedRun.addClass("other.Class", "key", new byte[] {4, 5});
+        mappedRun.saveAllClassesToCache(cacheFile);
+        assertArrayEquals(new byte[] {1, 2, 3}, mappedRun.getClassBytesFor("some.Class", "key"));
+    }
+
+    @Test
+    public void shouldKeepVersionsOfAClassWithDifferentContentKeysApart() throws Exception {
+        File cacheFile = new File("target/test-class-cache-keys.bin");
+        cacheFile.delete();
+
+        ClassCache firstRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        firstRun.addClass("some.Class", "setup1", new byte[] {1});
+        firstRun.saveAllClassesToCache(cacheFile);
+
+        ClassCache secondRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        assertTrue(secondRun.mayContain("some.Class"));
+        assertFalse(secondRun.mayContain("other.Class"));
+        assertNull(secondRun.getClassBytesFor("some.Class", "setup2"));
+        secondRun.addClass("some.Class", "setup2", new byte[] {2});
+        secondRun.saveAllClassesToCache(cacheFile);
+
+        ClassCache thirdRun = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        assertArrayEquals(new byte[] {1}, thirdRun.getClassBytesFor("some.Class", "setup1"));
+        assertArrayEquals(new byte[] {2}, thirdRun.getClassBytesFor("some.Class", "setup2"));
+    }
+
+    @Test
+    public void shouldDiscardCacheWrittenForAnotherVersion() throws Exception {
+        File cacheFile = new File("target/test-class-cache-version.bin");
+        cacheFile.delete();
+
+        ClassCache oldVersion = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION - 1);
+        oldVersion.addClass("some.Class", "key", new byte[] {1, 2, 3});
+        oldVersion.saveAllClassesToCache(cacheFile);
+
+        ClassCache currentVersion = new ClassCache(cacheFile.getPath(), AndroidTranslator.CACHE_VERSION);
+        assertNull(currentVersion.getClassBytesFor("some.Class", "key"));
+    }
 
 
     @Test
@@ -116,7 +292,7 @@ public class ClassCacheTest {
 
         @Override
         public void run() {
-            classCache.saveAllClassesToCache(null, null);
+            classCache.saveAllClassesToCache(null);
             ready = true;
         }
     };
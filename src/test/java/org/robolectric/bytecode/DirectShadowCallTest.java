@@ -0,0 +1,104 @@
+package org.robolectric.bytecode;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.TestRunners;
+import org.robolectric.internal.Implementation;
+import org.robolectric.internal.Implements;
+import org.robolectric.internal.Instrument;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.robolectric.Robolectric.bindShadowClass;
+
+@RunWith(TestRunners.WithDirectShadowCalls.class)
+public class DirectShadowCallTest {
+    @Test
+    public void whenTheShadowKnownAtInstrumentationTimeIsBound_shouldCallItDirectly() throws Exception {
+        bindShadowClass(ShadowGreeter.class);
+        assertEquals("shadow, called directly", new Greeter().greet());
+    }
+
+    @Test
+    public void whenADifferentShadowIsBound_shouldGoThroughTheClassHandler() throws Exception {
+        bindShadowClass(OtherShadowGreeter.class);
+        assertEquals("other shadow, called through the class handler", new Greeter().greet());
+    }
+
+    @Test
+    public void whenNoShadowIsBound_shouldCallThroughToTheRealMethod() throws Exception {
+        assertEquals("real", new Greeter().greet());
+    }
+
+    @Test
+    public void whenTheShadowLacksTheMethod_shouldCallThroughToTheRealMethod() throws Exception {
+        bindShadowClass(ShadowGreeter.class);
+        assertEquals("real farewell", new Greeter().farewell());
+    }
+
+    @Test
+    public void exceptionsFromTheShadow_shouldReachTheCallerEitherWay() throws Exception {
+        bindShadowClass(ShadowGreeter.class);
+        assertThrowsIllegalState(new Greeter());
+
+        bindShadowClass(OtherShadowGreeter.class);
+        assertThrowsIllegalState(new Greeter());
+    }
+
+    private void assertThrowsIllegalState(Greeter greeter) {
+        try {
+            greeter.explode();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static String howCalled() {
+        for (StackTraceElement stackTraceElement : new Throwable().getStackTrace()) {
+            if (stackTraceElement.getClassName().equals(ShadowWrangler.class.getName())) {
+                return "called through the class handler";
+            }
+        }
+        return "called directly";
+    }
+
+    @Instrument
+    public static class Greeter {
+        public String greet() {
+            return "real";
+        }
+
+        public String farewell() {
+            return "real farewell";
+        }
+
+        public void explode() {
+        }
+    }
+
+    @Implements(Greeter.class)
+    public static class ShadowGreeter {
+        @Implementation
+        public String greet() {
+            return "shadow, " + howCalled();
+        }
+
+        @Implementation
+        public void explode() {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Implements(Greeter.class)
+    public static class OtherShadowGreeter {
+        @Implementation
+        public String greet() {
+            return "other shadow, " + howCalled();
+        }
+
+        @Implementation
+        public void explode() {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -7,6 +7,10 @@ import javassist.ClassPool;
 import javassist.CtClass;
 import org.junit.Before;
 import org.junit.Test;
+import org.robolectric.shadows.ShadowView;
+
+import java.util.Arrays;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 
@@ -74,6 +78,27 @@ public class MethodGeneratorTest {
                 "}\n", methodBody);
     }
 
+    @Test
+    public void whenShadowIsKnownAtInstrumentationTime_shouldGenerateDirectCallToShadow() throws Exception {
+        CtClass ctClass = classPool.get(View.class.getName());
+        Setup directCallSetup = new Setup() {
+            @Override public Map<String, String> getShadowClassesForDirectCalls() {
+                return directCallBindingsFor(Arrays.<Class<?>>asList(ShadowView.class));
+            }
+        };
+        String methodBody = new MethodGenerator(ctClass, directCallSetup).generateMethodBody(
+                ctClass.getDeclaredMethod("getId"),
+                CtClass.intType, Type.INT, false, false);
+        assertEquals("if (!org.robolectric.bytecode.RobolectricInternals.shouldCallDirectly(this)) {\n" +
+                "Object directShadow = org.robolectric.bytecode.RobolectricInternals.shadowForDirectCall(android.view.View.class, this, org.robolectric.shadows.ShadowView.class);\n" +
+                "if (directShadow != null) return ((org.robolectric.shadows.ShadowView) directShadow).getId();\n" +
+                "Object x = org.robolectric.bytecode.RobolectricInternals.methodInvoked(\n" +
+                "  android.view.View.class, \"getId\", this, new String[0], new Object[0]);\n" +
+                "if (x != null) return ((java.lang.Integer) x).intValue();\n" +
+                "return 0;\n" +
+                "}\n", methodBody);
+    }
+
     @Test
     public void shouldGenerateParameterList() throws Exception {
         MethodGenerator methodGenerator = new MethodGenerator(classPool.getCtClass(Object.class.getName()), setup);
@@ -0,0 +1,85 @@
+package org.robolectric.bytecode;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RobolectricClassLoaderTest {
+    @Test
+    public void concurrentLoadsOfTheSameClassShouldDefineItOnce() throws Exception {
+        Setup setup = new Setup();
+        ClassCache classCache = new ClassCache(new File("target/test-rcl-cache.bin").getPath(), -1);
+        final RobolectricClassLoader classLoader = new RobolectricClassLoader(getClass().getClassLoader(),
+                classCache, new AndroidTranslator(classCache, setup), setup);
+
+        int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Class<?>>> results = new ArrayList<Future<Class<?>>>();
+            for (int i = 0; i < threadCount; i++) {
+                results.add(executorService.submit(new Callable<Class<?>>() {
+                    @Override public Class<?> call() throws Exception {
+                        start.await();
+                        return classLoader.loadClass(ThreadSafetyTest.InstrumentedThread.class.getName());
+                    }
+                }));
+            }
+            start.countDown();
+
+            Class<?> loadedClass = results.get(0).get();
+            assertSame(classLoader, loadedClass.getClassLoader());
+            for (Future<Class<?>> result : results) {
+                assertSame(loadedClass, result.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotHoldOnToLocksForLoadedClasses() throws Exception {
+        Setup setup = new Setup();
+        ClassCache classCache = new ClassCache(new File("target/test-rcl-cache.bin").getPath(), -1);
+        RobolectricClassLoader classLoader = new RobolectricClassLoader(getClass().getClassLoader(),
+                classCache, new AndroidTranslator(classCache, setup), setup);
+        classLoader.loadClass(ThreadSafetyTest.InstrumentedThread.class.getName());
+        classLoader.loadClass(String.class.getName());
+
+        Field classLoadingLocks = RobolectricClassLoader.class.getDeclaredField("classLoadingLocks");
+        classLoadingLocks.setAccessible(true);
+        assertEquals(0, ((Map) classLoadingLocks.get(classLoader)).size());
+    }
+
+    @Test
+    public void shouldBeRegisteredAsParallelCapable() throws Exception {
+        Method isRegisteredAsParallelCapable;
+        try {
+            isRegisteredAsParallelCapable = ClassLoader.class.getDeclaredMethod("isRegisteredAsParallelCapable");
+        } catch (NoSuchMethodException e) {
+            // only Java 9 and up can tell
+            Assume.assumeTrue(false);
+            return;
+        }
+
+        Setup setup = new Setup();
+        ClassCache classCache = new ClassCache(new File("target/test-rcl-cache.bin").getPath(), -1);
+        RobolectricClassLoader classLoader = new RobolectricClassLoader(getClass().getClassLoader(),
+                classCache, new AndroidTranslator(classCache, setup), setup);
+        assertEquals(true, isRegisteredAsParallelCapable.invoke(classLoader));
+    }
+}
@@ -151,6 +151,22 @@ public class ShadowWranglerTest {
         assertThat(stackTrace, not(containsString(RobolectricInternals.class.getName() + ".")));
     }
 
+    @Test
+    public void shouldRedispatchWhenShadowBindingChanges() throws Exception {
+        bindShadowClass(ShadowFoo.class);
+        assertSame(name, new Foo(name).getName());
+
+        bindShadowClass(ExceptionThrowingShadowFoo.class);
+        Exception e = null;
+        try {
+            new Foo(name).getName();
+        } catch (Exception e1) {
+            e = e1;
+        }
+        assertNotNull(e);
+        assertEquals(IOException.class, e.getClass());
+    }
+
     @Test(expected = I18nException.class)
     public void shouldThrowExceptionOnI18nStrictMode() {
         Robolectric.getShadowWrangler().setStrictI18n(true);
@@ -0,0 +1,54 @@
+package org.robolectric.bytecode;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.TestRunners;
+import org.robolectric.internal.Implementation;
+import org.robolectric.internal.Implements;
+import org.robolectric.internal.Instrument;
+import org.robolectric.internal.RealObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Robolectric.bindShadowClass;
+import static org.robolectric.Robolectric.directlyOn;
+
+@RunWith(TestRunners.WithVirtualTimeInterception.class)
+public class VirtualTimeInterceptionTest {
+    @Test
+    public void interceptedTimeCallsInInstrumentedMethods_shouldReadTheVirtualClock() throws Exception {
+        bindShadowClass(ShadowTimeReader.class);
+        Robolectric.getVirtualClock().setCurrentTimeMillis(1000000);
+        Robolectric.getVirtualClock().advanceBy(5);
+
+        TimeReader timeReader = new TimeReader();
+        assertEquals(1000005, timeReader.currentTimeMillis());
+        assertEquals(Robolectric.getVirtualClock().nanoTime(), timeReader.nanoTime());
+    }
+
+    @Instrument
+    public static class TimeReader {
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    }
+
+    @Implements(TimeReader.class)
+    public static class ShadowTimeReader {
+        @RealObject TimeReader realObject;
+
+        @Implementation
+        public long currentTimeMillis() {
+            return directlyOn(realObject).currentTimeMillis();
+        }
+
+        @Implementation
+        public long nanoTime() {
+            return directlyOn(realObject).nanoTime();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.robolectric.daemon;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.Runner;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.InitializationError;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RobolectricDaemonTest {
+    private static boolean ranInDaemon;
+    private RobolectricDaemon daemon;
+    private Thread daemonThread;
+
+    @Before
+    public void setUp() throws Exception {
+        daemon = new RobolectricDaemon(0);
+        daemonThread = new Thread("daemon-test") {
+            @Override public void run() {
+                try {
+                    daemon.serve();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        daemonThread.start();
+        ranInDaemon = false;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty(RobolectricDaemon.PORT_PROPERTY);
+        RobolectricDaemon.stop(daemon.getPort());
+        daemonThread.join();
+    }
+
+    @Test
+    public void shouldRunTestsInTheDaemonAndReportResults() throws Exception {
+        System.setProperty(RobolectricDaemon.PORT_PROPERTY, String.valueOf(daemon.getPort()));
+
+        Result result = JUnitCore.runClasses(DaemonFixture.class);
+
+        assertEquals(2, result.getRunCount());
+        assertEquals(1, result.getFailureCount());
+        assertEquals("failing(org.robolectric.daemon.RobolectricDaemonTest$DaemonFixture)", result.getFailures().get(0).getTestHeader());
+        assertEquals("expected", result.getFailures().get(0).getMessage());
+        assertTrue(ranInDaemon);
+    }
+
+    @Test
+    public void shouldRunLocallyWithoutADaemon() throws Exception {
+        Result result = JUnitCore.runClasses(DaemonFixture.class);
+
+        assertEquals(2, result.getRunCount());
+        assertEquals(1, result.getFailureCount());
+    }
+
+    @Test
+    public void shouldRunOnlyTheTestsSelectedByAFilter() throws Exception {
+        System.setProperty(RobolectricDaemon.PORT_PROPERTY, String.valueOf(daemon.getPort()));
+
+        Result result = new JUnitCore().run(Request.aClass(DaemonFixture.class).filterWith(
+                Description.createTestDescription(DaemonFixture.class, "passing")));
+
+        assertEquals(1, result.getRunCount());
+        assertEquals(0, result.getFailureCount());
+        assertTrue(ranInDaemon);
+    }
+
+    @Test
+    public void shouldReportExceptionsThatCantBeDeserializedAsAssertionErrors() throws Exception {
+        System.setProperty(RobolectricDaemon.PORT_PROPERTY, String.valueOf(daemon.getPort()));
+
+        Result result = JUnitCore.runClasses(UndeserializableFixture.class);
+
+        assertEquals(1, result.getFailureCount());
+        Throwable exception = result.getFailures().get(0).getException();
+        assertEquals(AssertionError.class, exception.getClass());
+        assertEquals(UndeserializableException.class.getName() + ": thrown in the daemon", exception.getMessage());
+        assertTrue(exception.getStackTrace().length > 0);
+    }
+
+    @RunWith(PlainDaemonTestRunner.class)
+    public static class UndeserializableFixture {
+        @Test
+        public void throwing() throws Exception {
+            throw new UndeserializableException();
+        }
+    }
+
+    public static class UndeserializableException extends RuntimeException {
+        UndeserializableException() {
+            super("thrown in the daemon");
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException {
+            throw new InvalidObjectException("can't be read back");
+        }
+    }
+
+    @RunWith(PlainDaemonTestRunner.class)
+    public static class DaemonFixture {
+        @Test
+        public void passing() throws Exception {
+            ranInDaemon = Thread.currentThread().getName().equals("daemon-test");
+        }
+
+        @Test
+        public void failing() throws Exception {
+            fail("expected");
+        }
+    }
+
+    public static class PlainDaemonTestRunner extends DaemonTestRunner {
+        public PlainDaemonTestRunner(Class<?> testClass) throws InitializationError {
+            super(testClass);
+        }
+
+        @Override protected Class<? extends Runner> getRunnerClass() {
+            return BlockJUnit4ClassRunner.class;
+        }
+    }
+}
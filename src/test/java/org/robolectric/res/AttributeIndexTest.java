@@ -0,0 +1,68 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+import org.robolectric.R;
+import org.robolectric.tester.android.util.Attribute;
+import org.robolectric.tester.android.util.AttributeIndex;
+import org.robolectric.tester.android.util.ResName;
+import org.robolectric.tester.android.util.TestAttributeSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+import static org.robolectric.util.TestUtil.systemResources;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class AttributeIndexTest {
+    private final Attribute text = new Attribute("android:attr/text", "first", TEST_PACKAGE);
+    private final Attribute textAgain = new Attribute("android:attr/text", "second", TEST_PACKAGE);
+    private final Attribute style = new Attribute(":attr/style", "@style/FancyStyle", TEST_PACKAGE);
+
+    @Test
+    public void shouldFindFirstAttributeByName() throws Exception {
+        AttributeIndex attributeIndex = new AttributeIndex(asList(text, textAgain, style));
+
+        assertSame(text, attributeIndex.find(new ResName("android:attr/text")));
+        assertSame(style, attributeIndex.find(new ResName("", "attr", "style")));
+        assertNull(attributeIndex.find(new ResName("android:attr/title")));
+        assertEquals(3, attributeIndex.getAttributes().size());
+    }
+
+    @Test
+    public void shouldFindFirstAttributeById() throws Exception {
+        AttributeIndex attributeIndex = new AttributeIndex(asList(text, textAgain, style));
+        ResourceExtractor resourceExtractor = new ResourceExtractor(testResources(), systemResources());
+
+        assertSame(text, attributeIndex.find(android.R.attr.text, resourceExtractor));
+        assertNull(attributeIndex.find(android.R.attr.title, resourceExtractor));
+        assertSame(text, attributeIndex.find(android.R.attr.text, new ResourceExtractor(systemResources())));
+    }
+
+    @Test
+    public void shouldNotBeAffectedByLaterChangesToTheList() throws Exception {
+        List<Attribute> attributes = new ArrayList<Attribute>(asList(text));
+        AttributeIndex attributeIndex = new AttributeIndex(attributes);
+        attributes.add(style);
+
+        assertNull(attributeIndex.find(new ResName("", "attr", "style")));
+        assertEquals(1, attributeIndex.getAttributes().size());
+    }
+
+    @Test
+    public void testAttributeSet_shouldSeeAttributesPutAfterItWasQueried() throws Exception {
+        PackageResourceLoader resourceLoader = new PackageResourceLoader(testResources(), systemResources());
+        TestAttributeSet attributeSet = new TestAttributeSet(new ArrayList<Attribute>(), resourceLoader, null);
+        assertNull(attributeSet.getAttributeValue("android", "text"));
+        assertEquals(0, attributeSet.getStyleAttribute());
+
+        attributeSet.put(text).put(style);
+
+        assertEquals("first", attributeSet.getAttributeValue("android", "text"));
+        assertEquals(R.style.FancyStyle, attributeSet.getStyleAttribute());
+    }
+}
@@ -0,0 +1,183 @@
+package org.robolectric.res;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.R;
+import org.robolectric.tester.android.util.ResName;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+
+public class PackageResourceLoaderTest {
+    private static final ResName HELLO = new ResName(TEST_PACKAGE, "string", "hello");
+    private static final ResName GREETING = new ResName(TEST_PACKAGE, "string", "greeting");
+    private static final ResName MAIN_LAYOUT = new ResName(TEST_PACKAGE, "layout", "main");
+
+    private File appRes;
+    private File libRes;
+    private PackageResourceLoader resourceLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        File root = new File("target/package-resource-loader-test");
+        deleteRecursively(root);
+        appRes = new File(root, "app/res");
+        libRes = new File(root, "lib/res");
+
+        write(new File(appRes, "values/strings.xml"), "<resources><string name=\"hello\">Hello</string></resources>");
+        write(new File(libRes, "values/strings.xml"), "<resources><string name=\"hello\">Hello from lib</string>" +
+                "<string name=\"greeting\">Hi from lib</string></resources>");
+
+        resourceLoader = new PackageResourceLoader(asList(
+                new ResourcePath(R.class, appRes, null),
+                new ResourcePath(org.robolectric.lib1.R.class, libRes, null)), TEST_PACKAGE, null);
+        resourceLoader.setWatchForChanges(true);
+    }
+
+    @Test
+    public void shouldReloadOnlyWhenFilesHaveChanged() throws Exception {
+        assertEquals("Hello", resourceLoader.getStringValue(HELLO, ""));
+        assertFalse(resourceLoader.reloadChangedResources());
+
+        write(new File(appRes, "values/strings.xml"), "<resources><string name=\"hello\">Howdy</string></resources>");
+        assertTrue(resourceLoader.reloadChangedResources());
+        assertEquals("Howdy", resourceLoader.getStringValue(HELLO, ""));
+        assertFalse(resourceLoader.reloadChangedResources());
+    }
+
+    @Test
+    public void shouldTellListenersWhichFilesAreReloaded() throws Exception {
+        final List<File> reloadedFiles = new ArrayList<File>();
+        ResourceLoadingListener listener = new ResourceLoadingListener() {
+            @Override
+            public void resourcesReloading(ResourcePath resourcePath, String kind, List<File> changedFiles) {
+                reloadedFiles.addAll(changedFiles);
+            }
+        };
+        ResourceLoadingListener.add(listener);
+        try {
+            resourceLoader.getStringValue(HELLO, "");
+            write(new File(appRes, "values/strings.xml"), "<resources><string name=\"hello\">Howdy</string></resources>");
+            resourceLoader.reloadChangedResources();
+        } finally {
+            ResourceLoadingListener.remove(listener);
+        }
+
+        assertEquals(asList(new File(appRes, "values/strings.xml")), reloadedFiles);
+    }
+
+    @Test
+    public void shouldKeepEarlierResourcePathsFirstAfterReloading() throws Exception {
+        assertEquals("Hi from lib", resourceLoader.getStringValue(GREETING, ""));
+
+        write(new File(appRes, "values/strings.xml"), "<resources><string name=\"hello\">Howdy</string>" +
+                "<string name=\"greeting\">Hi</string></resources>");
+        write(new File(libRes, "values/strings.xml"), "<resources><string name=\"hello\">Howdy from lib</string>" +
+                "<string name=\"greeting\">Hi from lib</string></resources>");
+        resourceLoader.reloadChangedResources();
+
+        assertEquals("Howdy", resourceLoader.getStringValue(HELLO, ""));
+        assertEquals("Hi", resourceLoader.getStringValue(GREETING, ""));
+    }
+
+    @Test
+    public void shouldPickUpAddedAndRemovedFiles() throws Exception {
+        assertNull(resourceLoader.getLayoutViewNode(MAIN_LAYOUT, ""));
+
+        write(new File(appRes, "layout/main.xml"), "<LinearLayout/>");
+        write(new File(appRes, "values-fr/strings.xml"), "<resources><string name=\"hello\">Bonjour</string></resources>");
+        assertTrue(resourceLoader.reloadChangedResources());
+        assertNotNull(resourceLoader.getLayoutViewNode(MAIN_LAYOUT, ""));
+        assertEquals("Bonjour", resourceLoader.getStringValue(HELLO, "fr"));
+
+        assertTrue(new File(appRes, "values-fr/strings.xml").delete());
+        assertTrue(resourceLoader.reloadChangedResources());
+        assertEquals("Hello", resourceLoader.getStringValue(HELLO, "fr"));
+    }
+
+    @Test
+    public void shouldNotReloadUnlessWatching() throws Exception {
+        resourceLoader = new PackageResourceLoader(new ResourcePath(R.class, appRes, null));
+        assertEquals("Hello", resourceLoader.getStringValue(HELLO, ""));
+
+        write(new File(appRes, "values/strings.xml"), "<resources><string name=\"hello\">Howdy</string></resources>");
+        assertFalse(resourceLoader.reloadChangedResources());
+        assertEquals("Hello", resourceLoader.getStringValue(HELLO, ""));
+    }
+
+    @Test
+    public void shouldMergeNothingFromAKindThatFailedToLoad() throws Exception {
+        write(new File(libRes, "values/strings.xml"), "<resources><string name=\"hello\">");
+        try {
+            resourceLoader.getStringValue(HELLO, "");
+            fail("expected the broken lib strings to fail");
+        } catch (RuntimeException expected) {
+        }
+
+        write(new File(appRes, "values/strings.xml"), "<resources><string name=\"hello\">Howdy</string></resources>");
+        write(new File(libRes, "values/strings.xml"), "<resources><string name=\"hello\">Howdy from lib</string></resources>");
+        assertEquals("Howdy", resourceLoader.getStringValue(HELLO, ""));
+    }
+
+    @Test
+    public void shouldPreloadInBackground() throws Exception {
+        final CountDownLatch stringsLoaded = new CountDownLatch(1);
+        ResourceLoadingListener listener = new ResourceLoadingListener() {
+            @Override
+            public void bundleLoaded(String type, int entries) {
+                if (type.equals("string")) stringsLoaded.countDown();
+            }
+        };
+        ResourceLoadingListener.add(listener);
+        try {
+            resourceLoader.preloadInBackground();
+            assertTrue(stringsLoaded.await(10, TimeUnit.SECONDS));
+        } finally {
+            ResourceLoadingListener.remove(listener);
+        }
+
+        assertEquals("Hello", resourceLoader.getStringValue(HELLO, ""));
+        assertEquals("Hi from lib", resourceLoader.getStringValue(GREETING, ""));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotStartWatchingAfterLoading() throws Exception {
+        resourceLoader.getStringValue(HELLO, "");
+        resourceLoader.setWatchForChanges(false);
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        boolean existed = file.exists();
+        long lastModified = file.lastModified();
+        file.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(file);
+        writer.write(contents);
+        writer.close();
+        // file systems may only keep modification times to the second
+        if (existed) file.setLastModified(lastModified + 2000);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,44 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class QualifiersTest {
+    @Test
+    public void shouldParseQualifiersIntoTheirFields() throws Exception {
+        Qualifiers qualifiers = Qualifiers.parse("mcc310-en-rGB-sw600dp-w720dp-land-night-hdpi-12key-v14");
+
+        assertEquals(Qualifiers.Field.LANGUAGE.parse("en"), qualifiers.get(Qualifiers.Field.LANGUAGE));
+        assertEquals(Qualifiers.Field.REGION.parse("rGB"), qualifiers.get(Qualifiers.Field.REGION));
+        assertEquals(311, qualifiers.get(Qualifiers.Field.MCC));
+        assertEquals(601, qualifiers.get(Qualifiers.Field.SMALLEST_WIDTH));
+        assertEquals(721, qualifiers.get(Qualifiers.Field.WIDTH));
+        assertEquals(Qualifiers.Field.ORIENTATION.parse("land"), qualifiers.get(Qualifiers.Field.ORIENTATION));
+        assertEquals(Qualifiers.Field.DENSITY.parse("hdpi"), qualifiers.get(Qualifiers.Field.DENSITY));
+        assertEquals(15, qualifiers.get(Qualifiers.Field.VERSION));
+        assertEquals(0, qualifiers.get(Qualifiers.Field.TOUCHSCREEN));
+        assertEquals(Qualifiers.Field.KEYBOARD.parse("12key"), qualifiers.get(Qualifiers.Field.KEYBOARD));
+    }
+
+    @Test
+    public void shouldHaveExactlyTheQualifiersItWasParsedFrom() throws Exception {
+        Qualifiers qualifiers = Qualifiers.parse("fr-GB-v07-port-land-240dpi");
+
+        for (String qualifier : new String[] {"fr", "GB", "v07", "port", "land", "240dpi"}) {
+            assertTrue(qualifier, qualifiers.has(Qualifiers.Qualifier.parse(qualifier)));
+        }
+        for (String qualifier : new String[] {"en", "rGB", "v7", "square", "hdpi", "", "240"}) {
+            assertFalse(qualifier, qualifiers.has(Qualifiers.Qualifier.parse(qualifier)));
+        }
+        assertTrue(Qualifiers.parse(null).has(Qualifiers.Qualifier.parse("")));
+    }
+
+    @Test
+    public void shouldParseEachQualifierStringOnce() throws Exception {
+        assertSame(Qualifiers.parse("en-port"), Qualifiers.parse("en-port"));
+    }
+}
@@ -17,6 +17,40 @@ public class ResBundleTest {
                 "port-notouch-12key"), "en-GB-port-hdpi-notouch-12key").value);
     }
 
+    @Test
+    public void shouldHandleMoreThanSixtyFourVariants() throws Exception {
+        ResBundle.Values<String> values = new ResBundle.Values<String>();
+        for (int i = 0; i < 100; i++) {
+            values.insertSorted(new ResBundle.Value<String>("v" + i, "v" + i, null));
+        }
+        values.insertSorted(new ResBundle.Value<String>(null, "default", null));
+
+        assertEquals("v77", ResBundle.pick(values, "v77").value);
+        assertEquals("default", ResBundle.pick(values, "").value);
+    }
+
+    @Test
+    public void shouldPickAgainWhenValuesAreAdded() throws Exception {
+        ResBundle.Values<String> values = asValues("", "fr");
+        assertEquals("", ResBundle.pick(values, "en").value);
+
+        values.insertSorted(new ResBundle.Value<String>("en", "en", null));
+        assertEquals("en", ResBundle.pick(values, "en").value);
+    }
+
+    @Test
+    public void insertSortedShouldKeepEarlierOfEqualQualifiersFirst() throws Exception {
+        ResBundle.Values<String> values = new ResBundle.Values<String>();
+        values.insertSorted(new ResBundle.Value<String>("fr", "first", null));
+        values.insertSorted(new ResBundle.Value<String>(null, "default", null));
+        values.insertSorted(new ResBundle.Value<String>("fr", "second", null));
+
+        assertEquals("default", values.get(0).value);
+        assertEquals("first", values.get(1).value);
+        assertEquals("second", values.get(2).value);
+        assertEquals("first", ResBundle.pick(values, "fr").value);
+    }
+
     private ResBundle.Values<String> asValues(String... qualifierses) {
         ResBundle.Values<String> values = new ResBundle.Values<String>();
         for (String qualifiers : qualifierses) {
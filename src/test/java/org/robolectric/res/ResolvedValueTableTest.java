@@ -0,0 +1,43 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResolvedValueTableTest {
+    @Test
+    public void shouldKeepValuesByIdAcrossPackagesAndTypes() throws Exception {
+        ResolvedValueTable.Ints table = new ResolvedValueTable.Ints();
+        for (int i = 0; i < 1000; i++) {
+            table.put(0x7f060000 + i, i);
+            table.put(0x01060000 + i, -i);
+        }
+        table.putNotFound(0x7f070000);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ResolvedValueTable.FOUND, table.stateOf(0x7f060000 + i));
+            assertEquals(i, table.get(0x7f060000 + i));
+            assertEquals(-i, table.get(0x01060000 + i));
+        }
+        assertEquals(ResolvedValueTable.NOT_FOUND, table.stateOf(0x7f070000));
+        assertEquals(ResolvedValueTable.UNRESOLVED, table.stateOf(0x7f070001));
+        assertEquals(ResolvedValueTable.UNRESOLVED, table.stateOf(0x7f060000 + 1000));
+        assertEquals(ResolvedValueTable.UNRESOLVED, table.stateOf(0x7f080000));
+    }
+
+    @Test
+    public void shouldStoreEachPrimitiveType() throws Exception {
+        ResolvedValueTable.Floats floats = new ResolvedValueTable.Floats();
+        floats.put(0x7f050003, 1.5f);
+        assertEquals(1.5f, floats.get(0x7f050003), 0);
+
+        ResolvedValueTable.Booleans booleans = new ResolvedValueTable.Booleans();
+        booleans.put(0x7f040001, true);
+        booleans.put(0x7f040002, false);
+        assertTrue(booleans.get(0x7f040001));
+        assertFalse(booleans.get(0x7f040002));
+        assertEquals(ResolvedValueTable.FOUND, booleans.stateOf(0x7f040002));
+    }
+}
@@ -0,0 +1,59 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+import org.robolectric.tester.android.util.ResName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResourceIdTableTest {
+    @Test
+    public void shouldMapNamesAndIdsBothWays() throws Exception {
+        ResourceIdTable table = new ResourceIdTable();
+        for (int i = 0; i < 5000; i++) {
+            table.put(new ResName("org.robolectric", "string", "s" + i), 0x7f060000 + i);
+            table.put(new ResName("android", "id", "i" + i), 0x01020000 + i);
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(0x7f060000 + i, table.getId(new ResName("org.robolectric", "string", "s" + i)));
+            assertEquals(new ResName("android", "id", "i" + i), table.getName(0x01020000 + i));
+        }
+        assertEquals(ResourceIdTable.NO_ID, table.getId(new ResName("org.robolectric", "string", "missing")));
+        assertNull(table.getName(0x7f060000 + 5000));
+        assertNull(table.getName(0x7f070000));
+        assertNull(table.getName(0x02000000));
+        assertEquals(0x7f060000 + 4999, table.getMaxId());
+    }
+
+    @Test
+    public void putAll_shouldRejectOverlappingIds() throws Exception {
+        ResourceIdTable table = new ResourceIdTable();
+        table.put(new ResName("org.robolectric", "id", "a"), 0x7f010000);
+        ResourceIdTable other = new ResourceIdTable();
+        other.put(new ResName("org.robolectric.lib", "id", "b"), 0x7f010000);
+
+        try {
+            table.putAll(other);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("resourceIdToResName"));
+        }
+    }
+
+    @Test
+    public void putAll_shouldCopyDisjointTables() throws Exception {
+        ResourceIdTable table = new ResourceIdTable();
+        table.put(new ResName("org.robolectric", "id", "a"), 0x7f010000);
+        ResourceIdTable other = new ResourceIdTable();
+        other.put(new ResName("android", "id", "b"), 0x01010003);
+
+        table.putAll(other);
+
+        assertEquals(0x01010003, table.getId(new ResName("android", "id", "b")));
+        assertEquals(new ResName("org.robolectric", "id", "a"), table.getName(0x7f010000));
+        assertEquals(0x7f010000, table.getMaxId());
+    }
+}
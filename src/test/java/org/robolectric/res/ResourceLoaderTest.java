@@ -136,4 +136,15 @@ public class ResourceLoaderTest {
         assertThat(resourceLoader.getStringValue(resourceLoader.getResourceExtractor().getResName(R.string.hello), ""), equalTo("Hello"));
         assertThat(resourceLoader.getStringValue(resourceLoader.getResourceExtractor().getResName(R.string.hello), "fr"), equalTo("Bonjour"));
     }
+
+    @Test public void shouldResolveReferencedColorsConsistentlyAcrossLookups() throws Exception {
+        ResourceLoader resourceLoader = new PackageResourceLoader(resourcePath);
+        ResName foreground = resourceLoader.getResourceExtractor().getResName(R.color.foreground);
+        ResName androidRed = resourceLoader.getResourceExtractor().getResName(R.color.android_red);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(0xf5f5f5, resourceLoader.getColorValue(foreground, ""));
+            assertEquals(-1, resourceLoader.getColorValue(androidRed, ""));
+        }
+    }
 }
@@ -0,0 +1,70 @@
+package org.robolectric.res;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.tester.android.util.ResName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+import static org.robolectric.util.TestUtil.TEST_RESOURCE_PATH;
+
+public class ResourceLoadingStatsTest {
+    private ResourceLoadingStats stats;
+
+    @Before
+    public void setUp() throws Exception {
+        stats = new ResourceLoadingStats();
+        ResourceLoadingListener.add(stats);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ResourceLoadingListener.remove(stats);
+    }
+
+    @Test
+    public void shouldCountWhatIsLoaded() throws Exception {
+        PackageResourceLoader resourceLoader = new PackageResourceLoader(TEST_RESOURCE_PATH);
+        assertEquals(1, stats.getRClassesExtracted());
+
+        resourceLoader.getStringValue(new ResName(TEST_PACKAGE, "string", "hello"), "");
+        assertTrue(stats.getFilesParsed() > 0);
+        assertTrue(stats.getBytesParsed() > 0);
+        assertTrue(stats.getLoadMillisByKind().containsKey("values"));
+        assertTrue(stats.getEntriesByType().get("string") > 0);
+        assertEquals(stats.getEntriesByType().keySet().toString(), "[bool, color, dimen, integer, plurals, string]");
+    }
+
+    @Test
+    public void shouldCountLookupsAlreadyResolved() throws Exception {
+        PackageResourceLoader resourceLoader = new PackageResourceLoader(TEST_RESOURCE_PATH);
+        ResName hello = new ResName(TEST_PACKAGE, "string", "hello");
+        resourceLoader.getStringValue(hello, "");
+        resourceLoader.getStringValue(hello, "");
+        resourceLoader.getStringValue(hello, "");
+        resourceLoader.getStringValue(hello, "fr");
+
+        assertEquals(4L, (long) stats.getLookupsByType().get("string"));
+        assertEquals(0.5, stats.getLookupHitRateByType().get("string"), 0.001);
+    }
+
+    @Test
+    public void shouldStopCountingOnceRemoved() throws Exception {
+        ResourceLoadingListener.remove(stats);
+        new PackageResourceLoader(TEST_RESOURCE_PATH).getStringValue(new ResName(TEST_PACKAGE, "string", "hello"), "");
+        assertEquals(0, stats.getRClassesExtracted());
+        assertEquals(0, stats.getFilesParsed());
+    }
+
+    @Test
+    public void reset_shouldClearEverything() throws Exception {
+        new PackageResourceLoader(TEST_RESOURCE_PATH).getStringValue(new ResName(TEST_PACKAGE, "string", "hello"), "");
+        stats.reset();
+        assertEquals(0, stats.getRClassesExtracted());
+        assertEquals(0, stats.getFilesParsed());
+        assertTrue(stats.getLoadMillisByKind().isEmpty());
+        assertTrue(stats.getLookupsByType().isEmpty());
+    }
+}
@@ -0,0 +1,128 @@
+package org.robolectric.res;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.tester.android.util.ResName;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+import static org.robolectric.util.TestUtil.TEST_RESOURCE_PATH;
+
+public class ResourceTableTest {
+    private ResourceTable parsed;
+    private File tableFile;
+
+    @Before
+    public void setUp() throws Exception {
+        parsed = new ResourceTable();
+        for (String dirName : Arrays.asList("values", "layout", "menu")) {
+            parsed.mergeFrom(ResourceTable.parse(TEST_RESOURCE_PATH, new ResourceExtractor(TEST_RESOURCE_PATH), dirName));
+        }
+        tableFile = new File("target/resource-table-test/test.table");
+        tableFile.delete();
+    }
+
+    @Test
+    public void shouldReadBackWhatWasCompiled() throws Exception {
+        parsed.write(tableFile, "fingerprint");
+        ResourceTable read = ResourceTable.read(tableFile, "fingerprint");
+        assertNotNull(read);
+
+        ResName hello = new ResName(TEST_PACKAGE, "string", "hello");
+        assertEquals("Hello", read.strings.get(hello, ""));
+        assertEquals("Bonjour", read.strings.get(hello, "fr"));
+        assertEquals(Arrays.asList("baz", "bang"), read.strings.getList(new ResName(TEST_PACKAGE, "string-array", "more_items"), ""));
+        assertEquals(parsed.integers.getList(new ResName(TEST_PACKAGE, "integer-array", "zero_to_four_int_array"), ""),
+                read.integers.getList(new ResName(TEST_PACKAGE, "integer-array", "zero_to_four_int_array"), ""));
+        assertEquals(parsed.plurals.get(new ResName(TEST_PACKAGE, "plurals", "beer"), "").find(3).string,
+                read.plurals.get(new ResName(TEST_PACKAGE, "plurals", "beer"), "").find(3).string);
+
+        ResName multiOrientationLayout = new ResName(TEST_PACKAGE, "layout", "multi_orientation");
+        assertEquals(describe(parsed.layouts.get(multiOrientationLayout, "")), describe(read.layouts.get(multiOrientationLayout, "")));
+        assertEquals(describe(parsed.layouts.get(multiOrientationLayout, "land")), describe(read.layouts.get(multiOrientationLayout, "land")));
+        assertEquals("land", read.layouts.getValue(multiOrientationLayout, "land").xmlContext.getQualifiers());
+
+        ResName menu = new ResName(TEST_PACKAGE, "menu", "test_withchilds");
+        assertEquals(describe(parsed.menus.get(menu, "")), describe(read.menus.get(menu, "")));
+
+        assertEquals(parsed.attrs.classEnumToValue, read.attrs.classEnumToValue);
+        assertEquals(parsed.attrs.knownClassEnums, read.attrs.knownClassEnums);
+        assertEquals(parsed.attrs.enums.keySet(), read.attrs.enums.keySet());
+        assertEquals(parsed.attrs.enumRefs.keySet(), read.attrs.enumRefs.keySet());
+    }
+
+    @Test
+    public void shouldIgnoreTableWithDifferentFingerprint() throws Exception {
+        parsed.write(tableFile, "fingerprint");
+        assertNull(ResourceTable.read(tableFile, "other fingerprint"));
+    }
+
+    @Test
+    public void fingerprintShouldChangeWhenAResourceFileChanges() throws Exception {
+        String fingerprint = ResourceTable.fingerprint(TEST_RESOURCE_PATH, "values");
+        assertEquals(fingerprint, ResourceTable.fingerprint(TEST_RESOURCE_PATH, "values"));
+        String layoutFingerprint = ResourceTable.fingerprint(TEST_RESOURCE_PATH, "layout");
+
+        File stringsXml = new File(TEST_RESOURCE_PATH.resourceBase, "values/strings.xml");
+        long lastModified = stringsXml.lastModified();
+        try {
+            stringsXml.setLastModified(lastModified - 10000);
+            assertEquals(false, fingerprint.equals(ResourceTable.fingerprint(TEST_RESOURCE_PATH, "values")));
+            assertEquals(layoutFingerprint, ResourceTable.fingerprint(TEST_RESOURCE_PATH, "layout"));
+        } finally {
+            stringsXml.setLastModified(lastModified);
+        }
+    }
+
+    @Test
+    public void parallelParseShouldMatchSequentialParse() throws Exception {
+        for (String dirName : Arrays.asList("values", "layout", "menu")) {
+            // one loader reading every directory in turn, as loading did before it was parallel
+            ResourceTable sequential = new ResourceTable();
+            sequential.documentLoaderFor(dirName, null).loadResourceXmlSubDirs(TEST_RESOURCE_PATH, dirName);
+
+            File sequentialFile = new File("target/resource-table-test/sequential.table");
+            sequential.write(sequentialFile, "fingerprint");
+            for (int i = 0; i < 5; i++) {
+                ResourceTable.parse(TEST_RESOURCE_PATH, null, dirName).write(tableFile, "fingerprint");
+                assertArrayEquals(readBytes(sequentialFile), readBytes(tableFile));
+            }
+        }
+    }
+
+    private byte[] readBytes(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            in.readFully(bytes);
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    private String describe(ViewNode viewNode) {
+        StringBuilder buf = new StringBuilder(viewNode.getName() + viewNode.getAttributes() + viewNode.isFocusRequested() + "[");
+        for (ViewNode child : viewNode.getChildren()) {
+            buf.append(describe(child));
+        }
+        return buf.append("]").toString();
+    }
+
+    private String describe(MenuNode menuNode) {
+        StringBuilder buf = new StringBuilder(menuNode.getName() + menuNode.getAttributes() + "[");
+        for (MenuNode child : menuNode.getChildren()) {
+            buf.append(describe(child));
+        }
+        return buf.append("]").toString();
+    }
+}
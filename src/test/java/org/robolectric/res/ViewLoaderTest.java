@@ -166,6 +166,18 @@ public class ViewLoaderTest {
         assertThat(overrideIncludeView.findViewById(R.id.snippet_text).getVisibility(), is(View.INVISIBLE));
     }
 
+    @Test
+    public void shouldInflateIndependentViewsWhenInflatingTheSameIncludeRepeatedly() throws Exception {
+        ViewGroup first = (ViewGroup) inflate("override_include");
+        ViewGroup second = (ViewGroup) inflate("override_include");
+
+        View firstSnippet = first.findViewById(R.id.snippet_text);
+        View secondSnippet = second.findViewById(R.id.snippet_text);
+        assertNotSame(firstSnippet, secondSnippet);
+        assertThat(secondSnippet.getVisibility(), is(View.INVISIBLE));
+        assertSame(second, secondSnippet.getParent());
+    }
+
     @Test
     public void shouldNotCountRequestFocusElementAsChild() throws Exception {
         ViewGroup viewGroup = (ViewGroup) inflate("request_focus");
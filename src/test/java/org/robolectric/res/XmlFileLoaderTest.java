@@ -12,14 +12,12 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
-import org.w3c.dom.Document;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.*;
@@ -73,7 +71,7 @@ public class XmlFileLoaderTest {
 	}
 	
 	/**
-	 * Create a new {@link Document} from a given string.
+	 * Load a new xml resource from a given string.
 	 * 
 	 * @param xmlValue the XML from which to forge a document.
 	 * @throws XmlPullParserException if the parser fails
@@ -82,15 +80,21 @@ public class XmlFileLoaderTest {
 	private void forgeAndOpenDocument(String xmlValue)
 			throws XmlPullParserException {
 		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-	        factory.setNamespaceAware(true);
-	        factory.setIgnoringComments(true);
-	        factory.setIgnoringElementContentWhitespace(true);
-	        DocumentBuilder documentBuilder = factory.newDocumentBuilder();
-	        Document document = documentBuilder.parse(
-	        		new ByteArrayInputStream(xmlValue.getBytes()));
-	        
-	        parser = xmlFileLoader.new XmlResourceParserImpl(document);
+			File resourceBase = File.createTempFile("forged-res", "");
+			File xmlDir = new File(resourceBase, "xml");
+			File xmlFile = new File(xmlDir, "forged.xml");
+			resourceBase.delete();
+			xmlDir.mkdirs();
+			FileWriter writer = new FileWriter(xmlFile);
+			writer.write(xmlValue);
+			writer.close();
+
+			new DocumentLoader(xmlFileLoader).loadResourceXmlDir(new ResourcePath(R.class, resourceBase, null), "xml");
+			xmlFile.delete();
+			xmlDir.delete();
+			resourceBase.delete();
+
+	        parser = (XmlResourceParserImpl) xmlFileLoader.getXml(TestUtil.TEST_PACKAGE + ":xml/forged");
 	        // Navigate to the root element
 	        parseUntilNext(XmlResourceParser.START_TAG);
 		} catch (Exception parsingException) {
@@ -287,6 +291,18 @@ public class XmlFileLoaderTest {
 		assertThat(parser.getText(), equalTo("bar"));
 	}
 
+	@Test
+	public void testGetText_shouldSkipCdataAndWhitespaceEventsButKeepThemInTextContent()
+			throws XmlPullParserException, IOException {
+		forgeAndOpenDocument("<foo>bar<![CDATA[baz]]> <qux/></foo>");
+		assertThat(parser.getText(), equalTo("barbaz "));
+
+		assertThat(parser.next(), equalTo(XmlResourceParser.TEXT));
+		assertThat(parser.getText(), equalTo("bar"));
+		assertThat(parser.next(), equalTo(XmlResourceParser.START_TAG));
+		assertThat(parser.getName(), equalTo("qux"));
+	}
+
 	@Test
 	@Ignore("Not implemented yet")
 	public void testGetLineNumber() throws XmlPullParserException, IOException {
@@ -347,9 +363,9 @@ public class XmlFileLoaderTest {
 	public void testGetAttribute() throws XmlPullParserException, IOException {
 		forgeAndOpenDocument("<foo xmlns:bar=\"bar\"/>");
 		assertThat(
-				parser.getAttribute(
+				parser.getAttributeValue(
 						"http://www.w3.org/2000/xmlns/",
-						"xmlns:bar").getNodeValue(),
+						"xmlns:bar"),
 				equalTo("bar"));
 	}
 
@@ -286,6 +286,22 @@ public class HandlerTest {
         assertTrue(handler.hasMessages(123, testObject));
     }
 
+    @Test
+    public void hasMessagesWithWhatAndObject_shouldCountEachMessageForTheObject() {
+        Robolectric.pauseMainLooper();
+        Object testObject = new Object();
+        Handler handler = new Handler();
+        handler.sendMessage(handler.obtainMessage(123, testObject));
+        handler.sendMessageDelayed(handler.obtainMessage(123, testObject), 500);
+
+        Robolectric.idleMainLooper(0);
+        assertTrue(handler.hasMessages(123, testObject));
+        assertFalse(handler.hasMessages(123, new Object()));
+
+        Robolectric.idleMainLooper(500);
+        assertFalse(handler.hasMessages(123, testObject));
+    }
+
     @Test
     public void testSendToTarget() {
         Robolectric.pauseMainLooper();
@@ -316,6 +332,25 @@ public class HandlerTest {
         assertThat(wasRun[0], equalTo(false));
     }
 
+    @Test
+    public void removeMessages_shouldOnlyTakeMatchingMessagesOutOfTheScheduler() {
+        Robolectric.pauseMainLooper();
+        Handler handler = new Handler();
+        handler.sendEmptyMessageDelayed(123, 500);
+        handler.sendMessageDelayed(handler.obtainMessage(123, "foo"), 1000);
+        handler.sendEmptyMessageDelayed(456, 1000);
+        assertThat(Robolectric.getUiThreadScheduler().enqueuedTaskCount(), equalTo(3));
+
+        handler.removeMessages(123, "foo");
+        assertThat(Robolectric.getUiThreadScheduler().enqueuedTaskCount(), equalTo(2));
+        assertTrue(handler.hasMessages(123));
+
+        handler.removeMessages(123);
+        assertThat(Robolectric.getUiThreadScheduler().enqueuedTaskCount(), equalTo(1));
+        assertFalse(handler.hasMessages(123));
+        assertTrue(handler.hasMessages(456));
+    }
+
     @Test
     public void shouldObtainMessage() throws Exception {
         Message m0 = new Handler().obtainMessage();
@@ -99,6 +99,16 @@ public class LooperTest {
         assertFalse(shadowOf(looper).getScheduler().areAnyRunnable());
     }
     
+    @Test
+    public void shouldForgetLoopersThatHaveQuit() throws Exception {
+        HandlerThread ht = new HandlerThread("test1");
+        ht.start();
+        Looper looper = ht.getLooper();
+        assertTrue(ShadowLooper.getAllLoopers().contains(looper));
+        looper.quit();
+        assertFalse(ShadowLooper.getAllLoopers().contains(looper));
+    }
+
     @Test
     public void testLoopThread() {
     	assertTrue(shadowOf(Looper.getMainLooper()).getThread() == Thread.currentThread());
@@ -0,0 +1,40 @@
+package org.robolectric.shadows;
+
+import android.os.SystemClock;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.TestRunners;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(TestRunners.WithDefaults.class)
+public class SystemClockTest {
+    @Test
+    public void shouldMoveOnAsTheMainLooperIsAdvanced() throws Exception {
+        long start = SystemClock.uptimeMillis();
+        Robolectric.getUiThreadScheduler().advanceBy(1000);
+
+        assertThat(SystemClock.uptimeMillis(), equalTo(start + 1000));
+        assertThat(SystemClock.elapsedRealtime(), equalTo(start + 1000));
+        assertThat(Robolectric.getBackgroundScheduler().getCurrentTime(), equalTo(start + 1000));
+    }
+
+    @Test
+    public void sleep_shouldAdvanceVirtualTimeWithoutRunningTasks() throws Exception {
+        long start = SystemClock.uptimeMillis();
+        SystemClock.sleep(500);
+
+        assertThat(SystemClock.uptimeMillis(), equalTo(start + 500));
+        assertThat(Robolectric.getUiThreadScheduler().getCurrentTime(), equalTo(start + 500));
+    }
+
+    @Test
+    public void setCurrentTimeMillis_shouldSetTheWallClockTime() throws Exception {
+        assertThat(SystemClock.setCurrentTimeMillis(1000000), equalTo(true));
+        SystemClock.sleep(10);
+
+        assertThat(Robolectric.getVirtualClock().currentTimeMillis(), equalTo(1000010L));
+    }
+}
@@ -0,0 +1,76 @@
+package org.robolectric.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResolvedArtifactCacheTest {
+    private File dir;
+    private File cacheFile;
+    private File jarA;
+    private File jarB;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File("target/resolved-artifact-cache-test");
+        dir.mkdirs();
+        cacheFile = new File(dir, "artifacts.properties");
+        cacheFile.delete();
+        jarA = write(new File(dir, "a.jar"), "aaa");
+        jarB = write(new File(dir, "b b.jar"), "bbbb");
+    }
+
+    @Test
+    public void shouldReturnCachedFilesInAnotherInstance() throws Exception {
+        new ResolvedArtifactCache(cacheFile).put("g:a:jar:1,g:b:jar:1", Arrays.asList(jarA, jarB));
+
+        assertEquals(Arrays.asList(jarA.getAbsoluteFile(), jarB.getAbsoluteFile()),
+                new ResolvedArtifactCache(cacheFile).get("g:a:jar:1,g:b:jar:1"));
+        assertNull(new ResolvedArtifactCache(cacheFile).get("g:a:jar:2"));
+    }
+
+    @Test
+    public void shouldMissWhenAFileChangesOrDisappears() throws Exception {
+        ResolvedArtifactCache cache = new ResolvedArtifactCache(cacheFile);
+        cache.put("a", Arrays.asList(jarA));
+        cache.put("b", Arrays.asList(jarB));
+
+        write(jarA, "a changed jar");
+        assertNull(cache.get("a"));
+
+        jarB.delete();
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void shouldCacheDependenciesThatResolveToNoFiles() throws Exception {
+        new ResolvedArtifactCache(cacheFile).put("none", Collections.<File>emptyList());
+
+        assertEquals(Collections.<File>emptyList(), new ResolvedArtifactCache(cacheFile).get("none"));
+    }
+
+    @Test
+    public void shouldMissOnAnEntryWithABadNumber() throws Exception {
+        write(cacheFile, "a=12x 34 " + jarA.getAbsolutePath().replace("\\", "\\\\") + "\n");
+
+        assertNull(new ResolvedArtifactCache(cacheFile).get("a"));
+    }
+
+    private File write(File file, String contents) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(contents);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
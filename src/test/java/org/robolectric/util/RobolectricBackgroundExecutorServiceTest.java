@@ -1,13 +1,19 @@
 package org.robolectric.util;
 
+import android.os.Handler;
+import android.os.Looper;
 import org.robolectric.Robolectric;
 import org.robolectric.TestRunners;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -74,4 +80,146 @@ public class RobolectricBackgroundExecutorServiceTest {
 
         assertEquals("foo", future.get());
     }
+
+    @Test
+    public void runBackgroundTasks_shouldWaitForTasksOnThreads() throws Exception {
+        executorService = new RobolectricBackgroundExecutorService(2);
+        for (int i = 0; i < 3; i++) {
+            executorService.execute(new Runnable() {
+                @Override public void run() {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    synchronized (transcript) {
+                        transcript.add("ran");
+                    }
+                }
+            });
+        }
+
+        Robolectric.runBackgroundTasks();
+        transcript.assertEventsSoFar("ran", "ran", "ran");
+    }
+
+    @Test
+    public void tasksOnThreads_shouldPostResultsToTheMainLooper() throws Exception {
+        Robolectric.pauseMainLooper();
+        final Handler handler = new Handler(Looper.getMainLooper());
+        executorService = new RobolectricBackgroundExecutorService(1);
+        executorService.execute(new Runnable() {
+            @Override public void run() {
+                handler.post(runnable);
+            }
+        });
+
+        Robolectric.runBackgroundTasks();
+        transcript.assertNoEventsSoFar();
+
+        Robolectric.runUiThreadTasks();
+        transcript.assertEventsSoFar("background event ran");
+    }
+
+    @Test
+    public void invokeAll_shouldRunEverythingOnThreads() throws Exception {
+        executorService = new RobolectricBackgroundExecutorService(2);
+        List<Future<String>> futures = executorService.invokeAll(Arrays.asList(new Callable<String>() {
+            @Override public String call() throws Exception {
+                return "foo";
+            }
+        }, new Callable<String>() {
+            @Override public String call() throws Exception {
+                return "bar";
+            }
+        }));
+
+        assertEquals("foo", futures.get(0).get());
+        assertEquals("bar", futures.get(1).get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void runBackgroundTasks_shouldRethrowFailuresFromThreads() throws Exception {
+        executorService = new RobolectricBackgroundExecutorService(1);
+        executorService.execute(new Runnable() {
+            @Override public void run() {
+                throw new IllegalStateException();
+            }
+        });
+
+        Robolectric.runBackgroundTasks();
+    }
+
+    @Test
+    public void reset_shouldShutDownThreadedExecutorsAndForgetTheirFailures() throws Exception {
+        executorService = new RobolectricBackgroundExecutorService(1);
+        executorService.execute(new Runnable() {
+            @Override public void run() {
+                throw new IllegalStateException();
+            }
+        });
+
+        RobolectricBackgroundExecutorService.reset();
+        assertTrue(executorService.isShutdown());
+        Robolectric.runBackgroundTasks();
+    }
+
+    @Test
+    public void shutdown_shouldStopThreads() throws Exception {
+        executorService = new RobolectricBackgroundExecutorService(1);
+        executorService.submit(runnable);
+        executorService.shutdown();
+
+        assertTrue(executorService.awaitTermination(1, TimeUnit.SECONDS));
+        assertTrue(executorService.isTerminated());
+        transcript.assertEventsSoFar("background event ran");
+    }
+
+    @Test
+    public void invokeAll_shouldRunEverythingInlineByDefault() throws Exception {
+        List<Future<String>> futures = executorService.invokeAll(Arrays.asList(new Callable<String>() {
+            @Override public String call() throws Exception {
+                runnable.run();
+                return "foo";
+            }
+        }));
+
+        transcript.assertEventsSoFar("background event ran");
+        assertEquals("foo", futures.get(0).get());
+        assertEquals("foo", executorService.invokeAny(Arrays.asList(new Callable<String>() {
+            @Override public String call() throws Exception {
+                return "foo";
+            }
+        })));
+    }
+
+    @Test
+    public void shutdownNow_shouldReturnTasksStillQueuedByDefault() throws Exception {
+        executorService.execute(runnable);
+        assertFalse(executorService.isShutdown());
+
+        assertEquals(1, executorService.shutdownNow().size());
+        assertTrue(executorService.isShutdown());
+        assertTrue(executorService.isTerminated());
+        Robolectric.runBackgroundTasks();
+        transcript.assertNoEventsSoFar();
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shutdown_shouldRejectNewTasksByDefault() throws Exception {
+        executorService.shutdown();
+        executorService.execute(runnable);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void runBackgroundTasks_shouldRethrowFailuresFromSubmittedTasks() throws Exception {
+        executorService = new RobolectricBackgroundExecutorService(1);
+        executorService.submit(new Runnable() {
+            @Override public void run() {
+                throw new IllegalStateException();
+            }
+        });
+
+        Robolectric.runBackgroundTasks();
+    }
 }
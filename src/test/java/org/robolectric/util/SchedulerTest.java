@@ -117,6 +117,75 @@ public class SchedulerTest {
         assertThat(runnable.wasRun, equalTo(false));
     }
 
+    @Test
+    public void shouldRunRunnablesPostedForTheSameTimeInTheOrderTheyWerePosted() throws Exception {
+        scheduler.postDelayed(new AddToTranscript("one"), 100);
+        scheduler.postDelayed(new AddToTranscript("two"), 50);
+        scheduler.postDelayed(new AddToTranscript("three"), 100);
+        scheduler.postDelayed(new AddToTranscript("four"), 50);
+
+        scheduler.advanceBy(100);
+        transcript.assertEventsSoFar("two", "four", "one", "three");
+    }
+
+    @Test
+    public void shouldOrderLongDelaysCorrectly() throws Exception {
+        scheduler.postDelayed(new AddToTranscript("later"), 3000000000L);
+        scheduler.postDelayed(new AddToTranscript("sooner"), 10);
+
+        scheduler.runOneTask();
+        transcript.assertEventsSoFar("sooner");
+        scheduler.runOneTask();
+        transcript.assertEventsSoFar("later");
+        assertThat(scheduler.getCurrentTime(), equalTo(3000000000L));
+    }
+
+    @Test
+    public void postAtFrontOfQueue_shouldGoAheadOfEarlierFrontOfQueueRunnables() throws Exception {
+        scheduler.post(new AddToTranscript("one"));
+        scheduler.postAtFrontOfQueue(new AddToTranscript("two"));
+        scheduler.postAtFrontOfQueue(new AddToTranscript("three"));
+        scheduler.post(new AddToTranscript("four"));
+
+        scheduler.advanceBy(0);
+        transcript.assertEventsSoFar("three", "two", "one", "four");
+    }
+
+    @Test
+    public void removeShouldNotAffectRunnablesAlreadyRun() throws Exception {
+        TestRunnable runnable = new TestRunnable();
+        scheduler.postDelayed(runnable, 10);
+        scheduler.postDelayed(runnable, 20);
+        scheduler.advanceBy(10);
+        assertThat(scheduler.enqueuedTaskCount(), equalTo(1));
+
+        scheduler.remove(runnable);
+        assertThat(scheduler.enqueuedTaskCount(), equalTo(0));
+        assertThat(scheduler.advanceToLastPostedRunnable(), equalTo(false));
+    }
+
+    @Test
+    public void advanceBy_shouldMoveTimeOnEvenWithNothingQueued() throws Exception {
+        assertThat(scheduler.advanceBy(100), equalTo(false));
+        assertThat(scheduler.getCurrentTime(), equalTo(100L));
+    }
+
+    @Test
+    public void schedulersSharingAClock_shouldSeeEachOthersTime() throws Exception {
+        Scheduler other = new Scheduler(scheduler.getClock());
+        other.pause();
+        scheduler.postDelayed(new AddToTranscript("one"), 100);
+        other.postDelayed(new AddToTranscript("two"), 50);
+
+        other.advanceBy(200);
+        transcript.assertEventsSoFar("two");
+        assertThat(scheduler.getCurrentTime(), equalTo(200L));
+
+        scheduler.postAtFrontOfQueue(new AddToTranscript("three"));
+        scheduler.advanceBy(0);
+        transcript.assertEventsSoFar("three", "one");
+    }
+
     @Test
     public void resetShouldUnPause() throws Exception {
         scheduler.pause();
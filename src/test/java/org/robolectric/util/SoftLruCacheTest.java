@@ -0,0 +1,50 @@
+package org.robolectric.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SoftLruCacheTest {
+    @Test
+    public void shouldHoldOnToTheMostRecentlyUsedValues() throws Exception {
+        SoftLruCache<String, Object> cache = new SoftLruCache<String, Object>(2);
+        Object a = new Object();
+        Object b = new Object();
+        cache.put("a", a);
+        cache.put("b", b);
+        assertSame(a, cache.get("a"));
+
+        cache.put("c", new Object());
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get("a"));
+    }
+
+    @Test
+    public void shouldStillFindEvictedValuesUntilTheyAreCollected() throws Exception {
+        SoftLruCache<String, Object> cache = new SoftLruCache<String, Object>(1);
+        Object a = new Object();
+        cache.put("a", a);
+        cache.put("b", new Object());
+        assertEquals(1, cache.size());
+
+        assertSame(a, cache.get("a"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void shouldOnlyHoldOnSoftlyWhenSizeIsZero() throws Exception {
+        SoftLruCache<String, Object> cache = new SoftLruCache<String, Object>(0);
+        Object a = new Object();
+        cache.put("a", a);
+        assertEquals(0, cache.size());
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeSizes() throws Exception {
+        new SoftLruCache<String, Object>(-1);
+    }
+}
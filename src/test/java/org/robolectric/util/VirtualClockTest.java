@@ -0,0 +1,25 @@
+package org.robolectric.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class VirtualClockTest {
+    private VirtualClock clock = new VirtualClock();
+
+    @Test
+    public void advanceTo_shouldNeverMoveTimeBackwards() throws Exception {
+        clock.advanceTo(100);
+        clock.advanceTo(50);
+        assertThat(clock.getUptimeMillis(), equalTo(100L));
+    }
+
+    @Test
+    public void wallClockTime_shouldMoveOnWithUptime() throws Exception {
+        clock.setCurrentTimeMillis(1000000);
+        clock.advanceBy(250);
+        assertThat(clock.currentTimeMillis(), equalTo(1000250L));
+        assertThat(clock.nanoTime(), equalTo(250000000L));
+    }
+}